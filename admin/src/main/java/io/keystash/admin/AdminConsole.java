@@ -12,12 +12,15 @@ import io.keystash.common.persistence.AppKeyDao;
 import io.keystash.common.persistence.JpaEntityDao;
 import io.keystash.common.persistence.PlatformClientDao;
 import io.keystash.common.persistence.ScopeDao;
+import io.keystash.common.services.client.PlatformClientRegistry;
 import io.keystash.common.persistence.hibernate.HibernateDao;
 import io.keystash.common.persistence.hibernate.HibernateSessionProvider;
 import io.keystash.common.services.jose.JwtTokenService;
 import io.keystash.common.services.jose.KeyManager;
 import io.keystash.common.services.jose.KeyManagerImpl;
+import io.keystash.common.services.jose.SigningKeyRegistry;
 import io.keystash.common.services.jose.TokenService;
+import io.keystash.common.services.metrics.CacheMetrics;
 import org.cfg4j.provider.ConfigurationProvider;
 import org.glassfish.hk2.utilities.binding.AbstractBinder;
 import org.glassfish.jersey.jackson.JacksonFeature;
@@ -54,6 +57,7 @@ public class AdminConsole extends ResourceConfig {
                 bind(AppKeyDao.class).to(AppKeyDao.class).in(Singleton.class);
                 bind(PlatformClientDao.class).to(PlatformClientDao.class).in(Singleton.class);
                 bind(ScopeDao.class).to(ScopeDao.class).in(Singleton.class);
+                bind(PlatformClientRegistry.class).to(PlatformClientRegistry.class).in(Singleton.class);
 
                 // Factories
                 bind(JwkFactory.class).to(JwkFactory.class).in(Singleton.class);
@@ -64,7 +68,9 @@ public class AdminConsole extends ResourceConfig {
                 bindFactory(ResourceOwnerFactory.class).to(ResourceOwner.class);
 
                 // Services
+                bind(new CacheMetrics("admin")).to(CacheMetrics.class);
                 bind(JwtTokenService.class).to(TokenService.class).in(Singleton.class);
+                bind(SigningKeyRegistry.class).to(SigningKeyRegistry.class).in(Singleton.class);
                 bind(KeyManagerImpl.class).to(KeyManager.class).in(Singleton.class);
             }
         });
@@ -1,6 +1,7 @@
 package io.keystash.admin.factories.hk2;
 
 import io.keystash.admin.models.ResourceOwner;
+import io.keystash.common.models.jose.VerifiedToken;
 import io.keystash.common.services.jose.TokenService;
 import io.keystash.common.util.AuthorizationUtils;
 import org.glassfish.hk2.api.Factory;
@@ -23,8 +24,8 @@ public class ResourceOwnerFactory implements Factory<ResourceOwner> {
 
     @Override
     public ResourceOwner provide() {
-        String token = AuthorizationUtils.getAccessTokenFromHeader(request.getHeader(HttpHeaders.AUTHORIZATION), tokenService);
-        String idStr = tokenService.getTokenClaim(token, "account_id");
+        VerifiedToken token = AuthorizationUtils.getVerifiedAccessTokenFromHeader(request.getHeader(HttpHeaders.AUTHORIZATION), tokenService);
+        String idStr = token.getClaim("account_id");
         return new ResourceOwner(Integer.parseInt(idStr));
     }
 
@@ -3,6 +3,7 @@ package io.keystash.admin.filters;
 import io.keystash.admin.annotation.Authorization;
 import io.keystash.common.exceptions.OAuth2Exception;
 import io.keystash.common.models.error.ErrorType;
+import io.keystash.common.models.jose.VerifiedToken;
 import io.keystash.common.services.jose.TokenService;
 import io.keystash.common.util.AuthorizationUtils;
 import lombok.extern.slf4j.Slf4j;
@@ -45,12 +46,12 @@ public class AuthorizationFilter implements ContainerRequestFilter {
 
         if (resourceMethod.isAnnotationPresent(Authorization.class)) {
             String authorizationHeader = containerRequestContext.getHeaderString(HttpHeaders.AUTHORIZATION);
-            String token = AuthorizationUtils.getAccessTokenFromHeader(authorizationHeader, tokenService);
+            VerifiedToken token = AuthorizationUtils.getVerifiedAccessTokenFromHeader(authorizationHeader, tokenService);
 
             Authorization authorizationRequired = resourceMethod.getAnnotation(Authorization.class);
 
             // Check scope
-            Set<String> scopes = Stream.of(tokenService.getTokenClaim(token, "scope").split(" ")).collect(Collectors.toSet());
+            Set<String> scopes = Stream.of(token.getClaim("scope").split(" ")).collect(Collectors.toSet());
             List<String> requiredScopes = Arrays.asList(authorizationRequired.scope());
             if (!scopes.contains("privileged") && requiredScopes.size() > 0 && !scopes.containsAll(requiredScopes)) {
                 throw new OAuth2Exception(ErrorType.OAuth2.UNAUTHORIZED_SCOPE, Response.Status.FORBIDDEN, String.join(" ", requiredScopes));
@@ -2,9 +2,13 @@ package io.keystash.admin.resources;
 
 import io.keystash.admin.annotation.Authorization;
 import io.keystash.admin.models.ResourceOwner;
+import io.keystash.common.services.client.PlatformClientRegistry;
 
+import javax.inject.Inject;
+import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
@@ -13,6 +17,13 @@ import javax.ws.rs.core.Response;
 @Path("/clients")
 public class ClientResource {
 
+    private final PlatformClientRegistry platformClientRegistry;
+
+    @Inject
+    public ClientResource(PlatformClientRegistry platformClientRegistry) {
+        this.platformClientRegistry = platformClientRegistry;
+    }
+
     @GET
     @Authorization(scope = "admin")
     @Produces(MediaType.APPLICATION_JSON)
@@ -21,4 +32,16 @@ public class ClientResource {
         return Response.ok().build();
     }
 
+    /**
+     * Drops a client from the client caches, so changes made to it take effect on its next use
+     * <p>Any endpoint here that creates, changes or deletes a client must invalidate it the same way</p>
+     */
+    @DELETE
+    @Path("/{clientId}/cache")
+    @Authorization(scope = "admin")
+    public Response invalidateClient(@PathParam("clientId") String clientId) {
+        platformClientRegistry.invalidate(clientId);
+        return Response.noContent().build();
+    }
+
 }
@@ -0,0 +1,35 @@
+package io.keystash.admin.resources;
+
+import io.keystash.admin.annotation.Authorization;
+import io.keystash.common.services.jose.JwtTokenService;
+import io.keystash.common.services.metrics.CacheMetrics;
+
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+@Path("/metrics")
+public class MetricsResource {
+
+    private final CacheMetrics cacheMetrics;
+
+    @Inject
+    public MetricsResource(CacheMetrics cacheMetrics) {
+        this.cacheMetrics = cacheMetrics;
+    }
+
+    /**
+     * Gets the hit and miss counts of the verified token caches, keyed by application, so that the cache serving
+     * auth core's userinfo and token requests is reported along with the one authorizing admin console requests
+     */
+    @GET
+    @Path("/verified-tokens")
+    @Authorization(scope = "admin")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getVerifiedTokenCacheStats() {
+        return Response.ok(cacheMetrics.getStatistics(JwtTokenService.VERIFIED_TOKEN_CACHE)).build();
+    }
+}
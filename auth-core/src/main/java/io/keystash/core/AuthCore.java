@@ -1,15 +1,23 @@
 package io.keystash.core;
 
+import io.keystash.common.configuration.AuthorizationCodeConfiguration;
+import io.keystash.common.configuration.CacheConfiguration;
 import io.keystash.common.configuration.JpaConfiguration;
+import io.keystash.common.configuration.KeyRotationConfiguration;
+import io.keystash.common.factories.hk2.AuthorizationCodeConfigurationFactory;
+import io.keystash.common.factories.hk2.CacheConfigurationFactory;
 import io.keystash.common.factories.hk2.ConfigurationProviderFactory;
 import io.keystash.common.factories.hk2.HostInfoFactory;
 import io.keystash.common.factories.hk2.JpaConfigurationFactory;
+import io.keystash.common.factories.hk2.KeyRotationConfigurationFactory;
 import io.keystash.common.persistence.*;
 import io.keystash.core.factories.hk2.*;
 import io.keystash.common.factories.jose.JwkFactory;
 import io.keystash.common.factories.jose.JwsAlgorithmFactory;
 import io.keystash.common.factories.jose.KeyProviderFactory;
 import io.keystash.core.filters.AuthenticationFilter;
+import io.keystash.core.listeners.AuthorizationCodeLifecycleListener;
+import io.keystash.core.listeners.KeyRotationLifecycleListener;
 import io.keystash.common.models.authentication.AuthenticatedUser;
 import io.keystash.common.models.jpa.AllowedScope;
 import io.keystash.common.models.web.HostInfo;
@@ -18,10 +26,19 @@ import io.keystash.common.persistence.hibernate.HibernateDao;
 import io.keystash.common.persistence.hibernate.HibernateSessionProvider;
 import io.keystash.core.services.authentication.*;
 import io.keystash.core.services.authorization.AuthorizationService;
+import io.keystash.core.services.cache.MemcachedClientProvider;
+import io.keystash.core.services.security.DefaultJsonWebKeySetService;
+import io.keystash.core.services.security.JsonWebKeySetService;
+import io.keystash.common.services.account.AccountRegistry;
+import io.keystash.common.services.client.PlatformClientRegistry;
+import io.keystash.common.services.scope.ScopeRegistry;
 import io.keystash.common.services.jose.JwtTokenService;
 import io.keystash.common.services.jose.KeyManager;
 import io.keystash.common.services.jose.KeyManagerImpl;
+import io.keystash.common.services.jose.SigningKeyRegistry;
+import io.keystash.common.services.jose.KeyRotationScheduler;
 import io.keystash.common.services.jose.TokenService;
+import io.keystash.common.services.metrics.CacheMetrics;
 import org.cfg4j.provider.ConfigurationProvider;
 import org.glassfish.hk2.utilities.binding.AbstractBinder;
 import org.glassfish.jersey.jackson.JacksonFeature;
@@ -54,6 +71,10 @@ public class AuthCore extends ResourceConfig {
         // Register Filters
         register(AuthenticationFilter.class);
 
+        // Register Listeners
+        register(KeyRotationLifecycleListener.class);
+        register(AuthorizationCodeLifecycleListener.class);
+
         // DI layer
         configureDependencyInjection();
 
@@ -68,6 +89,9 @@ public class AuthCore extends ResourceConfig {
                 // Configuration Layer
                 bindFactory(ConfigurationProviderFactory.class).to(ConfigurationProvider.class).in(Singleton.class);
                 bindFactory(JpaConfigurationFactory.class).to(JpaConfiguration.class).in(Singleton.class);
+                bindFactory(KeyRotationConfigurationFactory.class).to(KeyRotationConfiguration.class).in(Singleton.class);
+                bindFactory(AuthorizationCodeConfigurationFactory.class).to(AuthorizationCodeConfiguration.class).in(Singleton.class);
+                bindFactory(CacheConfigurationFactory.class).to(CacheConfiguration.class).in(Singleton.class);
 
                 // Data Layer - TODO use different JPA or perhaps none at all based on config
                 bind(HibernateSessionProvider.class).to(HibernateSessionProvider.class).in(Singleton.class);
@@ -78,6 +102,9 @@ public class AuthCore extends ResourceConfig {
                 bind(OpenIdProviderConfigDao.class).to(OpenIdProviderConfigDao.class).to(Singleton.class);
                 bind(PlatformClientDao.class).to(PlatformClientDao.class).in(Singleton.class);
                 bind(ScopeDao.class).to(ScopeDao.class).in(Singleton.class);
+                bind(AccountRegistry.class).to(AccountRegistry.class).in(Singleton.class);
+                bind(PlatformClientRegistry.class).to(PlatformClientRegistry.class).in(Singleton.class);
+                bind(ScopeRegistry.class).to(ScopeRegistry.class).in(Singleton.class);
 
                 // Factories
                 bind(JwkFactory.class).to(JwkFactory.class).in(Singleton.class);
@@ -90,10 +117,15 @@ public class AuthCore extends ResourceConfig {
                 // Service Layer
                 bind(AuthenticationService.class).to(AuthenticationService.class).in(Singleton.class);
                 bind(DefaultDiscoveryService.class).to(DiscoveryService.class).in(Singleton.class);
+                bind(new CacheMetrics("auth-core")).to(CacheMetrics.class);
                 bind(JwtTokenService.class).to(TokenService.class).in(Singleton.class);
+                bind(SigningKeyRegistry.class).to(SigningKeyRegistry.class).in(Singleton.class);
                 bind(KeyManagerImpl.class).to(KeyManager.class).in(Singleton.class);
+                bind(KeyRotationScheduler.class).to(KeyRotationScheduler.class).in(Singleton.class);
+                bind(MemcachedClientProvider.class).to(MemcachedClientProvider.class).in(Singleton.class);
                 bind(AuthorizationService.class).to(AuthorizationService.class).in(Singleton.class);
                 bind(DefaultUserInfoService.class).to(UserInfoService.class).in(Singleton.class);
+                bind(DefaultJsonWebKeySetService.class).to(JsonWebKeySetService.class).in(Singleton.class);
 
                 // Sessions
                 bindFactory(AuthenticatedUserFactory.class).to(AuthenticatedUser.class);
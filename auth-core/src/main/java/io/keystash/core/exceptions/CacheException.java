@@ -0,0 +1,19 @@
+package io.keystash.core.exceptions;
+
+public class CacheException extends RuntimeException {
+
+    public CacheException() {
+    }
+
+    public CacheException(String message) {
+        super(message);
+    }
+
+    public CacheException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public CacheException(Throwable cause) {
+        super(cause);
+    }
+}
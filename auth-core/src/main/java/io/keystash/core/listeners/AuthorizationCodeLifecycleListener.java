@@ -0,0 +1,30 @@
+package io.keystash.core.listeners;
+
+import io.keystash.core.services.authorization.AuthorizationService;
+import org.glassfish.jersey.server.spi.Container;
+import org.glassfish.jersey.server.spi.ContainerLifecycleListener;
+
+import javax.inject.Inject;
+
+/**
+ * Creates the authorization service as the application starts
+ * <p>How authorization codes are kept is checked when the service is created, so a misconfigured code store, such
+ * as sealed codes without a sealing key, stops the application from starting rather than failing the first
+ * authorization request.</p>
+ */
+public class AuthorizationCodeLifecycleListener implements ContainerLifecycleListener {
+
+    @Inject
+    public AuthorizationCodeLifecycleListener(AuthorizationService authorizationService) {
+        // Injecting the service is all it takes to create it
+    }
+
+    @Override
+    public void onStartup(Container container) {}
+
+    @Override
+    public void onReload(Container container) {}
+
+    @Override
+    public void onShutdown(Container container) {}
+}
@@ -0,0 +1,34 @@
+package io.keystash.core.listeners;
+
+import io.keystash.common.services.jose.KeyRotationScheduler;
+import org.glassfish.jersey.server.spi.Container;
+import org.glassfish.jersey.server.spi.ContainerLifecycleListener;
+
+import javax.inject.Inject;
+
+/**
+ * Ties the key rotation scheduler to the lifecycle of the application
+ * <p>Only the auth core runs the scheduler, the admin console picks up rotated keys through its own key refresh.</p>
+ */
+public class KeyRotationLifecycleListener implements ContainerLifecycleListener {
+
+    private final KeyRotationScheduler keyRotationScheduler;
+
+    @Inject
+    public KeyRotationLifecycleListener(KeyRotationScheduler keyRotationScheduler) {
+        this.keyRotationScheduler = keyRotationScheduler;
+    }
+
+    @Override
+    public void onStartup(Container container) {
+        keyRotationScheduler.start();
+    }
+
+    @Override
+    public void onReload(Container container) {}
+
+    @Override
+    public void onShutdown(Container container) {
+        keyRotationScheduler.close();
+    }
+}
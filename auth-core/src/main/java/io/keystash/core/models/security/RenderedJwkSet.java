@@ -0,0 +1,38 @@
+package io.keystash.core.models.security;
+
+import lombok.Getter;
+
+import javax.ws.rs.core.EntityTag;
+
+/**
+ * A JSON Web Key Set that has already been serialized, along with the entity tag identifying its content
+ */
+public final class RenderedJwkSet {
+
+    /**
+     * The version of the key set this was rendered from
+     */
+    @Getter private final long version;
+
+    /**
+     * A strong entity tag derived from the serialized content, so it is the same on every node serving the set
+     */
+    @Getter private final EntityTag entityTag;
+
+    private final byte[] body;
+
+    public RenderedJwkSet(long version, EntityTag entityTag, byte[] body) {
+        this.version = version;
+        this.entityTag = entityTag;
+        this.body = body;
+    }
+
+    /**
+     * Gets the serialized key set
+     * <p>The same array is handed to every caller, it must not be modified</p>
+     * @return the JSON bytes of the key set
+     */
+    public byte[] getBody() {
+        return body;
+    }
+}
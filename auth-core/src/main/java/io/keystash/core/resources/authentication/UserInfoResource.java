@@ -3,6 +3,7 @@ package io.keystash.core.resources.authentication;
 import io.keystash.common.exceptions.OAuth2Exception;
 import io.keystash.common.models.authentication.oidc.UserInfo;
 import io.keystash.common.models.error.ErrorType;
+import io.keystash.common.models.jose.VerifiedToken;
 import io.keystash.common.util.AuthorizationUtils;
 import io.keystash.core.services.authentication.UserInfoService;
 import io.keystash.common.services.jose.TokenService;
@@ -36,8 +37,8 @@ public class UserInfoResource {
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     public Response getInfoForUser(@HeaderParam(HttpHeaders.AUTHORIZATION) String authorizationHeader) {
-        String accessToken = AuthorizationUtils.getAccessTokenFromHeader(authorizationHeader, tokenService);
-        String userIdClaim = tokenService.getTokenClaim(accessToken, "account_id");
+        VerifiedToken accessToken = AuthorizationUtils.getVerifiedAccessTokenFromHeader(authorizationHeader, tokenService);
+        String userIdClaim = accessToken.getClaim("account_id");
 
         try {
             int userId = Integer.parseInt(userIdClaim);
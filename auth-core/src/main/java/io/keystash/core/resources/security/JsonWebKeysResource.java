@@ -1,20 +1,20 @@
 package io.keystash.core.resources.security;
 
-import io.keystash.common.models.jose.*;
-import io.keystash.common.factories.jose.JwkFactory;
-import io.keystash.common.services.jose.KeyManager;
+import io.keystash.core.models.security.RenderedJwkSet;
+import io.keystash.core.services.security.JsonWebKeySetService;
 
 import javax.inject.Inject;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
- * Resource for discovery of public RSA keys, represented as a JSON Web Key Set
+ * Resource for discovery of public RSA, EC and Ed25519 keys, represented as a JSON Web Key Set
  * <p>
  *     Clients will need public keys to verify authenticity of ID tokens that are issued by this authorization server
  * </p>
@@ -22,36 +22,43 @@ import java.util.stream.Collectors;
  *     This is ONLY for discovery of public keys. No Symmetric keys will be published from this endpoint as secrets
  *     should not be publicly accessible.
  * </p>
+ * <p>
+ *     The key set is served with a strong entity tag, so clients polling the endpoint with If-None-Match only get
+ *     the key set back when it has changed.
+ * </p>
  */
 @Path("/jwks")
 public class JsonWebKeysResource {
 
-    private final JwkFactory jwkFactory;
-    private final KeyManager keyManager;
+    /**
+     * How long clients may cache the key set, well below the time new keys are published ahead of being used
+     */
+    private static final int MAX_AGE_SECONDS = 300;
+
+    private final JsonWebKeySetService jsonWebKeySetService;
 
     @Inject
-    public JsonWebKeysResource(JwkFactory jwkFactory, KeyManager keyManager) {
-        this.jwkFactory = jwkFactory;
-        this.keyManager = keyManager;
+    public JsonWebKeysResource(JsonWebKeySetService jsonWebKeySetService) {
+        this.jsonWebKeySetService = jsonWebKeySetService;
     }
 
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getJsonWebKeys() {
-        SigningKey activeKey = keyManager.getActiveKey();
-        Set<SigningKey> passiveKeys = keyManager.getPassiveKeys();
+    public Response getJsonWebKeys(@Context Request request) {
+        RenderedJwkSet jwkSet = jsonWebKeySetService.getJsonWebKeySet();
 
-        Set<JsonWebKey> jsonWebKeys = passiveKeys.stream()
-                .map(jwkFactory::createJsonWebKey)
-                .collect(Collectors.toSet());
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setMaxAge(MAX_AGE_SECONDS);
 
-        if (activeKey != null) {
-            jsonWebKeys.add(jwkFactory.createJsonWebKey(activeKey));
+        Response.ResponseBuilder responseBuilder = request.evaluatePreconditions(jwkSet.getEntityTag());
+        if (responseBuilder == null) {
+            responseBuilder = Response.ok(jwkSet.getBody());
         }
 
-        JwkSet jwkSet = new JwkSet();
-        jwkSet.setKeys(jsonWebKeys.stream().filter(key -> key.getKeyType() == JwaKeyType.RSA).collect(Collectors.toSet()));
-        return Response.ok(jwkSet).build();
+        return responseBuilder
+                .tag(jwkSet.getEntityTag())
+                .cacheControl(cacheControl)
+                .build();
     }
 
 }
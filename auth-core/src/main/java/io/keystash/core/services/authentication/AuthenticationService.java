@@ -7,7 +7,7 @@ import io.keystash.common.exceptions.jpa.JpaExecutionException;
 import io.keystash.core.models.authentication.LoginRequest;
 import io.keystash.common.models.authentication.AuthenticatedUser;
 import io.keystash.common.models.jpa.Account;
-import io.keystash.common.persistence.AccountDao;
+import io.keystash.common.services.account.AccountRegistry;
 import io.keystash.core.util.AuthenticationUtils;
 import lombok.extern.slf4j.Slf4j;
 
@@ -19,12 +19,12 @@ import javax.transaction.Transactional;
 @Slf4j
 public class AuthenticationService {
 
-    private final AccountDao accountDao;
+    private final AccountRegistry accountRegistry;
     private final Provider<HttpSession> httpSessionProvider;
 
     @Inject
-    public AuthenticationService(AccountDao accountDao, Provider<HttpSession> httpSessionProvider) {
-        this.accountDao = accountDao;
+    public AuthenticationService(AccountRegistry accountRegistry, Provider<HttpSession> httpSessionProvider) {
+        this.accountRegistry = accountRegistry;
         this.httpSessionProvider = httpSessionProvider;
     }
 
@@ -54,7 +54,7 @@ public class AuthenticationService {
 
     private Account getAccountByEmail(String email) throws AuthenticationException {
         try {
-            Account account = accountDao.getAccountByEmail(email);
+            Account account = accountRegistry.getAccountByEmail(email);
             if (account == null) {
                 throw new UnknownAccountException(String.format("No account exists for email %s", email));
             }
@@ -56,8 +56,8 @@ public class DefaultDiscoveryService implements DiscoveryService {
         openIdProviderMetadata.setUserInfoEndpoint(hostInfo.getBaseUrl() + "userinfo");
         openIdProviderMetadata.setJwksUri(hostInfo.getBaseUrl() + "jwks");
 
-        // For now only support RSA key pairs as valid signing
-        openIdProviderMetadata.setIdTokenEncryptionAlgValuesSupported(Stream.of("RS256").collect(Collectors.toSet()));
+        // Only asymmetric key pairs are advertised, as HMAC secrets are never published to clients
+        openIdProviderMetadata.setIdTokenSigningAlgValuesSupported(Stream.of("RS256", "ES256", "EdDSA").collect(Collectors.toSet()));
         openIdProviderMetadata.setSubjectTypesSupported(Stream.of("pairwise", "public").collect(Collectors.toSet()));
         openIdProviderMetadata.setResponseTypesSupported(getSupportedResponseTypes());
         openIdProviderMetadata.setGrantTypesSupported(Stream.of(OAuth2GrantType.values())
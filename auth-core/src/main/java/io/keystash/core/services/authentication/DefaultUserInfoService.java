@@ -8,7 +8,7 @@ import io.keystash.common.models.authentication.AuthenticatedUser;
 import io.keystash.common.models.authentication.oidc.UserInfo;
 import io.keystash.common.models.error.ErrorType;
 import io.keystash.common.models.jpa.Account;
-import io.keystash.common.persistence.AccountDao;
+import io.keystash.common.services.account.AccountRegistry;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.inject.Inject;
@@ -16,18 +16,18 @@ import javax.inject.Inject;
 @Slf4j
 public class DefaultUserInfoService implements UserInfoService {
 
-    private final AccountDao accountDao;
+    private final AccountRegistry accountRegistry;
 
     @Inject
-    public DefaultUserInfoService(AccountDao accountDao) {
-        this.accountDao = accountDao;
+    public DefaultUserInfoService(AccountRegistry accountRegistry) {
+        this.accountRegistry = accountRegistry;
     }
 
     @Override
     public UserInfo getUserInfo(int userId) {
         Account account;
         try {
-            account = accountDao.getAccountById(userId);
+            account = accountRegistry.getAccountById(userId);
         } catch (JpaExecutionException e) {
             log.error("An unknown error occurred fetching account [{}] using JPA", userId, e);
             throw new OpenIdConnectException(ErrorType.OpenIdConnect.SERVER_ERROR);
@@ -0,0 +1,154 @@
+package io.keystash.core.services.authorization;
+
+import io.keystash.common.models.authentication.AuthenticatedUser;
+import io.keystash.common.models.oauth.OAuth2AuthCode;
+import io.keystash.core.services.cache.CacheCodec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Encodes authorization codes as compact records for off heap storage
+ * <p>
+ *     Strings are written as a length followed by their UTF-8 bytes, with a length of -1 standing for null. The
+ *     record starts with a format version so that the layout can change without misreading older records.
+ * </p>
+ * <p>
+ *     Records bound for disk can leave the tokens out, which are then written as null. A code read back without
+ *     tokens gets fresh ones when it is redeemed.
+ * </p>
+ */
+class AuthorizationCodeCodec implements CacheCodec<OAuth2AuthCode> {
+
+    private static final byte FORMAT_VERSION = 1;
+    private static final int NULL_LENGTH = -1;
+
+    private final boolean includeTokens;
+
+    AuthorizationCodeCodec() {
+        this(true);
+    }
+
+    /**
+     * Create a codec
+     * @param includeTokens whether the ID, access and refresh tokens a code carries are written
+     */
+    AuthorizationCodeCodec(boolean includeTokens) {
+        this.includeTokens = includeTokens;
+    }
+
+    @Override
+    public byte[] encode(OAuth2AuthCode authCode) {
+        byte[][] strings = {
+                toBytes(authCode.getCode()),
+                toBytes(authCode.getClientId()),
+                toBytes(authCode.getRedirectUri()),
+                toBytes(authCode.getNonce()),
+                includeTokens ? toBytes(authCode.getIdToken()) : null,
+                includeTokens ? toBytes(authCode.getAccessToken()) : null,
+                includeTokens ? toBytes(authCode.getRefreshToken()) : null
+        };
+
+        AuthenticatedUser user = authCode.getAuthenticatedUser();
+        byte[] email = user != null ? toBytes(user.getEmail()) : null;
+
+        Set<String> scopes = authCode.getResolvedScopes();
+        byte[][] scopeBytes = new byte[scopes != null ? scopes.size() : 0][];
+        if (scopes != null) {
+            int i = 0;
+            for (String scope : scopes) {
+                scopeBytes[i++] = toBytes(scope);
+            }
+        }
+
+        int length = 1 + 1 + 4 + Integer.BYTES + lengthOf(email) + Integer.BYTES;
+        for (byte[] string : strings) {
+            length += Integer.BYTES + lengthOf(string);
+        }
+        for (byte[] scope : scopeBytes) {
+            length += Integer.BYTES + lengthOf(scope);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.put(FORMAT_VERSION);
+        for (byte[] string : strings) {
+            putString(buffer, string);
+        }
+
+        buffer.put((byte) (user != null ? 1 : 0));
+        buffer.putInt(user != null ? user.getUserId() : 0);
+        putString(buffer, email);
+
+        buffer.putInt(scopes != null ? scopeBytes.length : NULL_LENGTH);
+        for (byte[] scope : scopeBytes) {
+            putString(buffer, scope);
+        }
+
+        return buffer.array();
+    }
+
+    @Override
+    public OAuth2AuthCode decode(ByteBuffer record) {
+        byte version = record.get();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalStateException(String.format("Unknown authorization code record version [%d]", version));
+        }
+
+        OAuth2AuthCode authCode = new OAuth2AuthCode();
+        authCode.setCode(getString(record));
+        authCode.setClientId(getString(record));
+        authCode.setRedirectUri(getString(record));
+        authCode.setNonce(getString(record));
+        authCode.setIdToken(getString(record));
+        authCode.setAccessToken(getString(record));
+        authCode.setRefreshToken(getString(record));
+
+        boolean hasUser = record.get() == 1;
+        int userId = record.getInt();
+        String email = getString(record);
+        if (hasUser) {
+            authCode.setAuthenticatedUser(new AuthenticatedUser(userId, email));
+        }
+
+        int scopeCount = record.getInt();
+        if (scopeCount != NULL_LENGTH) {
+            Set<String> scopes = new HashSet<>();
+            for (int i = 0; i < scopeCount; i++) {
+                scopes.add(getString(record));
+            }
+            authCode.setResolvedScopes(scopes);
+        }
+
+        return authCode;
+    }
+
+    private static byte[] toBytes(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static int lengthOf(byte[] bytes) {
+        return bytes != null ? bytes.length : 0;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(NULL_LENGTH);
+        } else {
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,31 @@
+package io.keystash.core.services.authorization;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Generates authorization code values
+ * <p>
+ *     A code is 24 random bytes encoded as 32 characters of URL-safe Base64. With 192 random bits, the chance of two
+ *     outstanding codes ever colliding is negligible, so codes are not checked against the ones already issued.
+ * </p>
+ * <p>
+ *     Every thread draws from its own {@link SecureRandom}, so concurrent callers never wait on each other.
+ * </p>
+ */
+class AuthorizationCodeGenerator {
+
+    static final int CODE_BYTES = 24;
+
+    private static final ThreadLocal<SecureRandom> RANDOMS = ThreadLocal.withInitial(SecureRandom::new);
+
+    /**
+     * Generates a new code value
+     * @return the code value
+     */
+    String generate() {
+        byte[] bytes = new byte[CODE_BYTES];
+        RANDOMS.get().nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,260 @@
+package io.keystash.core.services.authorization;
+
+import io.keystash.common.models.authentication.AuthenticatedUser;
+import io.keystash.common.models.oauth.OAuth2AuthCode;
+import io.keystash.core.exceptions.CacheException;
+import io.keystash.core.services.cache.Cache;
+import io.keystash.core.services.cache.CacheBuilder;
+import io.keystash.core.services.cache.LocalCache;
+import io.keystash.core.services.cache.MemcachedClient;
+import io.keystash.core.services.cache.StringCacheCodec;
+import org.apache.commons.lang3.StringUtils;
+import com.google.common.util.concurrent.Striped;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.io.Closeable;
+import java.nio.file.Paths;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Holds the outstanding authorization codes
+ * <p>
+ *     Besides looking codes up by their value, codes can be looked up by the client and user they were issued to.
+ *     An index keyed by client, user and the tokens the code carries is kept next to the codes, and is maintained as
+ *     codes are added, redeemed or expire, so that lookup does not depend on the number of outstanding codes.
+ * </p>
+ * <p>
+ *     The codes themselves, tokens included, are kept off the heap, so the number of pending codes has little
+ *     effect on heap use and garbage collection. When a memcached client is given, codes and the index are kept on
+ *     memcached instead, so a code issued by one node can be redeemed by any other. Otherwise codes can be journaled
+ *     to a file, so that outstanding codes survive a restart. Tokens are left out of the journal so they never
+ *     reach the disk, and a restored code gets fresh tokens when it is redeemed.
+ * </p>
+ * <p>
+ *     Issuing a code for a client and user only locks out other requests for that same client and user, so codes for
+ *     unrelated users are issued in parallel.
+ * </p>
+ * <p>A journaled store holds a file and a thread, so the store must be closed once it is no longer used.</p>
+ */
+public class AuthorizationCodeStore implements Closeable {
+
+    private static final int LOCK_STRIPES = 256;
+
+    /**
+     * Upper bound on the off heap memory held by outstanding codes, so a flood of authorize requests can not grow
+     * the store without limit
+     */
+    private static final long CAPACITY_BYTES = 64L * 1024 * 1024;
+
+    private final Striped<Lock> ownerLocks = Striped.lock(LOCK_STRIPES);
+    private final Cache<String, OAuth2AuthCode> authCodeCache;
+    private final Cache<IndexKey, String> codesByOwner;
+
+    public AuthorizationCodeStore(long expiryTimeDuration, TimeUnit expiryTimeUnit) {
+        this(expiryTimeDuration, expiryTimeUnit, null);
+    }
+
+    public AuthorizationCodeStore(long expiryTimeDuration, TimeUnit expiryTimeUnit, MemcachedClient memcachedClient) {
+        this(expiryTimeDuration, expiryTimeUnit, memcachedClient, null);
+    }
+
+    public AuthorizationCodeStore(long expiryTimeDuration, TimeUnit expiryTimeUnit, MemcachedClient memcachedClient,
+                                  String journalPath) {
+        if (memcachedClient != null) {
+            // No near cache, a code read stale from one could be handed out again after it was redeemed elsewhere
+            this.authCodeCache = CacheBuilder.<String, OAuth2AuthCode>createBuilder()
+                    .withExpiryTime(expiryTimeDuration, expiryTimeUnit)
+                    .withRemoteStorage(memcachedClient, "authcode", new AuthorizationCodeCodec())
+                    .build();
+            this.codesByOwner = CacheBuilder.<IndexKey, String>createBuilder()
+                    .withExpiryTime(expiryTimeDuration, expiryTimeUnit)
+                    .withRemoteStorage(memcachedClient, "authcode-owner", new StringCacheCodec())
+                    .build();
+        } else {
+            this.codesByOwner = CacheBuilder.<IndexKey, String>createBuilder()
+                    .withExpiryTime(expiryTimeDuration, expiryTimeUnit)
+                    .withTimingWheelExpiry()
+                    .build();
+
+            CacheBuilder<String, OAuth2AuthCode> builder = CacheBuilder.<String, OAuth2AuthCode>createBuilder()
+                    .withExpiryTime(expiryTimeDuration, expiryTimeUnit)
+                    .withOffHeapStorage(new AuthorizationCodeCodec(), CAPACITY_BYTES)
+                    .withRemovalListener((code, authCode) -> unindex(authCode));
+            if (StringUtils.isNotBlank(journalPath)) {
+                builder.withJournal(Paths.get(journalPath), new StringCacheCodec(), new AuthorizationCodeCodec(false));
+            }
+            LocalCache<String, OAuth2AuthCode> localCache = builder.buildLocal();
+            this.authCodeCache = localCache;
+
+            // Codes restored from the journal are not in the index yet
+            for (OAuth2AuthCode authCode : localCache.values()) {
+                codesByOwner.set(IndexKey.of(authCode), authCode.getCode());
+            }
+        }
+    }
+
+    /**
+     * Gets an outstanding code by its value
+     * @param code the code value
+     * @return the code, or null if there is no such code or it has expired
+     */
+    public OAuth2AuthCode get(String code) {
+        return authCodeCache.get(code);
+    }
+
+    /**
+     * Returns true if the code is outstanding, false otherwise
+     * @param code the code value
+     * @return true or false depending on whether the code is outstanding
+     */
+    public boolean has(String code) {
+        return authCodeCache.has(code);
+    }
+
+    /**
+     * Adds a new code to the store
+     * <p>The code is only indexed once it has been stored, so a code that could not be stored is never handed out</p>
+     * @param authCode the code to add
+     * @throws CacheException if the code could not be stored
+     */
+    public void put(OAuth2AuthCode authCode) {
+        authCodeCache.set(authCode.getCode(), authCode);
+        codesByOwner.set(IndexKey.of(authCode), authCode.getCode());
+    }
+
+    /**
+     * Adds a new code to the store, unless a matching code was issued to the same client and user in the meantime
+     * <p>The check and the add are atomic with respect to other calls for the same client and user</p>
+     * @param authCode the code to add
+     * @param shouldHaveToken whether a matching code must carry an access token
+     * @param shouldHaveIdToken whether a matching code must carry an ID token
+     * @return the matching code if one exists, otherwise the newly added code
+     * @throws CacheException if the new code could not be stored
+     */
+    public OAuth2AuthCode putIfNoneExisting(OAuth2AuthCode authCode, boolean shouldHaveToken, boolean shouldHaveIdToken) {
+        Lock lock = ownerLocks.get(new OwnerKey(authCode.getClientId(), authCode.getAuthenticatedUser()));
+        lock.lock();
+        try {
+            OAuth2AuthCode existing = findExisting(authCode.getClientId(), authCode.getAuthenticatedUser(),
+                    shouldHaveToken, shouldHaveIdToken);
+            if (existing != null) {
+                return existing;
+            }
+
+            put(authCode);
+            return authCode;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes a code from the store, so it can not be used again
+     * @param code the code value
+     * @return the removed code, or null if there was no such code
+     */
+    public OAuth2AuthCode remove(String code) {
+        OAuth2AuthCode authCode = authCodeCache.remove(code);
+        if (authCode != null) {
+            unindex(authCode);
+        }
+
+        return authCode;
+    }
+
+    /**
+     * Finds an outstanding code issued to the given client and user
+     * @param clientId the client the code was issued to
+     * @param authenticatedUser the user the code was issued on behalf of
+     * @param shouldHaveToken whether the code must carry an access token
+     * @param shouldHaveIdToken whether the code must carry an ID token
+     * @return a matching code, or null if there is none
+     */
+    public OAuth2AuthCode findExisting(String clientId, AuthenticatedUser authenticatedUser, boolean shouldHaveToken,
+                                       boolean shouldHaveIdToken) {
+        // A code carrying more tokens than asked for still satisfies the request, so at most four entries are checked
+        for (boolean hasToken : shouldHaveToken ? new boolean[] { true } : new boolean[] { false, true }) {
+            for (boolean hasIdToken : shouldHaveIdToken ? new boolean[] { true } : new boolean[] { false, true }) {
+                OAuth2AuthCode authCode = lookup(new IndexKey(clientId, authenticatedUser, hasToken, hasIdToken));
+                if (authCode != null) {
+                    return authCode;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private OAuth2AuthCode lookup(IndexKey indexKey) {
+        String code = codesByOwner.get(indexKey);
+        if (code == null) {
+            return null;
+        }
+
+        OAuth2AuthCode authCode = authCodeCache.get(code);
+        if (authCode == null) {
+            // The code expired, but the index has not caught up yet
+            unindex(indexKey, code);
+        }
+
+        return authCode;
+    }
+
+    private void unindex(OAuth2AuthCode authCode) {
+        unindex(IndexKey.of(authCode), authCode.getCode());
+    }
+
+    private void unindex(IndexKey indexKey, String code) {
+        // Only drop the entry if it still points at this code, a newer code may have taken its place. Should a newer
+        // code slip in between the two steps, the worst outcome is that the next request gets a fresh code
+        if (code.equals(codesByOwner.get(indexKey))) {
+            codesByOwner.remove(indexKey);
+        }
+    }
+
+    /**
+     * Releases the files and threads held by the store
+     */
+    @Override
+    public void close() {
+        authCodeCache.close();
+        codesByOwner.close();
+    }
+
+    @EqualsAndHashCode
+    @ToString
+    private static class OwnerKey {
+
+        private final String clientId;
+        private final int userId;
+        private final String email;
+
+        private OwnerKey(String clientId, AuthenticatedUser authenticatedUser) {
+            this.clientId = clientId;
+            this.userId = authenticatedUser != null ? authenticatedUser.getUserId() : 0;
+            this.email = authenticatedUser != null ? authenticatedUser.getEmail() : null;
+        }
+    }
+
+    @EqualsAndHashCode(callSuper = true)
+    @ToString(callSuper = true)
+    private static final class IndexKey extends OwnerKey {
+
+        private final boolean hasToken;
+        private final boolean hasIdToken;
+
+        private IndexKey(String clientId, AuthenticatedUser authenticatedUser, boolean hasToken, boolean hasIdToken) {
+            super(clientId, authenticatedUser);
+            this.hasToken = hasToken;
+            this.hasIdToken = hasIdToken;
+        }
+
+        private static IndexKey of(OAuth2AuthCode authCode) {
+            return new IndexKey(authCode.getClientId(), authCode.getAuthenticatedUser(),
+                    Objects.nonNull(authCode.getAccessToken()), Objects.nonNull(authCode.getIdToken()));
+        }
+    }
+}
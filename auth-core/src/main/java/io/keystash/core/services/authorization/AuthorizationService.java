@@ -1,7 +1,9 @@
 package io.keystash.core.services.authorization;
 
+import io.keystash.common.configuration.AuthorizationCodeConfiguration;
 import io.keystash.common.exceptions.TokenException;
 import io.keystash.common.models.authentication.oidc.OidcScope;
+import io.keystash.core.exceptions.CacheException;
 import io.keystash.core.exceptions.authentication.AuthenticationException;
 import io.keystash.common.exceptions.jpa.JpaExecutionException;
 import io.keystash.common.models.authentication.AuthenticatedUser;
@@ -9,68 +11,89 @@ import io.keystash.common.models.authentication.oidc.OidcAuthenticationRequest;
 import io.keystash.common.models.authentication.oidc.OidcResponseType;
 import io.keystash.common.models.common.AuthorizationRequest;
 import io.keystash.common.models.common.AuthorizationResponseType;
-import io.keystash.common.models.jpa.AllowedScope;
-import io.keystash.common.models.jpa.PlatformClient;
+import io.keystash.common.models.jose.VerifiedToken;
 import io.keystash.common.models.common.BasicAuthorizationDetails;
-import io.keystash.common.models.jpa.RedirectUri;
 import io.keystash.common.models.oauth.*;
 import io.keystash.common.persistence.PlatformClientDao;
+import io.keystash.common.services.client.ClientPolicy;
+import io.keystash.common.services.client.PlatformClientRegistry;
 import io.keystash.common.persistence.ScopeDao;
+import io.keystash.common.services.scope.ScopeRegistry;
+import io.keystash.common.services.scope.ScopeSet;
 import io.keystash.core.services.authentication.AuthenticationService;
-import io.keystash.core.services.cache.Cache;
-import io.keystash.core.services.cache.CacheBuilder;
+import io.keystash.core.services.cache.MemcachedClient;
+import io.keystash.core.services.cache.MemcachedClientProvider;
 import io.keystash.common.services.jose.TokenService;
 import io.keystash.common.util.AuthorizationUtils;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Sets;
 import io.keystash.core.exceptions.authorization.*;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.text.RandomStringGenerator;
 
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.transaction.Transactional;
-import java.net.URI;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import static org.apache.commons.text.CharacterPredicates.DIGITS;
-import static org.apache.commons.text.CharacterPredicates.LETTERS;
-
 @Slf4j
 public class AuthorizationService {
 
-    private static final int AUTH_CODE_LENGTH = 20;
     private static final int TOKEN_EXPIRY_TIME_SECONDS = 3600;
+    private static final int AUTH_CODE_EXPIRY_TIME_MINUTES = 10;
+    private static final String SEALED_AUTH_CODE_MODE = "sealed";
 
     private final AuthenticationService authenticationService;
-    private final PlatformClientDao platformClientDao;
-    private final ScopeDao scopeDao;
+    private final PlatformClientRegistry platformClientRegistry;
+    private final ScopeRegistry scopeRegistry;
     private final TokenService tokenService;
 
-    private final RandomStringGenerator authCodeGenerator;
-    private final Cache<String, OAuth2AuthCode> authCodeCache;
+    private final AuthorizationCodeGenerator authCodeGenerator;
+    private final AuthorizationCodeStore authCodeStore;
+    private final SealedAuthorizationCodes sealedAuthCodes;
 
 
-    @Inject
     public AuthorizationService(AuthenticationService authenticationService, PlatformClientDao platformClientDao,
                                 ScopeDao scopeDao, TokenService tokenService) {
+        this(authenticationService, new PlatformClientRegistry(platformClientDao), new ScopeRegistry(scopeDao),
+                tokenService, null, null);
+    }
+
+    @Inject
+    public AuthorizationService(AuthenticationService authenticationService, PlatformClientRegistry platformClientRegistry,
+                                ScopeRegistry scopeRegistry, TokenService tokenService,
+                                AuthorizationCodeConfiguration authorizationCodeConfiguration,
+                                MemcachedClientProvider memcachedClientProvider) {
 
         this.authenticationService = authenticationService;
-        this.platformClientDao = platformClientDao;
-        this.scopeDao = scopeDao;
+        this.platformClientRegistry = platformClientRegistry;
+        this.scopeRegistry = scopeRegistry;
         this.tokenService = tokenService;
 
-        this.authCodeGenerator  = new RandomStringGenerator.Builder()
-                .withinRange('0', 'z')
-                .filteredBy(LETTERS, DIGITS)
-                .build();
+        this.authCodeGenerator = new AuthorizationCodeGenerator();
+
+        MemcachedClient memcachedClient = memcachedClientProvider != null ? memcachedClientProvider.getClient() : null;
+
+        String journalPath = authorizationCodeConfiguration != null ? authorizationCodeConfiguration.journalPath() : null;
+        this.authCodeStore = new AuthorizationCodeStore(AUTH_CODE_EXPIRY_TIME_MINUTES, TimeUnit.MINUTES, memcachedClient,
+                journalPath);
 
-        this.authCodeCache = CacheBuilder.createBuilder()
-            .withExpiryTime(10, TimeUnit.MINUTES)
-            .build();
+        if (authorizationCodeConfiguration != null
+                && SEALED_AUTH_CODE_MODE.equalsIgnoreCase(authorizationCodeConfiguration.mode())) {
+            this.sealedAuthCodes = new SealedAuthorizationCodes(authorizationCodeConfiguration.sealingKey(),
+                    AUTH_CODE_EXPIRY_TIME_MINUTES, TimeUnit.MINUTES, memcachedClient);
+        } else {
+            this.sealedAuthCodes = null;
+        }
+    }
+
+    /**
+     * Releases the files and threads held by the authorization code store
+     */
+    @PreDestroy
+    public void close() {
+        authCodeStore.close();
     }
 
     @Transactional
@@ -84,52 +107,87 @@ public class AuthorizationService {
         Set<AuthorizationResponseType> responseTypes = oAuth2AuthorizationRequest.getResponseTypes();
         String redirectUri = oAuth2AuthorizationRequest.getRedirectUri();
 
-        PlatformClient client = getPlatformClientFromClientId(clientId);
-        if (!client.getAuthorizedGrantTypes().contains(OAuth2GrantType.AUTHORIZATION_CODE)) {
+        ClientPolicy client = getClientPolicy(clientId);
+        if (!client.isGrantTypeAllowed(OAuth2GrantType.AUTHORIZATION_CODE)) {
             throw new UnauthorizedClientException(String.format("Client [%s] is not authorized to request an " +
                     "authorization code", clientId), clientId, OAuth2GrantType.AUTHORIZATION_CODE.name().toLowerCase());
         }
 
-        verifyRequestedRedirectUriIsAllowed(client.getRedirectUris(), redirectUri);
+        verifyRequestedRedirectUriIsAllowed(client, redirectUri);
 
         Set<String> resolvedScopes = getResolvedClientScope(client, requestedScopes, redirectUri);
 
         boolean isTokenResponseRequested = authorizationRequest.isOpenIdConnectAuthRequest() && responseTypes.contains(OAuth2ResponseType.TOKEN);
         boolean isIdTokenResponseRequested = authorizationRequest.isOpenIdConnectAuthRequest() && responseTypes.contains(OidcResponseType.ID_TOKEN);
 
-        // We will add synchronization code here. Although the cache implementation might be thread safe (as is the case
-        // for the current in memory implementation using Guava Cache), we cannot guarantee that every implementation will
-        // be so. The synchronized block will add additional safety
-        OAuth2AuthCode oAuth2AuthCode = getExistingAuthCode(clientId, authenticatedUser, isTokenResponseRequested, isIdTokenResponseRequested);
-        if (oAuth2AuthCode == null) {
-            synchronized (authCodeCache) {
-                oAuth2AuthCode = getExistingAuthCode(clientId, authenticatedUser, isTokenResponseRequested, isIdTokenResponseRequested);
-                if (oAuth2AuthCode == null) {
-                    String authorizationCodeStr = authCodeGenerator.generate(AUTH_CODE_LENGTH);
-                    while (authCodeCache.has(authorizationCodeStr)) {
-                        authorizationCodeStr = authCodeGenerator.generate(AUTH_CODE_LENGTH);
-                    }
-
-                    oAuth2AuthCode = new OAuth2AuthCode(authorizationCodeStr, clientId, resolvedScopes, redirectUri,
-                            authenticatedUser);
-
-                    if (authorizationRequest.isOpenIdConnectAuthRequest()) {
-                        oAuth2AuthCode.setNonce(oidcAuthenticationRequest.getNonce());
-                    }
-
-                    if (isTokenResponseRequested) {
-                        oAuth2AuthCode.setAccessToken(createAccessToken(clientId, authenticatedUser, resolvedScopes, redirectUri));
-                        oAuth2AuthCode.setRefreshToken(createRefreshToken(oAuth2AuthCode.getAccessToken()));
-                    }
-
-                    if (isIdTokenResponseRequested) {
-                        oAuth2AuthCode.setIdToken(createIdToken(clientId, authenticatedUser, oAuth2AuthCode.getAccessToken(),
-                                oAuth2AuthCode.getCode(), oidcAuthenticationRequest.getNonce(), redirectUri));
-                    }
-
-                    authCodeCache.set(authorizationCodeStr, oAuth2AuthCode);
-                }
-            }
+        if (sealedAuthCodes != null) {
+            return generateSealedAuthorizationCode(authorizationRequest, authenticatedUser, resolvedScopes,
+                    isTokenResponseRequested, isIdTokenResponseRequested);
+        }
+
+        OAuth2AuthCode oAuth2AuthCode = authCodeStore.findExisting(clientId, authenticatedUser, isTokenResponseRequested, isIdTokenResponseRequested);
+        if (oAuth2AuthCode != null) {
+            return oAuth2AuthCode;
+        }
+
+        // Tokens are signed without holding any lock. Should a concurrent request for the same client and user win the
+        // race, its code is returned and this one is discarded
+        String authorizationCodeStr = authCodeGenerator.generate();
+
+        oAuth2AuthCode = new OAuth2AuthCode(authorizationCodeStr, clientId, resolvedScopes, redirectUri,
+                authenticatedUser);
+
+        if (authorizationRequest.isOpenIdConnectAuthRequest()) {
+            oAuth2AuthCode.setNonce(oidcAuthenticationRequest.getNonce());
+        }
+
+        if (isTokenResponseRequested) {
+            oAuth2AuthCode.setAccessToken(createAccessToken(clientId, authenticatedUser, resolvedScopes, redirectUri));
+            oAuth2AuthCode.setRefreshToken(createRefreshToken(oAuth2AuthCode.getAccessToken()));
+        }
+
+        if (isIdTokenResponseRequested) {
+            oAuth2AuthCode.setIdToken(createIdToken(clientId, authenticatedUser, oAuth2AuthCode.getAccessToken(),
+                    oAuth2AuthCode.getCode(), oidcAuthenticationRequest.getNonce(), redirectUri));
+        }
+
+        try {
+            return authCodeStore.putIfNoneExisting(oAuth2AuthCode, isTokenResponseRequested, isIdTokenResponseRequested);
+        } catch (CacheException e) {
+            throw new AuthorizationException("Unable to store the authorization code", redirectUri, e);
+        }
+    }
+
+    /**
+     * Issues a self-contained code, nothing is kept on this node until the code is redeemed. Tokens returned with the
+     * code in a hybrid flow are not carried by it, so fresh tokens are created when the code is redeemed
+     */
+    private OAuth2AuthCode generateSealedAuthorizationCode(AuthorizationRequest authorizationRequest,
+                                                           AuthenticatedUser authenticatedUser, Set<String> resolvedScopes,
+                                                           boolean isTokenResponseRequested,
+                                                           boolean isIdTokenResponseRequested) {
+
+        OAuth2AuthorizationRequest oAuth2AuthorizationRequest = authorizationRequest.getOAuth2AuthorizationRequest();
+        OidcAuthenticationRequest oidcAuthenticationRequest = authorizationRequest.getOidcAuthenticationRequest();
+
+        String clientId = oAuth2AuthorizationRequest.getClientId();
+        String redirectUri = oAuth2AuthorizationRequest.getRedirectUri();
+
+        OAuth2AuthCode oAuth2AuthCode = new OAuth2AuthCode(null, clientId, resolvedScopes, redirectUri, authenticatedUser);
+        if (authorizationRequest.isOpenIdConnectAuthRequest()) {
+            oAuth2AuthCode.setNonce(oidcAuthenticationRequest.getNonce());
+        }
+
+        oAuth2AuthCode.setCode(sealedAuthCodes.seal(oAuth2AuthCode));
+
+        if (isTokenResponseRequested) {
+            oAuth2AuthCode.setAccessToken(createAccessToken(clientId, authenticatedUser, resolvedScopes, redirectUri));
+            oAuth2AuthCode.setRefreshToken(createRefreshToken(oAuth2AuthCode.getAccessToken()));
+        }
+
+        if (isIdTokenResponseRequested) {
+            oAuth2AuthCode.setIdToken(createIdToken(clientId, authenticatedUser, oAuth2AuthCode.getAccessToken(),
+                    oAuth2AuthCode.getCode(), oidcAuthenticationRequest.getNonce(), redirectUri));
         }
 
         return oAuth2AuthCode;
@@ -146,13 +204,13 @@ public class AuthorizationService {
         Set<AuthorizationResponseType> responseTypes = oAuth2AuthorizationRequest.getResponseTypes();
         String redirectUri = oAuth2AuthorizationRequest.getRedirectUri();
 
-        PlatformClient client = getPlatformClientFromClientId(clientId);
-        if (!client.getAuthorizedGrantTypes().contains(OAuth2GrantType.IMPLICIT)) {
+        ClientPolicy client = getClientPolicy(clientId);
+        if (!client.isGrantTypeAllowed(OAuth2GrantType.IMPLICIT)) {
             throw new UnauthorizedClientException(String.format("Client [%s] is not authorized to request a " +
                     "token using implicit grant.", clientId), clientId, OAuth2GrantType.IMPLICIT.name().toLowerCase());
         }
 
-        verifyRequestedRedirectUriIsAllowed(client.getRedirectUris(), redirectUri);
+        verifyRequestedRedirectUriIsAllowed(client, redirectUri);
 
         boolean isTokenResponseRequested = responseTypes.contains(OAuth2ResponseType.TOKEN);
         boolean isIdTokenResponseRequested = authorizationRequest.isOpenIdConnectAuthRequest() && responseTypes.contains(OidcResponseType.ID_TOKEN);
@@ -182,16 +240,17 @@ public class AuthorizationService {
     public OAuth2TokenResponse getTokenResponseForAuthorizationCodeGrant(String code, BasicAuthorizationDetails authorizationDetails, String redirectUri) {
 
         String clientId = authorizationDetails.getClientId();
-        PlatformClient client = getPlatformClientFromClientId(clientId);
+        ClientPolicy client = getClientPolicy(clientId);
         verifyClientAuthorizationValidity(authorizationDetails, client);
 
-        if (!client.getAuthorizedGrantTypes().contains(OAuth2GrantType.AUTHORIZATION_CODE)) {
+        if (!client.isGrantTypeAllowed(OAuth2GrantType.AUTHORIZATION_CODE)) {
             throw new UnauthorizedClientException(String.format("Client [%s] is not authorized to request a " +
                     "token using authorization_code grant.", clientId), clientId, OAuth2GrantType.AUTHORIZATION_CODE.name().toLowerCase());
         }
 
-        // Get the code and check validity
-        OAuth2AuthCode oAuth2AuthCode = authCodeCache.get(code);
+        // Take the code out of the store before checking it. Codes are single use, so of two concurrent redemptions
+        // only one can get the code, and a code presented with the wrong client or redirect URI is burnt as well
+        OAuth2AuthCode oAuth2AuthCode = sealedAuthCodes != null ? sealedAuthCodes.redeem(code) : authCodeStore.remove(code);
         if (oAuth2AuthCode == null
                 || !Objects.equals(code, oAuth2AuthCode.getCode())
                 || !Objects.equals(client.getClientId(), oAuth2AuthCode.getClientId())
@@ -201,8 +260,6 @@ public class AuthorizationService {
                     "code for client [%s].", code, clientId), code, clientId);
         }
 
-        authCodeCache.evict(code); // Evict the code so nobody can use it again
-
         Set<String> resolvedScopes = oAuth2AuthCode.getResolvedScopes();
         String token = createAccessToken(client.getClientId(), oAuth2AuthCode.getAuthenticatedUser(), oAuth2AuthCode.getResolvedScopes());
         String refreshToken = createRefreshToken(token);
@@ -233,16 +290,16 @@ public class AuthorizationService {
     public OAuth2TokenResponse getTokenResponseForClientCredentialsGrant(BasicAuthorizationDetails authorizationDetails, Set<String> requestedScopes) {
 
         String clientId = authorizationDetails.getClientId();
-        PlatformClient client = getPlatformClientFromClientId(authorizationDetails.getClientId());
+        ClientPolicy client = getClientPolicy(authorizationDetails.getClientId());
         verifyClientAuthorizationValidity(authorizationDetails, client);
 
-        if (!client.getAuthorizedGrantTypes().contains(OAuth2GrantType.CLIENT_CREDENTIALS)) {
+        if (!client.isGrantTypeAllowed(OAuth2GrantType.CLIENT_CREDENTIALS)) {
             throw new UnauthorizedClientException(String.format("Client [%s] is not authorized to request a " +
                     "token using client_credentials grant.", clientId), clientId, OAuth2GrantType.CLIENT_CREDENTIALS.name().toLowerCase());
         }
 
         Set<String> resolvedScopes = getResolvedClientScope(client, requestedScopes);
-        AuthenticatedUser authenticatedUser = new AuthenticatedUser(client.getAccount().getId(), client.getAccount().getEmail());
+        AuthenticatedUser authenticatedUser = new AuthenticatedUser(client.getAccountId(), client.getAccountEmail());
 
         String token = createAccessToken(client.getClientId(), authenticatedUser, resolvedScopes);
         return createOauth2TokenResponse(token, resolvedScopes);
@@ -253,10 +310,10 @@ public class AuthorizationService {
                                                                 String password, Set<String> requestedScopes) {
 
         String clientId = authorizationDetails.getClientId();
-        PlatformClient client = getPlatformClientFromClientId(clientId);
+        ClientPolicy client = getClientPolicy(clientId);
         verifyClientAuthorizationValidity(authorizationDetails, client);
 
-        if (!client.getAuthorizedGrantTypes().contains(OAuth2GrantType.PASSWORD)) {
+        if (!client.isGrantTypeAllowed(OAuth2GrantType.PASSWORD)) {
             throw new UnauthorizedClientException(String.format("Client [%s] is not authorized to request a " +
                     "token using password grant.", clientId), clientId, OAuth2GrantType.PASSWORD.name().toLowerCase());
         }
@@ -272,7 +329,7 @@ public class AuthorizationService {
 
         String token = createAccessToken(client.getClientId(), authenticatedUser, resolvedScopes);
         String refreshToken = null;
-        if (client.getAuthorizedGrantTypes().contains(OAuth2GrantType.REFRESH_TOKEN)) {
+        if (client.isGrantTypeAllowed(OAuth2GrantType.REFRESH_TOKEN)) {
             refreshToken = createRefreshToken(token);
         }
 
@@ -281,22 +338,23 @@ public class AuthorizationService {
 
     public OAuth2TokenResponse getTokenResponseForRefreshTokenGrant(BasicAuthorizationDetails authorizationDetails, String refreshToken) {
         String clientId = authorizationDetails.getClientId();
-        PlatformClient client = getPlatformClientFromClientId(clientId);
+        ClientPolicy client = getClientPolicy(clientId);
         verifyClientAuthorizationValidity(authorizationDetails, client);
 
-        if (!client.getAuthorizedGrantTypes().contains(OAuth2GrantType.REFRESH_TOKEN)) {
+        if (!client.isGrantTypeAllowed(OAuth2GrantType.REFRESH_TOKEN)) {
             throw new UnauthorizedClientException(String.format("Client [%s] is not authorized to request a " +
                     "token using refresh_token grant.", clientId), clientId, OAuth2GrantType.REFRESH_TOKEN.name().toLowerCase());
         }
 
         // Check refresh token validity
-        if (!tokenService.isTokenValid(refreshToken)) {
+        VerifiedToken verifiedRefreshToken = tokenService.verify(refreshToken);
+        if (!verifiedRefreshToken.isValid()) {
             throw new InvalidRefreshTokenException(String.format("Refresh token is invalid for client [%s]", clientId));
         }
 
-        String username = tokenService.getTokenClaim(refreshToken, "email");
-        String accountId = tokenService.getTokenClaim(refreshToken, "account_id");
-        String scopeStr = tokenService.getTokenClaim(refreshToken, "scope");
+        String username = verifiedRefreshToken.getClaim("email");
+        String accountId = verifiedRefreshToken.getClaim("account_id");
+        String scopeStr = verifiedRefreshToken.getClaim("scope");
 
         AuthenticatedUser authenticatedUser = new AuthenticatedUser(Integer.parseInt(accountId), username);
         Set<String> scopes = Stream.of(scopeStr.split(" ")).collect(Collectors.toSet());
@@ -307,10 +365,10 @@ public class AuthorizationService {
         return createOauth2TokenResponse(token, newRefreshToken, scopes);
     }
 
-    private PlatformClient getPlatformClientFromClientId(String clientId) {
+    private ClientPolicy getClientPolicy(String clientId) {
 
         try {
-            PlatformClient client = platformClientDao.getPlatformClientByClientId(clientId);
+            ClientPolicy client = platformClientRegistry.getClientPolicy(clientId);
             if (client == null) {
                 throw new UnknownClientException(String.format("No client found for client Id [%s]", clientId), clientId);
             }
@@ -322,7 +380,7 @@ public class AuthorizationService {
         }
     }
 
-    private void verifyClientAuthorizationValidity(BasicAuthorizationDetails authorizationDetails, PlatformClient client) {
+    private void verifyClientAuthorizationValidity(BasicAuthorizationDetails authorizationDetails, ClientPolicy client) {
 
         if (client.getClientSecret() != null && !client.getClientSecret().equals(authorizationDetails.getClientSecret())) {
             throw new InvalidClientException(String.format("Client [%s] is invalid or the provided secret was " +
@@ -330,80 +388,46 @@ public class AuthorizationService {
         }
     }
 
-    private void verifyRequestedRedirectUriIsAllowed(List<RedirectUri> registeredUris, String requestedUri) {
-        List<URI> registered = registeredUris.stream()
-                .map(RedirectUri::getValue)
-                .map(URI::create)
-                .collect(Collectors.toList());
-
-        URI requested = URI.create(requestedUri);
-
-        boolean foundValid = false;
-        for (URI uri : registered) {
-            // Disregard query parameters and fragments
-            boolean registeredDidMatch = uri.getScheme().equals(requested.getScheme())
-                    && uri.getHost().equals(requested.getHost())
-                    && uri.getPath().equals(requested.getPath())
-                    && uri.getPort() == requested.getPort();
-
-            foundValid |= registeredDidMatch;
-        }
-
-        if (!foundValid) {
+    private void verifyRequestedRedirectUriIsAllowed(ClientPolicy client, String requestedUri) {
+        if (!client.isRedirectUriAllowed(requestedUri)) {
             throw new UnknownRedirectUriException("Requested redirectUri was not registered for client");
         }
     }
 
-    private Set<String> getResolvedClientScope(PlatformClient platformClient, Set<String> requestedScopes) {
-        return getResolvedClientScope(platformClient, requestedScopes, null);
+    private Set<String> getResolvedClientScope(ClientPolicy client, Set<String> requestedScopes) {
+        return getResolvedClientScope(client, requestedScopes, null);
     }
 
-    private Set<String> getResolvedClientScope(PlatformClient platformClient, Set<String> requestedScopes, String redirectUri) {
+    private Set<String> getResolvedClientScope(ClientPolicy client, Set<String> requestedScopes, String redirectUri) {
 
         if (requestedScopes == null || requestedScopes.size() == 0) {
-            return Stream.of(platformClient.getScope().split(",")).collect(Collectors.toSet());
+            return client.getScopes();
         }
 
-        Set<String> allowedScopes;
+        ScopeRegistry.Catalogue catalogue;
         try {
-            allowedScopes = scopeDao.getAllowedScopes().stream()
-                    .map(AllowedScope::getScope)
-                    .collect(Collectors.toSet());
+            catalogue = scopeRegistry.getCatalogue();
         } catch (JpaExecutionException e) {
             throw new AuthorizationException("An unexpected error occurred interfacing with JPA while processing " +
                     "authorization.", redirectUri, e);
         }
 
-        String clientId = platformClient.getClientId();
+        String clientId = client.getClientId();
 
-        List<String> unknownScopes = Lists.newArrayList(Sets.difference(requestedScopes, allowedScopes));
-        if (unknownScopes.size() > 0) {
+        String unknownScope = catalogue.findUnknownScope(requestedScopes);
+        if (unknownScope != null) {
             throw new InvalidScopeException(String.format("An unknown scope was requested by client [%s]", clientId),
-                    redirectUri, clientId, unknownScopes.get(0));
+                    redirectUri, clientId, unknownScope);
         }
 
-        List<String> unauthorizedScopes = Lists.newArrayList(Sets.difference(allowedScopes, requestedScopes));
-        if (!allowedScopes.contains("privileged") && unauthorizedScopes.size() > 0) {
+        ScopeSet resolvedScopes = catalogue.toScopeSet(requestedScopes);
+        String unauthorizedScope = catalogue.isPrivileged() ? null : catalogue.findMissingScope(resolvedScopes);
+        if (unauthorizedScope != null) {
             throw new InvalidScopeException(String.format("Client [%s] requested a scope they are not authorized for",
-                    clientId), redirectUri, clientId, unauthorizedScopes.get(0));
-        }
-
-        return requestedScopes;
-    }
-
-    private OAuth2AuthCode getExistingAuthCode(String clientId, AuthenticatedUser authenticatedUser, boolean shouldHaveToken, boolean shouldHaveIdToken) {
-        Stream<OAuth2AuthCode> authCodeStream = authCodeCache.values().stream()
-                .filter(code -> Objects.equals(code.getClientId(), clientId) && Objects.equals(code.getAuthenticatedUser(), authenticatedUser));
-
-        if (shouldHaveToken) {
-            authCodeStream = authCodeStream.filter(code -> Objects.nonNull(code.getAccessToken()));
-        }
-
-        if (shouldHaveIdToken) {
-            authCodeStream = authCodeStream.filter(code -> Objects.nonNull(code.getIdToken()));
+                    clientId), redirectUri, clientId, unauthorizedScope);
         }
 
-        return authCodeStream.findFirst().orElse(null);
+        return resolvedScopes;
     }
 
     private String createAccessToken(String clientId, AuthenticatedUser authenticatedUser, Set<String> scopes) {
@@ -414,7 +438,7 @@ public class AuthorizationService {
         Map<String, String> tokenClaims = new HashMap<>();
         tokenClaims.put("email", authenticatedUser.getEmail());
         tokenClaims.put("account_id", String.valueOf(authenticatedUser.getUserId()));
-        tokenClaims.put("scope", String.join(" ", scopes));
+        tokenClaims.put("scope", ScopeSet.join(scopes));
 
         try {
             return tokenService.createAccessToken(tokenClaims, TOKEN_EXPIRY_TIME_SECONDS);
@@ -464,7 +488,7 @@ public class AuthorizationService {
         oAuth2TokenResponse.setIdToken(idToken);
         oAuth2TokenResponse.setExpiryTime(TOKEN_EXPIRY_TIME_SECONDS);
         oAuth2TokenResponse.setTokenType("bearer");
-        oAuth2TokenResponse.setScope(StringUtils.isEmpty(accessToken) || scopes.isEmpty() ? null : String.join(" ", scopes));
+        oAuth2TokenResponse.setScope(StringUtils.isEmpty(accessToken) || scopes.isEmpty() ? null : ScopeSet.join(scopes));
         return oAuth2TokenResponse;
     }
 }
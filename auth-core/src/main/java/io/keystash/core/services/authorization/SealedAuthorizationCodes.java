@@ -0,0 +1,175 @@
+package io.keystash.core.services.authorization;
+
+import io.keystash.common.models.oauth.OAuth2AuthCode;
+import io.keystash.common.util.CryptoUtils;
+import io.keystash.core.services.cache.Cache;
+import io.keystash.core.services.cache.CacheBuilder;
+import io.keystash.core.services.cache.MemcachedClient;
+import io.keystash.core.services.cache.StringCacheCodec;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Issues and redeems self-contained authorization codes
+ * <p>
+ *     A sealed code is the client, user, scopes, redirect URI, nonce and expiry of the grant encrypted with AES-GCM,
+ *     so any node holding the sealing key can redeem it without looking anything up. Tokens issued alongside the code
+ *     in a hybrid flow are not sealed into it, they are created afresh when the code is redeemed.
+ * </p>
+ * <p>
+ *     Each code carries a random id. Redeemed ids are remembered until the code would have expired, which keeps codes
+ *     single use. When a memcached client is given the redeemed ids are kept on memcached, so a code redeemed on one
+ *     node is rejected by every other. Otherwise they are held by this node, and a code can be replayed against a
+ *     different node.
+ * </p>
+ */
+@Slf4j
+class SealedAuthorizationCodes {
+
+    private static final byte FORMAT_VERSION = 1;
+    private static final String CIPHER = "AES/GCM/NoPadding";
+    private static final int KEY_LENGTH = 32;
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH_BITS = 128;
+    private static final int ID_LENGTH = 16;
+    private static final String REDEEMED = "1";
+
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final AuthorizationCodeCodec codec = new AuthorizationCodeCodec();
+
+    private final SecretKey sealingKey;
+    private final long expiryTimeMillis;
+    private final Cache<String, String> redeemedIds;
+
+    /**
+     * Create the sealed codes
+     * @param sealingKey the base64 encoded sealing key, must be set
+     * @param expiryTimeDuration how long codes are valid for
+     * @param expiryTimeUnit the unit of the expiry time
+     * @param memcachedClient the client redeemed ids are shared through, or null to keep them on this node
+     * @throws IllegalArgumentException if the sealing key is missing or not a 256 bit key
+     */
+    SealedAuthorizationCodes(String sealingKey, long expiryTimeDuration, TimeUnit expiryTimeUnit,
+                             MemcachedClient memcachedClient) {
+        this.sealingKey = new SecretKeySpec(getKeyBytes(sealingKey), "AES");
+        this.expiryTimeMillis = expiryTimeUnit.toMillis(expiryTimeDuration);
+
+        CacheBuilder<String, String> builder = CacheBuilder.<String, String>createBuilder()
+                .withExpiryTime(expiryTimeDuration, expiryTimeUnit);
+        if (memcachedClient != null) {
+            builder.withRemoteStorage(memcachedClient, "authcode-redeemed", new StringCacheCodec());
+        } else {
+            builder.withTimingWheelExpiry();
+        }
+        this.redeemedIds = builder.build();
+    }
+
+    /**
+     * Seals an authorization code
+     * <p>The code value and any tokens on the given code are ignored</p>
+     * @param authCode the grant to seal
+     * @return the sealed code value
+     */
+    String seal(OAuth2AuthCode authCode) {
+        OAuth2AuthCode grant = new OAuth2AuthCode(null, authCode.getClientId(), authCode.getResolvedScopes(),
+                authCode.getRedirectUri(), authCode.getAuthenticatedUser());
+        grant.setNonce(authCode.getNonce());
+
+        byte[] id = new byte[ID_LENGTH];
+        byte[] iv = new byte[IV_LENGTH];
+        secureRandom.nextBytes(id);
+        secureRandom.nextBytes(iv);
+
+        byte[] record = codec.encode(grant);
+        ByteBuffer plaintext = ByteBuffer.allocate(ID_LENGTH + Long.BYTES + record.length);
+        plaintext.put(id);
+        plaintext.putLong(System.currentTimeMillis() + expiryTimeMillis);
+        plaintext.put(record);
+
+        try {
+            Cipher cipher = CryptoUtils.getCipher(CIPHER);
+            cipher.init(Cipher.ENCRYPT_MODE, sealingKey, new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+            cipher.updateAAD(new byte[] { FORMAT_VERSION });
+            byte[] ciphertext = cipher.doFinal(plaintext.array());
+
+            ByteBuffer sealed = ByteBuffer.allocate(1 + IV_LENGTH + ciphertext.length);
+            sealed.put(FORMAT_VERSION);
+            sealed.put(iv);
+            sealed.put(ciphertext);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(sealed.array());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to seal authorization code", e);
+        }
+    }
+
+    /**
+     * Opens a sealed code and marks it as used
+     * @param code the sealed code value
+     * @return the grant held by the code, or null if the code is not valid, has expired or was already redeemed
+     */
+    OAuth2AuthCode redeem(String code) {
+        if (code == null) {
+            return null;
+        }
+
+        ByteBuffer plaintext;
+        try {
+            ByteBuffer sealed = ByteBuffer.wrap(Base64.getUrlDecoder().decode(code));
+            if (sealed.remaining() <= 1 + IV_LENGTH || sealed.get() != FORMAT_VERSION) {
+                return null;
+            }
+
+            byte[] iv = new byte[IV_LENGTH];
+            sealed.get(iv);
+
+            Cipher cipher = CryptoUtils.getCipher(CIPHER);
+            cipher.init(Cipher.DECRYPT_MODE, sealingKey, new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+            cipher.updateAAD(new byte[] { FORMAT_VERSION });
+            plaintext = ByteBuffer.wrap(cipher.doFinal(sealed.array(), sealed.position(), sealed.remaining()));
+        } catch (IllegalArgumentException | GeneralSecurityException e) {
+            log.debug("Rejected sealed authorization code that could not be opened", e);
+            return null;
+        }
+
+        byte[] id = new byte[ID_LENGTH];
+        plaintext.get(id);
+        long expiresAt = plaintext.getLong();
+        if (System.currentTimeMillis() >= expiresAt) {
+            return null;
+        }
+
+        // Only the first redemption of a code gets to claim its id
+        if (redeemedIds.putIfAbsent(Base64.getEncoder().encodeToString(id), REDEEMED) != null) {
+            return null;
+        }
+
+        OAuth2AuthCode authCode = codec.decode(plaintext.slice());
+        authCode.setCode(code);
+        return authCode;
+    }
+
+    private static byte[] getKeyBytes(String sealingKey) {
+        // A key made up on the spot would only be known to this node, so codes would fail on every other node and
+        // after a restart
+        if (sealingKey == null || sealingKey.trim().isEmpty()) {
+            throw new IllegalArgumentException("Authorization codes are sealed, but no sealing key is configured");
+        }
+
+        byte[] key = Base64.getDecoder().decode(sealingKey.trim());
+        if (key.length != KEY_LENGTH) {
+            throw new IllegalArgumentException(String.format("The authorization code sealing key must be %d bytes, " +
+                    "but was %d bytes", KEY_LENGTH, key.length));
+        }
+
+        return key;
+    }
+}
@@ -1,11 +1,15 @@
 package io.keystash.core.services.cache;
 
-import java.util.List;
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Function;
 
 /**
  * A service that saves values of a given type to a cache, indexed by a given key
+ * <p>Caches kept on this node can also list and clear all of their values, see {@link LocalCache}</p>
  */
-public interface Cache<K, V> {
+public interface Cache<K, V> extends Closeable {
 
     /**
      * Sets a new value into cache indexed by a given key
@@ -28,6 +32,32 @@ public interface Cache<K, V> {
      */
     boolean has(K key);
 
+    /**
+     * Sets a new value into cache only if there is no value for the given key yet
+     * <p>The check and the set happen as one atomic operation</p>
+     * @param key the lookup key to save the new entry under
+     * @param value the value being saved to cache
+     * @return the value that was already cached, or null if the new value was saved
+     */
+    V putIfAbsent(K key, V value);
+
+    /**
+     * Gets a value from the cache, computing and saving it first if there is no value for the given key
+     * <p>The mapping function is called at most once per absent key, concurrent callers for the same key wait for
+     * its result. If the function returns null nothing is saved.</p>
+     * @param key the key to lookup the value by
+     * @param mappingFunction the function computing a value for an absent key
+     * @return the cached or newly computed value, or null if the function returned null
+     */
+    V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction);
+
+    /**
+     * Gets the values for all given keys that are present in the cache
+     * @param keys the keys to lookup values by
+     * @return the found values indexed by their key, keys that were not found are left out
+     */
+    Map<K, V> getAll(Collection<? extends K> keys);
+
     /**
      * Removes a value from the cache and returns it
      * @param key the key to lookup the value by
@@ -36,8 +66,17 @@ public interface Cache<K, V> {
     V evict(K key);
 
     /**
-     * Returns a list of all values in the cache
-     * @return a list of values of generic type
+     * Removes a value from the cache and returns it, as one atomic operation
+     * <p>When called concurrently for the same key, only one caller will get the value back</p>
+     * @param key the key to lookup the value by
+     * @return the value that has been removed, or null if not found
+     */
+    V remove(K key);
+
+    /**
+     * Releases anything the cache holds beyond its entries, such as files and threads
+     * <p>The cache must not be used once it is closed. Caches that hold nothing beyond their entries do nothing.</p>
      */
-    List<V> values();
+    @Override
+    default void close() {}
 }
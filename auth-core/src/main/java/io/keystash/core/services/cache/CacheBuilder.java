@@ -1,11 +1,61 @@
 package io.keystash.core.services.cache;
 
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.nio.file.Path;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Builds caches
+ * <p>
+ *     A cache can be bounded by the number of entries or by their total weight, but not both. Once a bound is
+ *     reached, entries that are used least frequently are evicted first, so a burst of entries that are written once
+ *     and never read again does not push out entries that are in regular use.
+ * </p>
+ * <p>
+ *     Caches are kept on the heap unless off heap storage is requested, in which case values are encoded and kept
+ *     outside the heap, bounded by capacity in bytes. Off heap caches evict their oldest entries first.
+ * </p>
+ * <p>
+ *     Caches with timing wheel expiry have their expired entries removed by a background thread rather than by the
+ *     threads using the cache. They suit many short lived entries with a fixed lifetime, and can not be bounded.
+ * </p>
+ * <p>
+ *     Caches with remote storage are kept on memcached servers and shared by every node using them, optionally with
+ *     a small near cache on the heap. Memcached bounds and evicts entries itself. Every other cache is kept on this
+ *     node and can be built as a {@link LocalCache}, which can list and clear its values.
+ * </p>
+ * <p>
+ *     Any cache kept on this node can be given a journal, a memory-mapped log of its writes that is replayed on
+ *     startup, so that its entries survive a restart.
+ * </p>
+ */
+@Getter(AccessLevel.PACKAGE)
 public final class CacheBuilder<K, V> {
 
+    static final TimeUnit DEFAULT_EXPIRY_TIME_UNIT = TimeUnit.HOURS;
+    static final long DEFAULT_EXPIRY_TIME_DURATION = 1;
+    static final long DEFAULT_JOURNAL_CAPACITY_BYTES = 16L * 1024 * 1024;
+
     private Long expiryTimeDuration;
     private TimeUnit expiryTimeUnit;
+    private Long maximumSize;
+    private Long maximumWeight;
+    private CacheWeigher<? super K, ? super V> weigher;
+    private CacheRemovalListener<? super K, ? super V> removalListener;
+    private CacheCodec<? super V> offHeapCodec;
+    private Long offHeapCapacityBytes;
+    private boolean timingWheelExpiry;
+    private MemcachedClient remoteClient;
+    private String remoteNamespace;
+    private CacheCodec<? super V> remoteCodec;
+    private Path journalPath;
+    private CacheCodec<? super K> journalKeyCodec;
+    private CacheCodec<? super V> journalValueCodec;
+    private Long nearCacheMaximumSize;
+    private Long nearCacheExpiryTimeDuration;
+    private TimeUnit nearCacheExpiryTimeUnit;
 
     private CacheBuilder() {}
 
@@ -20,13 +70,145 @@ public final class CacheBuilder<K, V> {
         return this;
     }
 
+    public CacheBuilder<K, V> withMaximumSize(long maximumSize) {
+        if (maximumWeight != null) {
+            throw new IllegalStateException("A cache can not be bounded by both size and weight");
+        }
+
+        this.maximumSize = maximumSize;
+
+        return this;
+    }
+
+    public CacheBuilder<K, V> withMaximumWeight(long maximumWeight, CacheWeigher<? super K, ? super V> weigher) {
+        if (maximumSize != null) {
+            throw new IllegalStateException("A cache can not be bounded by both size and weight");
+        }
+
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+
+        return this;
+    }
+
+    public CacheBuilder<K, V> withRemovalListener(CacheRemovalListener<? super K, ? super V> removalListener) {
+        this.removalListener = removalListener;
+
+        return this;
+    }
+
+    public CacheBuilder<K, V> withOffHeapStorage(CacheCodec<? super V> codec, long capacityBytes) {
+        this.offHeapCodec = codec;
+        this.offHeapCapacityBytes = capacityBytes;
+
+        return this;
+    }
+
+    public CacheBuilder<K, V> withTimingWheelExpiry() {
+        this.timingWheelExpiry = true;
+
+        return this;
+    }
+
+    public CacheBuilder<K, V> withRemoteStorage(MemcachedClient client, String namespace, CacheCodec<? super V> codec) {
+        this.remoteClient = client;
+        this.remoteNamespace = namespace;
+        this.remoteCodec = codec;
+
+        return this;
+    }
+
+    public CacheBuilder<K, V> withNearCache(long maximumSize, long expiryTimeDuration, TimeUnit expiryTimeUnit) {
+        this.nearCacheMaximumSize = maximumSize;
+        this.nearCacheExpiryTimeDuration = expiryTimeDuration;
+        this.nearCacheExpiryTimeUnit = expiryTimeUnit;
+
+        return this;
+    }
+
+    public CacheBuilder<K, V> withJournal(Path path, CacheCodec<? super K> keyCodec, CacheCodec<? super V> valueCodec) {
+        this.journalPath = path;
+        this.journalKeyCodec = keyCodec;
+        this.journalValueCodec = valueCodec;
+
+        return this;
+    }
+
+    @SuppressWarnings("unchecked")
     public <K1 extends K, V1 extends V> Cache<K1, V1> build() {
-        // TODO if memcache is available, we will use that, otherwise in memory
-        if (expiryTimeDuration != null && expiryTimeUnit != null) {
-            return new InMemoryCache<>(expiryTimeDuration, expiryTimeUnit);
-        } else {
-            return new InMemoryCache<>();
+        if (remoteClient == null) {
+            return buildLocal();
         }
+
+        if (journalPath != null) {
+            throw new IllegalStateException("Remote caches are kept by the server, they can not be journaled");
+        }
+
+        if (offHeapCodec != null || timingWheelExpiry || maximumSize != null || maximumWeight != null
+                || removalListener != null) {
+            throw new IllegalStateException("Remote caches are bounded by the server and can not report removals, " +
+                    "they only support expiry and a near cache");
+        }
+
+        Cache<K1, V1> nearCache = null;
+        if (nearCacheMaximumSize != null) {
+            nearCache = CacheBuilder.<K1, V1>createBuilder()
+                    .withExpiryTime(nearCacheExpiryTimeDuration, nearCacheExpiryTimeUnit)
+                    .withMaximumSize(nearCacheMaximumSize)
+                    .build();
+        }
+
+        return new MemcachedCache<>(remoteClient, remoteNamespace, (CacheCodec<V1>) remoteCodec,
+                expiryTimeDuration != null ? expiryTimeDuration : DEFAULT_EXPIRY_TIME_DURATION,
+                expiryTimeUnit != null ? expiryTimeUnit : DEFAULT_EXPIRY_TIME_UNIT, nearCache);
+    }
+
+    /**
+     * Builds a cache kept on this node, which unlike a remote cache can list and clear its values
+     * @throws IllegalStateException if remote storage was requested
+     */
+    @SuppressWarnings("unchecked")
+    public <K1 extends K, V1 extends V> LocalCache<K1, V1> buildLocal() {
+        if (remoteClient != null) {
+            throw new IllegalStateException("Remote caches are kept by the server, they are not local caches");
+        }
+
+        if (journalPath == null) {
+            return buildStorage(removalListener);
+        }
+
+        // The journaled cache builds its storage itself, so that it hears of entries the storage removes
+        return new JournaledCache<K1, V1>(this::buildStorage, removalListener, journalPath,
+                DEFAULT_JOURNAL_CAPACITY_BYTES, (CacheCodec<K1>) journalKeyCodec, (CacheCodec<V1>) journalValueCodec,
+                expiryTimeDuration != null ? expiryTimeDuration : DEFAULT_EXPIRY_TIME_DURATION,
+                expiryTimeUnit != null ? expiryTimeUnit : DEFAULT_EXPIRY_TIME_UNIT);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <K1 extends K, V1 extends V> LocalCache<K1, V1> buildStorage(
+            CacheRemovalListener<? super K1, ? super V1> removalListener) {
+        if (timingWheelExpiry) {
+            if (offHeapCodec != null || maximumSize != null || maximumWeight != null) {
+                throw new IllegalStateException("Timing wheel caches are kept on the heap and only bounded by expiry");
+            }
+
+            return new TimingWheelCache<>(
+                    expiryTimeDuration != null ? expiryTimeDuration : DEFAULT_EXPIRY_TIME_DURATION,
+                    expiryTimeUnit != null ? expiryTimeUnit : DEFAULT_EXPIRY_TIME_UNIT, removalListener);
+        }
+
+        if (offHeapCodec != null) {
+            if (maximumWeight != null) {
+                throw new IllegalStateException("Off heap caches are bounded by capacity, they can not be bounded by weight");
+            }
+
+            return new OffHeapCache<>((CacheCodec<V1>) offHeapCodec,
+                    expiryTimeDuration != null ? expiryTimeDuration : DEFAULT_EXPIRY_TIME_DURATION,
+                    expiryTimeUnit != null ? expiryTimeUnit : DEFAULT_EXPIRY_TIME_UNIT,
+                    offHeapCapacityBytes, maximumSize, removalListener);
+        }
+
+        return new InMemoryCache<>((CacheBuilder<K1, V1>) this, removalListener);
     }
 
 }
@@ -0,0 +1,23 @@
+package io.keystash.core.services.cache;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts cached values to and from bytes, for caches that do not keep values as objects
+ */
+public interface CacheCodec<V> {
+
+    /**
+     * Encodes a value into a compact record
+     * @param value the value to encode, never null
+     * @return the encoded record
+     */
+    byte[] encode(V value);
+
+    /**
+     * Decodes a value from a record previously produced by {@link #encode(Object)}
+     * @param record a buffer holding exactly the record, positioned at its start
+     * @return the decoded value
+     */
+    V decode(ByteBuffer record);
+}
@@ -0,0 +1,294 @@
+package io.keystash.core.services.cache;
+
+import io.keystash.core.exceptions.CacheException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of cache writes, kept in a memory-mapped file
+ * <p>
+ *     Each record is its length, a CRC32 of its body, and a body holding the record type, the expiry time, the key
+ *     and the value. A fresh file is zero filled, so replay stops at the first zero length. It also stops at the first
+ *     record whose checksum does not match, which is where a write was cut short.
+ * </p>
+ * <p>
+ *     Appends are copies into the mapped file, which the operating system keeps even if the process dies. A
+ *     background thread forces the file to disk at a fixed interval, so one sync covers every append made since the
+ *     last one.
+ * </p>
+ */
+@Slf4j
+final class CacheJournal implements Closeable {
+
+    static final byte PUT = 1;
+    static final byte REMOVE = 2;
+    static final byte CLEAR = 3;
+
+    private static final int HEADER_LENGTH = Integer.BYTES + Integer.BYTES;
+    private static final int BODY_PREFIX_LENGTH = 1 + Long.BYTES + Integer.BYTES;
+    private static final long SYNC_INTERVAL_MILLIS = 100;
+
+    private final Path path;
+    private final Thread syncThread;
+
+    // Guarded by this
+    private long capacityBytes;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private boolean dirty;
+    private boolean closed;
+
+    CacheJournal(Path path, long capacityBytes) {
+        this.path = path;
+        this.capacityBytes = capacityBytes;
+
+        try {
+            Path directory = path.toAbsolutePath().getParent();
+            if (directory != null) {
+                Files.createDirectories(directory);
+            }
+            map(path);
+        } catch (IOException e) {
+            throw new CacheException(String.format("Unable to open cache journal [%s]", path), e);
+        }
+
+        this.syncThread = new Thread(this::syncPeriodically, "cache-journal-sync");
+        this.syncThread.setDaemon(true);
+        this.syncThread.start();
+    }
+
+    /**
+     * Reads every intact record from the start of the journal, leaving the write position after the last one
+     * @param visitor called for each record, with buffers positioned on the key and value
+     */
+    synchronized void replay(RecordVisitor visitor) {
+        ByteBuffer reader = buffer.duplicate();
+        reader.position(0);
+
+        CRC32 crc = new CRC32();
+        while (reader.remaining() >= HEADER_LENGTH) {
+            int start = reader.position();
+            int length = reader.getInt();
+            int checksum = reader.getInt();
+            if (length < BODY_PREFIX_LENGTH || length > reader.remaining()) {
+                reader.position(start);
+                break;
+            }
+
+            ByteBuffer body = reader.slice();
+            body.limit(length);
+            crc.reset();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                log.warn("Cache journal [{}] has a damaged record at offset {}, ignoring the rest", path, start);
+                reader.position(start);
+                break;
+            }
+
+            byte type = body.get();
+            long expiresAt = body.getLong();
+            int keyLength = body.getInt();
+            ByteBuffer key = body.slice();
+            key.limit(keyLength);
+            body.position(body.position() + keyLength);
+            visitor.visit(type, expiresAt, key, body.slice());
+
+            reader.position(start + HEADER_LENGTH + length);
+        }
+
+        buffer.position(reader.position());
+    }
+
+    /**
+     * Appends a record, compacting the journal first if it is full
+     * @param type the record type
+     * @param expiresAt when the entry expires, in epoch milliseconds
+     * @param key the encoded key
+     * @param value the encoded value, empty for removals
+     * @param compactor rewrites the live entries into a fresh journal when this one is full
+     * @throws CacheException if the journal has been closed
+     */
+    synchronized void append(byte type, long expiresAt, byte[] key, byte[] value, Runnable compactor) {
+        if (closed) {
+            throw new CacheException(String.format("Cache journal [%s] is closed", path));
+        }
+
+        int length = BODY_PREFIX_LENGTH + key.length + value.length;
+        if (buffer.remaining() < HEADER_LENGTH + length) {
+            compactor.run();
+
+            while (buffer.remaining() < HEADER_LENGTH + length) {
+                grow();
+            }
+        }
+
+        write(buffer, type, expiresAt, key, value);
+        dirty = true;
+    }
+
+    /**
+     * Replaces the journal with one holding only the given records
+     * <p>The new journal is written to a temporary file and moved over the old one, so a crash part way through
+     * leaves the old journal in place</p>
+     * @param records the live entries
+     */
+    synchronized void rewrite(Iterable<Record> records) {
+        Path temporary = path.resolveSibling(path.getFileName() + ".compact");
+        try {
+            long required = HEADER_LENGTH;
+            for (Record record : records) {
+                required += HEADER_LENGTH + BODY_PREFIX_LENGTH + record.key.length + record.value.length;
+            }
+            while (capacityBytes < required * 2) {
+                capacityBytes *= 2;
+            }
+
+            Files.deleteIfExists(temporary);
+            try (FileChannel compacted = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer target = compacted.map(FileChannel.MapMode.READ_WRITE, 0, capacityBytes);
+                for (Record record : records) {
+                    write(target, PUT, record.expiresAt, record.key, record.value);
+                }
+                target.force();
+            }
+
+            channel.close();
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            map(path);
+            replay((type, expiresAt, key, value) -> { });
+            dirty = false;
+        } catch (IOException e) {
+            throw new CacheException(String.format("Unable to compact cache journal [%s]", path), e);
+        }
+    }
+
+    /**
+     * Forces every append so far to disk
+     */
+    synchronized void sync() {
+        if (dirty && !closed) {
+            buffer.force();
+            dirty = false;
+        }
+    }
+
+    /**
+     * Stops the sync thread, forces every append so far to disk and closes the file, does nothing if already closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+
+        syncThread.interrupt();
+        sync();
+        closed = true;
+        channel.close();
+    }
+
+    private void map(Path file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "rw");
+        if (randomAccessFile.length() > capacityBytes) {
+            capacityBytes = randomAccessFile.length();
+        }
+
+        channel = randomAccessFile.getChannel();
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacityBytes);
+    }
+
+    private void grow() {
+        int position = buffer.position();
+        try {
+            buffer.force();
+            capacityBytes *= 2;
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacityBytes);
+            buffer.position(position);
+        } catch (IOException e) {
+            throw new CacheException(String.format("Unable to grow cache journal [%s]", path), e);
+        }
+    }
+
+    private void syncPeriodically() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(SYNC_INTERVAL_MILLIS);
+                sync();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.error("Failed to sync cache journal [{}]", path, e);
+            }
+        }
+    }
+
+    private static void write(ByteBuffer target, byte type, long expiresAt, byte[] key, byte[] value) {
+        ByteBuffer body = ByteBuffer.allocate(BODY_PREFIX_LENGTH + key.length + value.length);
+        body.put(type);
+        body.putLong(expiresAt);
+        body.putInt(key.length);
+        body.put(key);
+        body.put(value);
+
+        CRC32 crc = new CRC32();
+        crc.update(body.array());
+
+        // The length goes in last, so a record is never visible before its body is complete
+        int start = target.position();
+        target.position(start + Integer.BYTES);
+        target.putInt((int) crc.getValue());
+        target.put(body.array());
+        int end = target.position();
+        target.putInt(start, body.capacity());
+        target.position(end);
+    }
+
+    /**
+     * Receives the records of a journal during replay
+     */
+    interface RecordVisitor {
+
+        void visit(byte type, long expiresAt, ByteBuffer key, ByteBuffer value);
+    }
+
+    /**
+     * A live entry written out during compaction
+     */
+    static final class Record {
+
+        private final long expiresAt;
+        private final byte[] key;
+        private final byte[] value;
+
+        Record(long expiresAt, byte[] key, byte[] value) {
+            this.expiresAt = expiresAt;
+            this.key = key;
+            this.value = value;
+        }
+
+        long getExpiresAt() {
+            return expiresAt;
+        }
+
+        byte[] getKey() {
+            return key;
+        }
+
+        byte[] getValue() {
+            return value;
+        }
+    }
+}
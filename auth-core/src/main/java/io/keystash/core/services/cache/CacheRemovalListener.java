@@ -0,0 +1,16 @@
+package io.keystash.core.services.cache;
+
+/**
+ * Notified whenever an entry leaves a cache, whether it was evicted explicitly or expired
+ * <p>Entries that are overwritten by a new value for the same key do not cause a notification</p>
+ */
+@FunctionalInterface
+public interface CacheRemovalListener<K, V> {
+
+    /**
+     * Called after an entry has been removed from the cache
+     * @param key the key of the removed entry
+     * @param value the value of the removed entry
+     */
+    void onRemoval(K key, V value);
+}
@@ -0,0 +1,17 @@
+package io.keystash.core.services.cache;
+
+/**
+ * Calculates the weight of a cache entry, used to bound a cache by total weight rather than by number of entries
+ */
+@FunctionalInterface
+public interface CacheWeigher<K, V> {
+
+    /**
+     * Gets the weight of an entry
+     * <p>The weight is calculated once when the entry is saved, it must not be negative</p>
+     * @param key the key of the entry
+     * @param value the value of the entry
+     * @return the weight of the entry
+     */
+    int weigh(K key, V value);
+}
@@ -1,42 +1,79 @@
 package io.keystash.core.services.cache;
-import com.google.common.cache.CacheBuilder;
-import lombok.AllArgsConstructor;
-import lombok.EqualsAndHashCode;
-import lombok.Getter;
-import lombok.Setter;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
-
-public class InMemoryCache<K, V> implements Cache<K, V> {
+import java.util.function.Function;
 
-    private static final TimeUnit DEFAULT_EXPIRY_TIME_UNIT = TimeUnit.HOURS;
-    private static final long DEFAULT_EXPIRY_TIME_DURATION = 1;
+/**
+ * A cache held on the heap, backed by Caffeine
+ * <p>Keys and values are stored as they are, so neither can be null. Setting a null value evicts the key instead.</p>
+ */
+public class InMemoryCache<K, V> implements LocalCache<K, V> {
 
-    private final com.google.common.cache.Cache<CacheKey, CacheValue> cache;
+    private final com.github.benmanes.caffeine.cache.Cache<K, V> cache;
 
     protected InMemoryCache() {
-        this(DEFAULT_EXPIRY_TIME_DURATION, DEFAULT_EXPIRY_TIME_UNIT);
+        this(CacheBuilder.DEFAULT_EXPIRY_TIME_DURATION, CacheBuilder.DEFAULT_EXPIRY_TIME_UNIT);
     }
 
     protected InMemoryCache(long expiryTimeDuration, TimeUnit expiryTimeUnit) {
-        this.cache = CacheBuilder.newBuilder()
-            .expireAfterWrite(expiryTimeDuration, expiryTimeUnit)
-            .build();
+        this(CacheBuilder.<K, V>createBuilder().withExpiryTime(expiryTimeDuration, expiryTimeUnit));
+    }
+
+    InMemoryCache(CacheBuilder<K, V> cacheBuilder) {
+        this(cacheBuilder, cacheBuilder.getRemovalListener());
+    }
+
+    InMemoryCache(CacheBuilder<K, V> cacheBuilder, CacheRemovalListener<? super K, ? super V> removalListener) {
+        Caffeine<Object, Object> caffeine = Caffeine.newBuilder();
+
+        if (cacheBuilder.getExpiryTimeDuration() != null && cacheBuilder.getExpiryTimeUnit() != null) {
+            caffeine.expireAfterWrite(cacheBuilder.getExpiryTimeDuration(), cacheBuilder.getExpiryTimeUnit());
+        } else {
+            caffeine.expireAfterWrite(CacheBuilder.DEFAULT_EXPIRY_TIME_DURATION, CacheBuilder.DEFAULT_EXPIRY_TIME_UNIT);
+        }
+
+        if (cacheBuilder.getMaximumSize() != null) {
+            caffeine.maximumSize(cacheBuilder.getMaximumSize());
+        }
+
+        if (cacheBuilder.getMaximumWeight() != null) {
+            CacheWeigher<? super K, ? super V> weigher = cacheBuilder.getWeigher();
+            caffeine.maximumWeight(cacheBuilder.getMaximumWeight());
+            caffeine.<K, V>weigher(weigher::weigh);
+        }
+
+        if (removalListener != null) {
+            // Notify on the thread that removed the entry, so listeners see removals in the order they happen
+            caffeine.executor(Runnable::run);
+            caffeine.<K, V>removalListener((key, value, cause) -> {
+                if (cause != RemovalCause.REPLACED && key != null && value != null) {
+                    removalListener.onRemoval(key, value);
+                }
+            });
+        }
+
+        this.cache = caffeine.build();
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public void set(K key, V value) {
-        cache.put(new CacheKey(key), new CacheValue(value));
+        if (value == null) {
+            evict(key);
+        } else {
+            cache.put(key, value);
+        }
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public V get(K key) {
-        CacheValue cacheValue = cache.getIfPresent(new CacheKey(key));
-        return cacheValue != null ? (V) cacheValue.getValue() : null;
+        return key != null ? cache.getIfPresent(key) : null;
     }
 
     @Override
@@ -45,31 +82,37 @@ public class InMemoryCache<K, V> implements Cache<K, V> {
     }
 
     @Override
-    @SuppressWarnings("unchecked")
+    public V putIfAbsent(K key, V value) {
+        return cache.asMap().putIfAbsent(key, value);
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        return cache.get(key, mappingFunction);
+    }
+
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        return cache.getAllPresent(keys);
+    }
+
+    @Override
     public V evict(K key) {
-        CacheKey cacheKey = new CacheKey(key);
-        CacheValue cacheValue = cache.getIfPresent(cacheKey);
-        cache.invalidate(cacheKey);
-        return cacheValue != null ? (V) cacheValue.getValue() : null;
+        return remove(key);
     }
 
     @Override
-    @SuppressWarnings("unchecked")
-    public List<V> values() {
-        return (List<V>) cache.asMap().values().stream()
-                .map(CacheValue::getValue)
-                .collect(Collectors.toList());
+    public V remove(K key) {
+        return key != null ? cache.asMap().remove(key) : null;
     }
 
-    @AllArgsConstructor
-    @EqualsAndHashCode
-    private final class CacheKey {
-        @Getter @Setter private Object value;
+    @Override
+    public void invalidateAll() {
+        cache.invalidateAll();
     }
 
-    @AllArgsConstructor
-    @EqualsAndHashCode
-    private final class CacheValue {
-        @Getter @Setter private Object value;
+    @Override
+    public List<V> values() {
+        return new ArrayList<>(cache.asMap().values());
     }
 }
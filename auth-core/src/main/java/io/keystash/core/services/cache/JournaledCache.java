@@ -0,0 +1,264 @@
+package io.keystash.core.services.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * A cache that records its writes in a {@link CacheJournal}, so that its entries survive a restart
+ * <p>
+ *     Writes go to the wrapped cache and are then appended to the journal. On startup the journal is replayed, the
+ *     entries that have not expired yet are put back into the wrapped cache, and the journal is compacted down to
+ *     those entries. Restored entries keep the expiry time they were first written with.
+ * </p>
+ * <p>
+ *     The journal is compacted again whenever it fills up, which also forgets entries that have expired. Concurrent
+ *     writes to the same key may reach the journal in a different order than the wrapped cache, so this suits caches
+ *     whose keys are written once and removed once.
+ * </p>
+ * <p>The journal holds a file and a thread, so the cache must be closed once it is no longer used.</p>
+ */
+@Slf4j
+public class JournaledCache<K, V> implements LocalCache<K, V> {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final LocalCache<K, V> delegate;
+    private final CacheJournal journal;
+    private final CacheCodec<K> keyCodec;
+    private final CacheCodec<V> valueCodec;
+    private final long expiryTimeMillis;
+
+    // When each journaled entry expires, so restored entries are not served for longer than they were meant to live
+    private final ConcurrentMap<K, Long> deadlines = new ConcurrentHashMap<>();
+
+    /**
+     * Create a journaled cache
+     * @param storage builds the wrapped cache, given the listener it must notify of removals
+     * @param removalListener notified of entries removed from the wrapped cache, may be null
+     */
+    JournaledCache(Function<CacheRemovalListener<K, V>, LocalCache<K, V>> storage,
+                   CacheRemovalListener<? super K, ? super V> removalListener, Path journalPath, long capacityBytes,
+                   CacheCodec<K> keyCodec, CacheCodec<V> valueCodec, long expiryTimeDuration, TimeUnit expiryTimeUnit) {
+        this.delegate = storage.apply((key, value) -> {
+            forgetDeadline(key);
+            if (removalListener != null) {
+                removalListener.onRemoval(key, value);
+            }
+        });
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        this.expiryTimeMillis = expiryTimeUnit.toMillis(expiryTimeDuration);
+        this.journal = new CacheJournal(journalPath, capacityBytes);
+
+        restore();
+    }
+
+    @Override
+    public void set(K key, V value) {
+        if (value == null) {
+            evict(key);
+            return;
+        }
+
+        long expiresAt = System.currentTimeMillis() + expiryTimeMillis;
+        delegate.set(key, value);
+        deadlines.put(key, expiresAt);
+        journal.append(CacheJournal.PUT, expiresAt, keyCodec.encode(key), valueCodec.encode(value), this::compact);
+    }
+
+    @Override
+    public V get(K key) {
+        return isExpired(key) ? null : delegate.get(key);
+    }
+
+    @Override
+    public boolean has(K key) {
+        return !isExpired(key) && delegate.has(key);
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        isExpired(key);
+
+        V existing = delegate.putIfAbsent(key, value);
+        if (existing == null) {
+            journalPut(key, value);
+        }
+
+        return existing;
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        isExpired(key);
+
+        boolean[] computed = new boolean[1];
+        V value = delegate.computeIfAbsent(key, k -> {
+            computed[0] = true;
+            return mappingFunction.apply(k);
+        });
+
+        if (computed[0] && value != null) {
+            journalPut(key, value);
+        }
+
+        return value;
+    }
+
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        List<K> live = new ArrayList<>(keys.size());
+        for (K key : keys) {
+            if (!isExpired(key)) {
+                live.add(key);
+            }
+        }
+
+        return delegate.getAll(live);
+    }
+
+    @Override
+    public V evict(K key) {
+        return remove(key);
+    }
+
+    @Override
+    public V remove(K key) {
+        boolean expired = isExpired(key);
+        V value = delegate.remove(key);
+        if (deadlines.remove(key) != null || value != null) {
+            journal.append(CacheJournal.REMOVE, 0, keyCodec.encode(key), EMPTY, this::compact);
+        }
+
+        return expired ? null : value;
+    }
+
+    @Override
+    public void invalidateAll() {
+        delegate.invalidateAll();
+        deadlines.clear();
+        journal.append(CacheJournal.CLEAR, 0, EMPTY, EMPTY, this::compact);
+    }
+
+    @Override
+    public List<V> values() {
+        return delegate.values();
+    }
+
+    /**
+     * Forces the journal to disk and closes it, stopping its sync thread
+     */
+    @Override
+    public void close() {
+        try {
+            journal.close();
+        } catch (IOException e) {
+            log.warn("Unable to close cache journal", e);
+        }
+
+        delegate.close();
+    }
+
+    private void journalPut(K key, V value) {
+        long expiresAt = System.currentTimeMillis() + expiryTimeMillis;
+        deadlines.put(key, expiresAt);
+        journal.append(CacheJournal.PUT, expiresAt, keyCodec.encode(key), valueCodec.encode(value), this::compact);
+    }
+
+    /**
+     * Drops the deadline of an entry the wrapped cache has removed by itself, unless the key has been set again
+     */
+    private void forgetDeadline(K key) {
+        Long deadline = deadlines.get(key);
+        if (deadline != null && !delegate.has(key)) {
+            deadlines.remove(key, deadline);
+        }
+    }
+
+    /**
+     * Returns true if the key belongs to an entry past its journaled expiry time, removing the entry if so
+     */
+    private boolean isExpired(K key) {
+        Long deadline = key != null ? deadlines.get(key) : null;
+        if (deadline == null || System.currentTimeMillis() < deadline) {
+            return false;
+        }
+
+        if (deadlines.remove(key, deadline)) {
+            delegate.remove(key);
+        }
+
+        return true;
+    }
+
+    private void restore() {
+        Map<ByteBuffer, CacheJournal.Record> live = new LinkedHashMap<>();
+        journal.replay((type, expiresAt, key, value) -> {
+            switch (type) {
+                case CacheJournal.PUT:
+                    byte[] keyBytes = toBytes(key);
+                    live.put(ByteBuffer.wrap(keyBytes), new CacheJournal.Record(expiresAt, keyBytes, toBytes(value)));
+                    break;
+                case CacheJournal.REMOVE:
+                    live.remove(key);
+                    break;
+                case CacheJournal.CLEAR:
+                    live.clear();
+                    break;
+                default:
+                    log.warn("Ignoring cache journal record of unknown type [{}]", type);
+            }
+        });
+
+        long now = System.currentTimeMillis();
+        List<CacheJournal.Record> restored = new ArrayList<>();
+        for (CacheJournal.Record record : live.values()) {
+            if (record.getExpiresAt() > now) {
+                K key = keyCodec.decode(ByteBuffer.wrap(record.getKey()));
+                delegate.set(key, valueCodec.decode(ByteBuffer.wrap(record.getValue())));
+                deadlines.put(key, record.getExpiresAt());
+                restored.add(record);
+            }
+        }
+
+        journal.rewrite(restored);
+        log.info("Restored {} cache entries from the journal", restored.size());
+    }
+
+    /**
+     * Rewrites the journal with the entries that are still live, called by the journal when it is full
+     * <p>Deadlines of entries that have expired or are gone from the wrapped cache are dropped along the way</p>
+     */
+    private void compact() {
+        long now = System.currentTimeMillis();
+        List<CacheJournal.Record> records = new ArrayList<>();
+        for (Map.Entry<K, Long> deadline : deadlines.entrySet()) {
+            K key = deadline.getKey();
+            V value = deadline.getValue() > now ? delegate.get(key) : null;
+            if (value == null) {
+                if (deadlines.remove(key, deadline.getValue())) {
+                    delegate.remove(key);
+                }
+                continue;
+            }
+
+            records.add(new CacheJournal.Record(deadline.getValue(), keyCodec.encode(key), valueCodec.encode(value)));
+        }
+
+        journal.rewrite(records);
+    }
+
+    private static byte[] toBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+}
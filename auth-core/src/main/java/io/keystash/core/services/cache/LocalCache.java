@@ -0,0 +1,21 @@
+package io.keystash.core.services.cache;
+
+import java.util.List;
+
+/**
+ * A cache whose entries are all kept on this node, so that it can list and clear them
+ * <p>Remote caches are shared with other nodes and can not see all of their keys, so they are not local caches</p>
+ */
+public interface LocalCache<K, V> extends Cache<K, V> {
+
+    /**
+     * Removes all values from the cache
+     */
+    void invalidateAll();
+
+    /**
+     * Returns a list of all values in the cache
+     * @return a list of values of generic type
+     */
+    List<V> values();
+}
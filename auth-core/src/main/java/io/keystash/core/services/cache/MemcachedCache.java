@@ -0,0 +1,215 @@
+package io.keystash.core.services.cache;
+
+import io.keystash.common.util.CryptoUtils;
+import io.keystash.core.exceptions.CacheException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * A cache kept on memcached servers, so that its entries are shared by every node using the same servers
+ * <p>
+ *     Values are encoded with a {@link CacheCodec}. Keys are the namespace followed by the key's string form, and keys
+ *     memcached would not accept are replaced by a hash.
+ * </p>
+ * <p>
+ *     An optional near cache keeps recently used values on this node for a short time. Reads served by the near cache
+ *     may be stale by up to its expiry time, while writes and removals always go to the servers. Caches whose entries
+ *     must never be read stale, such as single use codes, should not have one.
+ * </p>
+ * <p>Memcached can not list its keys, so unlike caches kept on this node it can not list or clear its values.</p>
+ */
+public class MemcachedCache<K, V> implements Cache<K, V> {
+
+    private static final int MAX_KEY_LENGTH = 250;
+    private static final int PUT_IF_ABSENT_ATTEMPTS = 3;
+
+    private final MemcachedClient client;
+    private final String namespace;
+    private final CacheCodec<V> codec;
+    private final long expirySeconds;
+    private final Cache<K, V> nearCache;
+
+    MemcachedCache(MemcachedClient client, String namespace, CacheCodec<V> codec, long expiryTimeDuration,
+                   TimeUnit expiryTimeUnit, Cache<K, V> nearCache) {
+        this.client = client;
+        this.namespace = namespace;
+        this.codec = codec;
+        this.expirySeconds = Math.max(1, expiryTimeUnit.toSeconds(expiryTimeDuration));
+        this.nearCache = nearCache;
+    }
+
+    @Override
+    public void set(K key, V value) {
+        if (value == null) {
+            evict(key);
+            return;
+        }
+
+        client.set(toRemoteKey(key), codec.encode(value), expirySeconds);
+        if (nearCache != null) {
+            nearCache.set(key, value);
+        }
+    }
+
+    @Override
+    public V get(K key) {
+        if (key == null) {
+            return null;
+        }
+
+        if (nearCache != null) {
+            V value = nearCache.get(key);
+            if (value != null) {
+                return value;
+            }
+        }
+
+        V value = decode(client.get(toRemoteKey(key)));
+        if (value != null && nearCache != null) {
+            nearCache.set(key, value);
+        }
+
+        return value;
+    }
+
+    @Override
+    public boolean has(K key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        String remoteKey = toRemoteKey(key);
+        byte[] record = codec.encode(value);
+
+        // The existing value may expire or be removed between the failed add and the lookup, so try again
+        for (int attempt = 0; attempt < PUT_IF_ABSENT_ATTEMPTS; attempt++) {
+            if (client.add(remoteKey, record, expirySeconds)) {
+                if (nearCache != null) {
+                    nearCache.set(key, value);
+                }
+                return null;
+            }
+
+            V existing = decode(client.get(remoteKey));
+            if (existing != null) {
+                return existing;
+            }
+        }
+
+        throw new CacheException(String.format("Unable to put a value for key [%s], the key keeps changing", remoteKey));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>Nodes do not wait on each other, so the mapping function may run on several nodes at once. Only the first
+     * value to be stored is kept, and every caller gets that value back.</p>
+     */
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+
+        value = mappingFunction.apply(key);
+        if (value == null) {
+            return null;
+        }
+
+        V existing = putIfAbsent(key, value);
+        return existing != null ? existing : value;
+    }
+
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V> values = new LinkedHashMap<>();
+        Map<String, K> missing = new LinkedHashMap<>();
+        for (K key : keys) {
+            V value = nearCache != null ? nearCache.get(key) : null;
+            if (value != null) {
+                values.put(key, value);
+            } else {
+                missing.put(toRemoteKey(key), key);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            for (Map.Entry<String, byte[]> item : client.getAll(missing.keySet()).entrySet()) {
+                K key = missing.get(item.getKey());
+                V value = decode(item.getValue());
+                values.put(key, value);
+                if (nearCache != null) {
+                    nearCache.set(key, value);
+                }
+            }
+        }
+
+        return values;
+    }
+
+    @Override
+    public V evict(K key) {
+        return remove(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>The value is read and then deleted. Only the caller whose delete succeeds gets the value back, so of several
+     * concurrent callers at most one does, on this node or any other.</p>
+     */
+    @Override
+    public V remove(K key) {
+        if (key == null) {
+            return null;
+        }
+
+        if (nearCache != null) {
+            nearCache.remove(key);
+        }
+
+        String remoteKey = toRemoteKey(key);
+        V value = decode(client.get(remoteKey));
+        if (value == null) {
+            return null;
+        }
+
+        return client.delete(remoteKey) ? value : null;
+    }
+
+    private V decode(byte[] record) {
+        return record != null ? codec.decode(ByteBuffer.wrap(record)) : null;
+    }
+
+    private String toRemoteKey(K key) {
+        String remoteKey = namespace + ":" + key;
+        if (remoteKey.length() <= MAX_KEY_LENGTH && isPrintable(remoteKey)) {
+            return remoteKey;
+        }
+
+        try {
+            MessageDigest sha256 = CryptoUtils.getMessageDigest("SHA-256");
+            byte[] digest = sha256.digest(key.toString().getBytes(StandardCharsets.UTF_8));
+            return namespace + ":#" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean isPrintable(String key) {
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c <= ' ' || c >= 0x7f) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,498 @@
+package io.keystash.core.services.cache;
+
+import io.keystash.core.exceptions.CacheException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * A client for servers speaking the memcached text protocol
+ * <p>
+ *     Each server gets a single connection and a single thread. Requests are queued, and the thread writes everything
+ *     queued so far in one go before reading the responses back in order, so requests from many callers share a round
+ *     trip. Queued lookups are folded into one multi key get.
+ * </p>
+ * <p>
+ *     Keys are spread over the servers by rendezvous hashing, so adding or removing a server only moves the keys that
+ *     belonged to it.
+ * </p>
+ */
+@Slf4j
+public class MemcachedClient implements Closeable {
+
+    /**
+     * Relative expiry times above 30 days are read by memcached as absolute unix times
+     */
+    private static final long MAX_RELATIVE_EXPIRY_SECONDS = TimeUnit.DAYS.toSeconds(30);
+    private static final int MAX_KEYS_PER_GET = 100;
+
+    private final List<Connection> connections = new ArrayList<>();
+    private final long operationTimeoutMillis;
+
+    public MemcachedClient(List<InetSocketAddress> servers, long operationTimeoutMillis) {
+        if (servers.isEmpty()) {
+            throw new IllegalArgumentException("At least one memcached server is required");
+        }
+
+        this.operationTimeoutMillis = operationTimeoutMillis;
+        for (InetSocketAddress server : servers) {
+            connections.add(new Connection(server));
+        }
+    }
+
+    /**
+     * Parses a comma separated list of servers in host:port form
+     * @param servers the server list
+     * @return the server addresses, empty if the list is blank
+     */
+    public static List<InetSocketAddress> parseServers(String servers) {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        if (servers == null) {
+            return addresses;
+        }
+
+        for (String server : servers.split(",")) {
+            server = server.trim();
+            if (server.isEmpty()) {
+                continue;
+            }
+
+            int separator = server.lastIndexOf(':');
+            if (separator < 0) {
+                throw new IllegalArgumentException(String.format("Memcached server [%s] must be given as host:port", server));
+            }
+
+            addresses.add(InetSocketAddress.createUnresolved(server.substring(0, separator),
+                    Integer.parseInt(server.substring(separator + 1))));
+        }
+
+        return addresses;
+    }
+
+    /**
+     * Gets an item
+     * @param key the item key
+     * @return the item data, or null if there is no such item
+     */
+    public byte[] get(String key) {
+        GetOperation operation = new GetOperation();
+        CompletableFuture<byte[]> future = operation.addKey(key);
+        getConnection(key).submit(operation);
+        return await(future);
+    }
+
+    /**
+     * Gets several items, sending a single request to each server involved
+     * @param keys the item keys
+     * @return the found items indexed by key, keys that were not found are left out
+     */
+    public Map<String, byte[]> getAll(Collection<String> keys) {
+        Map<Connection, GetOperation> operations = new HashMap<>();
+        Map<String, CompletableFuture<byte[]>> futures = new LinkedHashMap<>();
+        for (String key : keys) {
+            if (!futures.containsKey(key)) {
+                GetOperation operation = operations.computeIfAbsent(getConnection(key), connection -> new GetOperation());
+                futures.put(key, operation.addKey(key));
+            }
+        }
+
+        operations.forEach(Connection::submit);
+
+        Map<String, byte[]> items = new LinkedHashMap<>();
+        for (Map.Entry<String, CompletableFuture<byte[]>> entry : futures.entrySet()) {
+            byte[] data = await(entry.getValue());
+            if (data != null) {
+                items.put(entry.getKey(), data);
+            }
+        }
+
+        return items;
+    }
+
+    /**
+     * Stores an item, replacing any existing item
+     * @param key the item key
+     * @param data the item data
+     * @param expirySeconds how long the item lives, 0 for no expiry
+     */
+    public void set(String key, byte[] data, long expirySeconds) {
+        store("set", key, data, expirySeconds);
+    }
+
+    /**
+     * Stores an item only if there is no item for the key yet
+     * @param key the item key
+     * @param data the item data
+     * @param expirySeconds how long the item lives, 0 for no expiry
+     * @return true if the item was stored, false if the key was taken
+     */
+    public boolean add(String key, byte[] data, long expirySeconds) {
+        return store("add", key, data, expirySeconds);
+    }
+
+    /**
+     * Deletes an item
+     * <p>When called concurrently for the same key, only one caller sees the item deleted</p>
+     * @param key the item key
+     * @return true if this call deleted the item, false if there was no such item
+     */
+    public boolean delete(String key) {
+        SimpleOperation operation = new SimpleOperation("delete " + key + "\r\n", null, "DELETED", "NOT_FOUND");
+        getConnection(key).submit(operation);
+        return await(operation.future);
+    }
+
+    @Override
+    public void close() {
+        connections.forEach(Connection::close);
+    }
+
+    private boolean store(String command, String key, byte[] data, long expirySeconds) {
+        if (expirySeconds > MAX_RELATIVE_EXPIRY_SECONDS) {
+            expirySeconds += TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        }
+
+        String header = String.format("%s %s 0 %d %d\r\n", command, key, expirySeconds, data.length);
+        SimpleOperation operation = new SimpleOperation(header, data, "STORED", "NOT_STORED");
+        getConnection(key).submit(operation);
+        return await(operation.future);
+    }
+
+    private Connection getConnection(String key) {
+        if (connections.size() == 1) {
+            return connections.get(0);
+        }
+
+        Connection selected = null;
+        int highest = 0;
+        for (Connection connection : connections) {
+            int score = mix(connection.id * 31 + key.hashCode());
+            if (selected == null || score > highest) {
+                selected = connection;
+                highest = score;
+            }
+        }
+
+        return selected;
+    }
+
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        return hash ^ (hash >>> 16);
+    }
+
+    private <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get(operationTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CacheException("Interrupted while waiting for memcached", e);
+        } catch (ExecutionException e) {
+            throw new CacheException("Memcached request failed", e.getCause());
+        } catch (TimeoutException e) {
+            throw new CacheException(String.format("Memcached did not respond within %d ms", operationTimeoutMillis), e);
+        }
+    }
+
+    private abstract static class Operation {
+
+        abstract void write(OutputStream out) throws IOException;
+
+        abstract void read(ResponseReader in) throws IOException;
+
+        abstract void fail(Throwable cause);
+    }
+
+    /**
+     * A request answered by a single line
+     */
+    private static final class SimpleOperation extends Operation {
+
+        private final CompletableFuture<Boolean> future = new CompletableFuture<>();
+        private final byte[] header;
+        private final byte[] data;
+        private final String success;
+        private final String failure;
+
+        private SimpleOperation(String header, byte[] data, String success, String failure) {
+            this.header = header.getBytes(StandardCharsets.UTF_8);
+            this.data = data;
+            this.success = success;
+            this.failure = failure;
+        }
+
+        @Override
+        void write(OutputStream out) throws IOException {
+            out.write(header);
+            if (data != null) {
+                out.write(data);
+                out.write(ResponseReader.CRLF);
+            }
+        }
+
+        @Override
+        void read(ResponseReader in) throws IOException {
+            String line = in.readLine();
+            if (success.equals(line)) {
+                future.complete(true);
+            } else if (failure.equals(line) || "EXISTS".equals(line)) {
+                future.complete(false);
+            } else {
+                future.completeExceptionally(new CacheException(String.format("Unexpected memcached response [%s]", line)));
+            }
+        }
+
+        @Override
+        void fail(Throwable cause) {
+            future.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * A lookup of one or more keys, answered by a value block per found key followed by END
+     */
+    private static final class GetOperation extends Operation {
+
+        private final Map<String, List<CompletableFuture<byte[]>>> futures = new LinkedHashMap<>();
+
+        private CompletableFuture<byte[]> addKey(String key) {
+            CompletableFuture<byte[]> future = new CompletableFuture<>();
+            futures.computeIfAbsent(key, k -> new ArrayList<>(1)).add(future);
+            return future;
+        }
+
+        private boolean canMerge(GetOperation other) {
+            return futures.size() + other.futures.size() <= MAX_KEYS_PER_GET;
+        }
+
+        private void merge(GetOperation other) {
+            other.futures.forEach((key, waiting) -> futures.computeIfAbsent(key, k -> new ArrayList<>(1)).addAll(waiting));
+        }
+
+        @Override
+        void write(OutputStream out) throws IOException {
+            StringBuilder line = new StringBuilder("get");
+            for (String key : futures.keySet()) {
+                line.append(' ').append(key);
+            }
+
+            out.write(line.append("\r\n").toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        void read(ResponseReader in) throws IOException {
+            String line;
+            while (!"END".equals(line = in.readLine())) {
+                String[] parts = line.split(" ");
+                if (parts.length < 4 || !"VALUE".equals(parts[0])) {
+                    throw new IOException(String.format("Unexpected memcached response [%s]", line));
+                }
+
+                byte[] data = in.readBlock(Integer.parseInt(parts[3]));
+                List<CompletableFuture<byte[]>> waiting = futures.get(parts[1]);
+                if (waiting != null) {
+                    waiting.forEach(future -> future.complete(data));
+                }
+            }
+
+            futures.values().forEach(waiting -> waiting.forEach(future -> future.complete(null)));
+        }
+
+        @Override
+        void fail(Throwable cause) {
+            futures.values().forEach(waiting -> waiting.forEach(future -> future.completeExceptionally(cause)));
+        }
+    }
+
+    private static final class ResponseReader {
+
+        private static final byte[] CRLF = { '\r', '\n' };
+
+        private final InputStream in;
+
+        private ResponseReader(InputStream in) {
+            this.in = in;
+        }
+
+        private String readLine() throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream(32);
+            int previous = -1;
+            int current;
+            while ((current = in.read()) != -1) {
+                if (previous == '\r' && current == '\n') {
+                    byte[] bytes = line.toByteArray();
+                    return new String(bytes, 0, bytes.length - 1, StandardCharsets.UTF_8);
+                }
+
+                line.write(current);
+                previous = current;
+            }
+
+            throw new EOFException("Memcached closed the connection");
+        }
+
+        private byte[] readBlock(int length) throws IOException {
+            byte[] data = new byte[length + CRLF.length];
+            int read = 0;
+            while (read < data.length) {
+                int count = in.read(data, read, data.length - read);
+                if (count < 0) {
+                    throw new EOFException("Memcached closed the connection");
+                }
+                read += count;
+            }
+
+            return Arrays.copyOf(data, length);
+        }
+    }
+
+    private final class Connection implements Runnable {
+
+        private final InetSocketAddress address;
+        private final int id;
+        private final BlockingQueue<Operation> queue = new LinkedBlockingQueue<>();
+        private final Thread thread;
+
+        private volatile boolean closed;
+        private Socket socket;
+        private OutputStream out;
+        private ResponseReader in;
+
+        private Connection(InetSocketAddress address) {
+            this.address = address;
+            this.id = address.toString().hashCode();
+            this.thread = new Thread(this, "memcached-" + address);
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        private void submit(Operation operation) {
+            if (closed) {
+                operation.fail(new CacheException("Memcached client is closed"));
+                return;
+            }
+
+            queue.add(operation);
+        }
+
+        @Override
+        public void run() {
+            List<Operation> batch = new ArrayList<>();
+            while (!closed) {
+                try {
+                    batch.add(queue.take());
+                    queue.drainTo(batch);
+                } catch (InterruptedException e) {
+                    break;
+                }
+
+                send(coalesce(batch));
+                batch.clear();
+            }
+
+            disconnect();
+            Operation operation;
+            while ((operation = queue.poll()) != null) {
+                operation.fail(new CacheException("Memcached client is closed"));
+            }
+        }
+
+        /**
+         * Folds runs of lookups into multi key gets
+         */
+        private List<Operation> coalesce(List<Operation> batch) {
+            List<Operation> operations = new ArrayList<>(batch.size());
+            GetOperation current = null;
+            for (Operation operation : batch) {
+                if (operation instanceof GetOperation) {
+                    GetOperation get = (GetOperation) operation;
+                    if (current != null && current.canMerge(get)) {
+                        current.merge(get);
+                        continue;
+                    }
+
+                    current = get;
+                } else {
+                    current = null;
+                }
+
+                operations.add(operation);
+            }
+
+            return operations;
+        }
+
+        private void send(List<Operation> operations) {
+            int answered = 0;
+            try {
+                connect();
+                for (Operation operation : operations) {
+                    operation.write(out);
+                }
+                out.flush();
+
+                for (Operation operation : operations) {
+                    operation.read(in);
+                    answered++;
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("Memcached request to {} failed, reconnecting on the next request", address, e);
+                CacheException cause = new CacheException(String.format("Memcached request to %s failed", address), e);
+                for (Operation operation : operations.subList(answered, operations.size())) {
+                    operation.fail(cause);
+                }
+
+                // The stream may be anywhere in a response, the only way back in step is a new connection
+                disconnect();
+            }
+        }
+
+        private void connect() throws IOException {
+            if (socket != null) {
+                return;
+            }
+
+            Socket newSocket = new Socket();
+            try {
+                InetSocketAddress resolved = new InetSocketAddress(address.getHostString(), address.getPort());
+                newSocket.connect(resolved, (int) operationTimeoutMillis);
+                newSocket.setTcpNoDelay(true);
+                newSocket.setSoTimeout((int) operationTimeoutMillis);
+            } catch (IOException e) {
+                newSocket.close();
+                throw e;
+            }
+
+            socket = newSocket;
+            out = new BufferedOutputStream(socket.getOutputStream());
+            in = new ResponseReader(new BufferedInputStream(socket.getInputStream()));
+        }
+
+        private void disconnect() {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    log.debug("Failed to close memcached connection to {}", address, e);
+                }
+            }
+
+            socket = null;
+            out = null;
+            in = null;
+        }
+
+        private void close() {
+            closed = true;
+            thread.interrupt();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package io.keystash.core.services.cache;
+
+import io.keystash.common.configuration.CacheConfiguration;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import java.io.Closeable;
+import java.net.InetSocketAddress;
+import java.util.List;
+
+/**
+ * Holds the memcached client shared by every cache kept on memcached
+ * <p>
+ *     A client holds a connection and a thread for each server, so the application creates one client and closes it
+ *     when the application stops. There is no client when no memcached servers are configured.
+ * </p>
+ */
+public class MemcachedClientProvider implements Closeable {
+
+    private final MemcachedClient client;
+
+    @Inject
+    public MemcachedClientProvider(CacheConfiguration cacheConfiguration) {
+        List<InetSocketAddress> servers = MemcachedClient.parseServers(cacheConfiguration.memcachedServers());
+        this.client = servers.isEmpty() ? null : new MemcachedClient(servers, cacheConfiguration.operationTimeoutMillis());
+    }
+
+    /**
+     * Gets the shared memcached client
+     * @return the client, or null if no memcached servers are configured
+     */
+    public MemcachedClient getClient() {
+        return client;
+    }
+
+    /**
+     * Closes the client's connections and stops its threads
+     */
+    @PreDestroy
+    @Override
+    public void close() {
+        if (client != null) {
+            client.close();
+        }
+    }
+}
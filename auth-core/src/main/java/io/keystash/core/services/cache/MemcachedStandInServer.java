@@ -0,0 +1,262 @@
+package io.keystash.core.services.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in-process server speaking enough of the memcached text protocol to stand in for memcached
+ * <p>
+ *     Supports get, gets, set, add, replace, delete, touch, flush_all, version and quit, which covers everything
+ *     {@link MemcachedClient} sends. Items are held on the heap without any bound, so this is meant for tests and
+ *     local development rather than production.
+ * </p>
+ */
+@Slf4j
+public class MemcachedStandInServer implements Closeable {
+
+    private static final long MAX_RELATIVE_EXPIRY_SECONDS = TimeUnit.DAYS.toSeconds(30);
+
+    private final ConcurrentMap<String, Item> items = new ConcurrentHashMap<>();
+    private final AtomicLong casCounter = new AtomicLong();
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "memcached-stand-in");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ServerSocket serverSocket;
+
+    /**
+     * Starts a server on the loopback interface
+     * @param port the port to listen on, 0 for any free port
+     * @throws IOException if the port can not be bound
+     */
+    public MemcachedStandInServer(int port) throws IOException {
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        executor.execute(this::accept);
+    }
+
+    public InetSocketAddress getAddress() {
+        return new InetSocketAddress(serverSocket.getInetAddress(), serverSocket.getLocalPort());
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        executor.shutdownNow();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                executor.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    log.warn("Memcached stand-in failed to accept a connection", e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket client = socket;
+             InputStream in = new BufferedInputStream(client.getInputStream());
+             OutputStream out = new BufferedOutputStream(client.getOutputStream())) {
+
+            String line;
+            while ((line = readLine(in)) != null) {
+                if (!handle(line, in, out)) {
+                    break;
+                }
+
+                // Only flush once every pipelined request read so far has been answered
+                if (in.available() == 0) {
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            log.debug("Memcached stand-in connection closed", e);
+        }
+    }
+
+    private boolean handle(String line, InputStream in, OutputStream out) throws IOException {
+        String[] parts = line.trim().split(" +");
+        String command = parts[0];
+        long now = System.currentTimeMillis();
+
+        switch (command) {
+            case "get":
+            case "gets":
+                for (int i = 1; i < parts.length; i++) {
+                    Item item = getLive(parts[i], now);
+                    if (item != null) {
+                        String header = "VALUE " + parts[i] + " " + item.flags + " " + item.data.length
+                                + ("gets".equals(command) ? " " + item.cas : "");
+                        writeLine(out, header);
+                        out.write(item.data);
+                        writeLine(out, "");
+                    }
+                }
+                writeLine(out, "END");
+                return true;
+
+            case "set":
+            case "add":
+            case "replace": {
+                if (parts.length < 5) {
+                    writeLine(out, "ERROR");
+                    return true;
+                }
+
+                byte[] data = readBlock(in, Integer.parseInt(parts[4]));
+                Item item = new Item(data, Integer.parseInt(parts[2]), toExpiresAt(Long.parseLong(parts[3]), now),
+                        casCounter.incrementAndGet());
+                boolean stored = store(command, parts[1], item, now);
+                if (!isNoReply(parts, 5)) {
+                    writeLine(out, stored ? "STORED" : "NOT_STORED");
+                }
+                return true;
+            }
+
+            case "delete": {
+                Item removed = items.remove(parts[1]);
+                if (!isNoReply(parts, 2)) {
+                    writeLine(out, removed != null && !removed.isExpired(now) ? "DELETED" : "NOT_FOUND");
+                }
+                return true;
+            }
+
+            case "touch": {
+                long expiresAt = toExpiresAt(Long.parseLong(parts[2]), now);
+                Item touched = items.computeIfPresent(parts[1], (key, item) -> item.isExpired(now) ? null
+                        : new Item(item.data, item.flags, expiresAt, item.cas));
+                if (!isNoReply(parts, 3)) {
+                    writeLine(out, touched != null ? "TOUCHED" : "NOT_FOUND");
+                }
+                return true;
+            }
+
+            case "flush_all":
+                items.clear();
+                writeLine(out, "OK");
+                return true;
+
+            case "version":
+                writeLine(out, "VERSION 1.5.0-stand-in");
+                return true;
+
+            case "quit":
+                return false;
+
+            default:
+                writeLine(out, "ERROR");
+                return true;
+        }
+    }
+
+    private boolean store(String command, String key, Item item, long now) {
+        switch (command) {
+            case "add":
+                return items.merge(key, item, (existing, added) -> existing.isExpired(now) ? added : existing) == item;
+            case "replace":
+                return items.computeIfPresent(key, (k, existing) -> existing.isExpired(now) ? null : item) == item;
+            default:
+                items.put(key, item);
+                return true;
+        }
+    }
+
+    private Item getLive(String key, long now) {
+        Item item = items.get(key);
+        if (item != null && item.isExpired(now)) {
+            items.remove(key, item);
+            return null;
+        }
+
+        return item;
+    }
+
+    private static long toExpiresAt(long exptime, long now) {
+        if (exptime == 0) {
+            return Long.MAX_VALUE;
+        }
+
+        // Like memcached, large values are absolute unix times and negative values expire immediately
+        return exptime > MAX_RELATIVE_EXPIRY_SECONDS ? TimeUnit.SECONDS.toMillis(exptime)
+                : now + TimeUnit.SECONDS.toMillis(exptime);
+    }
+
+    private static boolean isNoReply(String[] parts, int index) {
+        return parts.length > index && "noreply".equals(parts[index]);
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+        int current;
+        while ((current = in.read()) != -1) {
+            if (current == '\n') {
+                byte[] bytes = line.toByteArray();
+                int length = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+                return new String(bytes, 0, length, StandardCharsets.UTF_8);
+            }
+
+            line.write(current);
+        }
+
+        return null;
+    }
+
+    private static byte[] readBlock(InputStream in, int length) throws IOException {
+        byte[] data = new byte[length];
+        int read = 0;
+        while (read < length) {
+            int count = in.read(data, read, length - read);
+            if (count < 0) {
+                throw new EOFException();
+            }
+            read += count;
+        }
+
+        // Trailing CRLF
+        readLine(in);
+        return data;
+    }
+
+    private static void writeLine(OutputStream out, String line) throws IOException {
+        out.write(line.getBytes(StandardCharsets.UTF_8));
+        out.write('\r');
+        out.write('\n');
+    }
+
+    private static final class Item {
+
+        private final byte[] data;
+        private final int flags;
+        private final long expiresAt;
+        private final long cas;
+
+        private Item(byte[] data, int flags, long expiresAt, long cas) {
+            this.data = data;
+            this.flags = flags;
+            this.expiresAt = expiresAt;
+            this.cas = cas;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
@@ -0,0 +1,479 @@
+package io.keystash.core.services.cache;
+
+import io.keystash.core.exceptions.CacheException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * A cache that keeps its values outside of the heap
+ * <p>
+ *     Values are encoded with a {@link CacheCodec} and copied into direct buffers, so only the key and a small entry
+ *     header stay on the heap however large the values are. Records are stored in blocks of power of two sizes, in
+ *     the smallest block they fit in. Capacity is handed out a slab at a time, and while a slab holds records all of
+ *     its blocks are of one size. Freed blocks are reused before more of a slab is carved up, and a slab that no
+ *     longer holds any records goes back to a shared pool, from which it can be carved up for any size.
+ * </p>
+ * <p>
+ *     Every entry lives for the same time after it is written, so entries expire in the order they were written.
+ *     Expired entries are swept from the oldest end on every write. Once the capacity is used up, the oldest entries
+ *     of the same block size are evicted to make room. Should there be no entries of that size to evict, the value is
+ *     not cached and a {@link CacheException} is thrown.
+ * </p>
+ * <p>Reads run in parallel, writes are serialized.</p>
+ */
+@Slf4j
+public class OffHeapCache<K, V> implements LocalCache<K, V> {
+
+    static final int SLAB_SIZE = 1 << 20;
+    static final int MIN_BLOCK_SIZE = 64;
+    private static final int SIZE_CLASSES = Integer.numberOfTrailingZeros(SLAB_SIZE / MIN_BLOCK_SIZE) + 1;
+
+    private final CacheCodec<V> codec;
+    private final long expiryTimeMillis;
+    private final int maximumSlabs;
+    private final long maximumSize;
+    private final CacheRemovalListener<? super K, ? super V> removalListener;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Insertion ordered, and since every entry has the same lifetime also ordered by expiry
+    private final LinkedHashMap<K, Entry> entries = new LinkedHashMap<>();
+    // Entries of each block size, oldest first
+    private final List<Set<Entry>> entriesBySizeClass = new ArrayList<>();
+    // Slabs of each block size that have a block left
+    private final List<Set<Slab>> openSlabs = new ArrayList<>();
+    private final Deque<Slab> emptySlabs = new ArrayDeque<>();
+    private int slabCount;
+
+    OffHeapCache(CacheCodec<V> codec, long expiryTimeDuration, TimeUnit expiryTimeUnit, long capacityBytes,
+                 Long maximumSize, CacheRemovalListener<? super K, ? super V> removalListener) {
+        this.codec = codec;
+        this.expiryTimeMillis = expiryTimeUnit.toMillis(expiryTimeDuration);
+        this.maximumSlabs = (int) Math.max(1, capacityBytes / SLAB_SIZE);
+        this.maximumSize = maximumSize != null ? maximumSize : Long.MAX_VALUE;
+        this.removalListener = removalListener;
+
+        for (int sizeClass = 0; sizeClass < SIZE_CLASSES; sizeClass++) {
+            entriesBySizeClass.add(new LinkedHashSet<>());
+            openSlabs.add(new LinkedHashSet<>());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * @throws CacheException if there is no room for the value, even after evicting entries of the same size
+     */
+    @Override
+    public void set(K key, V value) {
+        if (value == null) {
+            evict(key);
+            return;
+        }
+
+        byte[] record = codec.encode(value);
+
+        lock.writeLock().lock();
+        try {
+            write(key, record, System.currentTimeMillis());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public V get(K key) {
+        if (key == null) {
+            return null;
+        }
+
+        boolean expired;
+        lock.readLock().lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+
+            expired = entry.isExpired(System.currentTimeMillis());
+            if (!expired) {
+                return read(entry);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            sweepExpired(System.currentTimeMillis());
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        return null;
+    }
+
+    @Override
+    public boolean has(K key) {
+        if (key == null) {
+            return false;
+        }
+
+        lock.readLock().lock();
+        try {
+            Entry entry = entries.get(key);
+            return entry != null && !entry.isExpired(System.currentTimeMillis());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        byte[] record = codec.encode(value);
+
+        lock.writeLock().lock();
+        try {
+            long now = System.currentTimeMillis();
+            sweepExpired(now);
+
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                return read(entry);
+            }
+
+            write(key, record, now);
+            return null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>The mapping function runs while writes to the cache are blocked, so it should be quick</p>
+     */
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+
+        lock.writeLock().lock();
+        try {
+            long now = System.currentTimeMillis();
+            sweepExpired(now);
+
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                return read(entry);
+            }
+
+            value = mappingFunction.apply(key);
+            if (value != null) {
+                write(key, codec.encode(value), now);
+            }
+
+            return value;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V> values = new LinkedHashMap<>();
+
+        lock.readLock().lock();
+        try {
+            long now = System.currentTimeMillis();
+            for (K key : keys) {
+                Entry entry = entries.get(key);
+                if (entry != null && !entry.isExpired(now)) {
+                    values.put(key, read(entry));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return values;
+    }
+
+    @Override
+    public V evict(K key) {
+        return remove(key);
+    }
+
+    @Override
+    public V remove(K key) {
+        if (key == null) {
+            return null;
+        }
+
+        V value = null;
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.remove(key);
+            if (entry != null) {
+                value = entry.isExpired(System.currentTimeMillis()) ? null : read(entry);
+                release(entry, true);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        return value;
+    }
+
+    @Override
+    public void invalidateAll() {
+        lock.writeLock().lock();
+        try {
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                iterator.remove();
+                release(entry, true);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<V> values() {
+        lock.readLock().lock();
+        try {
+            long now = System.currentTimeMillis();
+            List<V> values = new ArrayList<>(entries.size());
+            for (Entry entry : entries.values()) {
+                if (!entry.isExpired(now)) {
+                    values.add(read(entry));
+                }
+            }
+
+            return values;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void write(K key, byte[] record, long now) {
+        int sizeClass = getSizeClass(record.length);
+        if (sizeClass < 0) {
+            throw new IllegalArgumentException(String.format("A record of %d bytes is too large for an off heap " +
+                    "cache, the limit is %d bytes", record.length, SLAB_SIZE));
+        }
+
+        Entry previous = entries.remove(key);
+        if (previous != null) {
+            release(previous, false);
+        }
+
+        sweepExpired(now);
+        while (entries.size() >= maximumSize) {
+            evict(entries.values().iterator());
+        }
+
+        // Evicting entries of another size would not free a block of this size unless it emptied a whole slab, so
+        // only entries of this size make room
+        Set<Entry> sameSize = entriesBySizeClass.get(sizeClass);
+        Slab slab = getOpenSlab(sizeClass);
+        while (slab == null && !sameSize.isEmpty()) {
+            evict(sameSize.iterator());
+            slab = getOpenSlab(sizeClass);
+        }
+
+        if (slab == null) {
+            throw new CacheException(String.format("Off heap cache has no room for a record of %d bytes", record.length));
+        }
+
+        int offset = slab.allocate();
+        if (!slab.hasFreeBlock()) {
+            openSlabs.get(sizeClass).remove(slab);
+        }
+
+        ByteBuffer buffer = slab.buffer.duplicate();
+        buffer.position(offset);
+        buffer.put(record);
+
+        Entry entry = new Entry(key, slab, offset, record.length, now + expiryTimeMillis);
+        entries.put(key, entry);
+        sameSize.add(entry);
+    }
+
+    private V read(Entry entry) {
+        ByteBuffer record = entry.slab.buffer.duplicate();
+        record.position(entry.offset);
+        record.limit(entry.offset + entry.length);
+        return codec.decode(record.slice());
+    }
+
+    private void sweepExpired(long now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (!entry.isExpired(now)) {
+                break;
+            }
+
+            iterator.remove();
+            release(entry, true);
+        }
+    }
+
+    /**
+     * Evicts the first entry of the given iterator, which must be over entries held by the cache
+     */
+    private void evict(Iterator<Entry> iterator) {
+        Entry entry = iterator.next();
+        entries.remove(entry.key);
+        release(entry, true);
+    }
+
+    /**
+     * Returns the block of a removed entry to its slab, notifying the removal listener first if asked to
+     * <p>The entry must already have been taken out of the entries by key</p>
+     */
+    private void release(Entry entry, boolean notify) {
+        if (notify && removalListener != null) {
+            try {
+                removalListener.onRemoval(entry.key, read(entry));
+            } catch (RuntimeException e) {
+                log.error("Off heap cache removal listener failed", e);
+            }
+        }
+
+        Slab slab = entry.slab;
+        int sizeClass = slab.sizeClass;
+        entriesBySizeClass.get(sizeClass).remove(entry);
+
+        slab.free(entry.offset);
+        if (slab.isEmpty()) {
+            openSlabs.get(sizeClass).remove(slab);
+            slab.reset();
+            emptySlabs.push(slab);
+        } else {
+            openSlabs.get(sizeClass).add(slab);
+        }
+    }
+
+    /**
+     * Finds a slab with a free block of the given size, taking an empty slab or allocating a new one if needed
+     * @return the slab, or null if all capacity is taken by slabs of other sizes
+     */
+    private Slab getOpenSlab(int sizeClass) {
+        Set<Slab> open = openSlabs.get(sizeClass);
+        if (!open.isEmpty()) {
+            return open.iterator().next();
+        }
+
+        Slab slab = emptySlabs.poll();
+        if (slab == null) {
+            if (slabCount >= maximumSlabs) {
+                return null;
+            }
+
+            slab = new Slab(ByteBuffer.allocateDirect(SLAB_SIZE));
+            slabCount++;
+        }
+
+        slab.carve(sizeClass);
+        open.add(slab);
+        return slab;
+    }
+
+    private static int getSizeClass(int length) {
+        int blockSize = MIN_BLOCK_SIZE;
+        for (int sizeClass = 0; sizeClass < SIZE_CLASSES; sizeClass++) {
+            if (length <= blockSize) {
+                return sizeClass;
+            }
+            blockSize <<= 1;
+        }
+
+        return -1;
+    }
+
+    /**
+     * A slab of capacity, carved into blocks of one size while it holds records
+     * <p>Blocks are carved from the start of the slab as they are first needed, freed blocks are reused first</p>
+     */
+    private static final class Slab {
+
+        private final ByteBuffer buffer;
+        private final Deque<Integer> freeOffsets = new ArrayDeque<>();
+        private int sizeClass = -1;
+        private int blockSize;
+        private int carvedTo;
+        private int used;
+
+        private Slab(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        private void carve(int sizeClass) {
+            this.sizeClass = sizeClass;
+            this.blockSize = MIN_BLOCK_SIZE << sizeClass;
+        }
+
+        private boolean hasFreeBlock() {
+            return !freeOffsets.isEmpty() || carvedTo + blockSize <= SLAB_SIZE;
+        }
+
+        private int allocate() {
+            used++;
+            if (!freeOffsets.isEmpty()) {
+                return freeOffsets.pop();
+            }
+
+            int offset = carvedTo;
+            carvedTo += blockSize;
+            return offset;
+        }
+
+        private void free(int offset) {
+            used--;
+            freeOffsets.push(offset);
+        }
+
+        private boolean isEmpty() {
+            return used == 0;
+        }
+
+        private void reset() {
+            freeOffsets.clear();
+            sizeClass = -1;
+            blockSize = 0;
+            carvedTo = 0;
+        }
+    }
+
+    private final class Entry {
+
+        private final K key;
+        private final Slab slab;
+        private final int offset;
+        private final int length;
+        private final long expiresAt;
+
+        private Entry(K key, Slab slab, int offset, int length, long expiresAt) {
+            this.key = key;
+            this.slab = slab;
+            this.offset = offset;
+            this.length = length;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package io.keystash.core.services.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A hierarchical timing wheel that fires timeouts on a single background thread
+ * <p>
+ *     The wheel has four levels of 64 slots. The first level holds timeouts due within 64 ticks, one slot per tick,
+ *     and each level above covers 64 times the span of the one below. When the first level wraps around, the next
+ *     slot of the level above is cascaded down, so every timeout is moved at most once per level. Scheduling and
+ *     firing a timeout are both O(1).
+ * </p>
+ * <p>
+ *     Scheduling only queues the timeout, the wheel thread links it into its slot on the next tick. Cancelling only
+ *     flags the timeout, the wheel thread drops it when its slot comes up. Callers therefore never wait on the wheel.
+ * </p>
+ */
+@Slf4j
+final class TimingWheel {
+
+    static final long TICK_MILLIS = 100;
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+    static final long MAX_DELTA_TICKS = (1L << (WHEEL_BITS * LEVELS)) - 1;
+
+    private static final TimingWheel SHARED = new TimingWheel();
+
+    private final Timeout[][] wheels = new Timeout[LEVELS][WHEEL_SIZE];
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+
+    // Only touched by the wheel thread
+    private long currentTick;
+
+    private TimingWheel() {
+        this(System.currentTimeMillis());
+
+        Thread thread = new Thread(this::run, "cache-expiry-wheel");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Creates a wheel that only moves when {@link #advanceTo(long)} is called, so tests can control its clock
+     * @param startMillis the time the wheel starts at
+     */
+    TimingWheel(long startMillis) {
+        this.currentTick = toTick(startMillis);
+    }
+
+    /**
+     * Gets the wheel shared by every cache
+     * @return the shared wheel
+     */
+    static TimingWheel shared() {
+        return SHARED;
+    }
+
+    /**
+     * Schedules a timeout to fire at its deadline
+     * @param timeout the timeout to schedule
+     */
+    void schedule(Timeout timeout) {
+        scheduled.add(timeout);
+    }
+
+    /**
+     * Moves the wheel forward to the given time, firing every timeout that has come due on the way
+     * <p>Must only be called by the thread driving the wheel</p>
+     * @param nowMillis the current time
+     */
+    void advanceTo(long nowMillis) {
+        long nowTick = toTick(nowMillis);
+        while (currentTick < nowTick) {
+            currentTick++;
+            linkScheduled();
+            cascade();
+            fire(takeSlot(0, (int) (currentTick & WHEEL_MASK)));
+        }
+        linkScheduled();
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                advanceTo(System.currentTimeMillis());
+
+                TimeUnit.MILLISECONDS.sleep(TICK_MILLIS - System.currentTimeMillis() % TICK_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.error("Cache expiry wheel failed to advance", e);
+            }
+        }
+    }
+
+    private void linkScheduled() {
+        Timeout timeout;
+        while ((timeout = scheduled.poll()) != null) {
+            link(timeout);
+        }
+    }
+
+    /**
+     * Moves the timeouts of the next slot of each level down, whenever the level below has wrapped around
+     */
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            long levelTick = currentTick >>> (WHEEL_BITS * level);
+            if ((currentTick & ((1L << (WHEEL_BITS * level)) - 1)) != 0) {
+                break;
+            }
+
+            Timeout timeout = takeSlot(level, (int) (levelTick & WHEEL_MASK));
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                timeout.next = null;
+                if (!timeout.cancelled) {
+                    link(timeout);
+                }
+                timeout = next;
+            }
+        }
+    }
+
+    private void link(Timeout timeout) {
+        if (timeout.cancelled) {
+            return;
+        }
+
+        long deadlineTick = toTick(timeout.deadline + TICK_MILLIS - 1);
+        long delta = deadlineTick - currentTick;
+        if (delta <= 0) {
+            fire(timeout);
+            return;
+        }
+
+        // Deadlines beyond the top level are parked in its farthest slot, and placed again when cascaded
+        if (delta > MAX_DELTA_TICKS) {
+            deadlineTick = currentTick + MAX_DELTA_TICKS;
+            delta = MAX_DELTA_TICKS;
+        }
+
+        int level = 0;
+        while (delta >= (1L << (WHEEL_BITS * (level + 1)))) {
+            level++;
+        }
+
+        int slot = (int) ((deadlineTick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+        timeout.next = wheels[level][slot];
+        wheels[level][slot] = timeout;
+    }
+
+    private Timeout takeSlot(int level, int slot) {
+        Timeout head = wheels[level][slot];
+        wheels[level][slot] = null;
+        return head;
+    }
+
+    private void fire(Timeout timeout) {
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.next = null;
+            if (!timeout.cancelled) {
+                try {
+                    timeout.expire();
+                } catch (RuntimeException e) {
+                    log.error("Cache expiry callback failed", e);
+                }
+            }
+            timeout = next;
+        }
+    }
+
+    private static long toTick(long timeMillis) {
+        return timeMillis / TICK_MILLIS;
+    }
+
+    /**
+     * Something that happens at a deadline, unless it is cancelled first
+     */
+    abstract static class Timeout {
+
+        private final long deadline;
+        private volatile boolean cancelled;
+        private Timeout next;
+
+        Timeout(long deadline) {
+            this.deadline = deadline;
+        }
+
+        long getDeadline() {
+            return deadline;
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+
+        /**
+         * Called on the wheel thread once the deadline has passed
+         */
+        abstract void expire();
+    }
+}
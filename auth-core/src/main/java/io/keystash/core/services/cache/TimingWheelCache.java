@@ -0,0 +1,208 @@
+package io.keystash.core.services.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * A cache held on the heap whose entries are expired by a {@link TimingWheel}
+ * <p>
+ *     Reads and writes never clean up, they only skip entries past their expiry time. Expired entries are removed
+ *     by the wheel thread, at a cost of O(1) each, so request threads do no expiry work at all. This suits caches
+ *     with many short lived entries, such as replay protection records.
+ * </p>
+ * <p>
+ *     A removed or replaced entry stays on the wheel until its expiry time, where it is dropped without any effect.
+ *     Size and weight bounds are not supported, entries only leave by expiry or removal.
+ * </p>
+ */
+@Slf4j
+public class TimingWheelCache<K, V> implements LocalCache<K, V> {
+
+    private final ConcurrentMap<K, Entry> entries = new ConcurrentHashMap<>();
+    private final TimingWheel wheel;
+    private final long expiryTimeMillis;
+    private final CacheRemovalListener<? super K, ? super V> removalListener;
+
+    TimingWheelCache(long expiryTimeDuration, TimeUnit expiryTimeUnit,
+                     CacheRemovalListener<? super K, ? super V> removalListener) {
+        this.wheel = TimingWheel.shared();
+        this.expiryTimeMillis = expiryTimeUnit.toMillis(expiryTimeDuration);
+        this.removalListener = removalListener;
+    }
+
+    @Override
+    public void set(K key, V value) {
+        if (value == null) {
+            evict(key);
+            return;
+        }
+
+        Entry entry = new Entry(key, value, System.currentTimeMillis() + expiryTimeMillis);
+        Entry previous = entries.put(key, entry);
+        wheel.schedule(entry);
+
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    @Override
+    public V get(K key) {
+        if (key == null) {
+            return null;
+        }
+
+        Entry entry = entries.get(key);
+        return entry != null && !entry.isExpired(System.currentTimeMillis()) ? entry.value : null;
+    }
+
+    @Override
+    public boolean has(K key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        return putIfAbsent(key, k -> value, true);
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        V value = get(key);
+        return value != null ? value : putIfAbsent(key, mappingFunction, false);
+    }
+
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V> values = new LinkedHashMap<>();
+        for (K key : keys) {
+            V value = get(key);
+            if (value != null) {
+                values.put(key, value);
+            }
+        }
+
+        return values;
+    }
+
+    @Override
+    public V evict(K key) {
+        return remove(key);
+    }
+
+    @Override
+    public V remove(K key) {
+        if (key == null) {
+            return null;
+        }
+
+        Entry entry = entries.remove(key);
+        if (entry == null) {
+            return null;
+        }
+
+        entry.cancel();
+        notifyRemoval(entry);
+        return entry.isExpired(System.currentTimeMillis()) ? null : entry.value;
+    }
+
+    @Override
+    public void invalidateAll() {
+        for (K key : entries.keySet()) {
+            remove(key);
+        }
+    }
+
+    @Override
+    public List<V> values() {
+        long now = System.currentTimeMillis();
+        List<V> values = new ArrayList<>(entries.size());
+        for (Entry entry : entries.values()) {
+            if (!entry.isExpired(now)) {
+                values.add(entry.value);
+            }
+        }
+
+        return values;
+    }
+
+    /**
+     * Adds a value for the key unless a live one is present, treating an expired entry as absent
+     * @return the live value that was present, otherwise null if returnNullWhenAdded is set, or else the added value
+     */
+    private V putIfAbsent(K key, Function<? super K, ? extends V> mappingFunction, boolean returnNullWhenAdded) {
+        List<Entry> expired = new ArrayList<>(1);
+        List<Entry> added = new ArrayList<>(1);
+
+        Entry current = entries.compute(key, (k, existing) -> {
+            long now = System.currentTimeMillis();
+            if (existing != null && !existing.isExpired(now)) {
+                return existing;
+            }
+
+            if (existing != null) {
+                expired.add(existing);
+            }
+
+            V value = mappingFunction.apply(k);
+            if (value == null) {
+                return null;
+            }
+
+            Entry entry = new Entry(k, value, now + expiryTimeMillis);
+            added.add(entry);
+            return entry;
+        });
+
+        for (Entry entry : expired) {
+            entry.cancel();
+            notifyRemoval(entry);
+        }
+
+        if (!added.isEmpty()) {
+            wheel.schedule(added.get(0));
+            return returnNullWhenAdded ? null : added.get(0).value;
+        }
+
+        return current != null ? current.value : null;
+    }
+
+    private void notifyRemoval(Entry entry) {
+        if (removalListener != null) {
+            try {
+                removalListener.onRemoval(entry.key, entry.value);
+            } catch (RuntimeException e) {
+                log.error("Timing wheel cache removal listener failed", e);
+            }
+        }
+    }
+
+    private final class Entry extends TimingWheel.Timeout {
+
+        private final K key;
+        private final V value;
+
+        private Entry(K key, V value, long expiresAt) {
+            super(expiresAt);
+            this.key = key;
+            this.value = value;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= getDeadline();
+        }
+
+        @Override
+        void expire() {
+            // Only remove the entry if it has not been replaced in the meantime
+            if (entries.remove(key, this)) {
+                notifyRemoval(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package io.keystash.core.services.security;
+
+import io.keystash.common.factories.jose.JwkFactory;
+import io.keystash.common.models.jose.JsonWebKey;
+import io.keystash.common.models.jose.JwaKeyType;
+import io.keystash.common.models.jose.JwkSet;
+import io.keystash.common.models.jose.SigningKey;
+import io.keystash.common.services.jose.KeyManager;
+import io.keystash.common.services.jose.SigningKeySnapshot;
+import io.keystash.common.util.CryptoUtils;
+import io.keystash.core.models.security.RenderedJwkSet;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import javax.ws.rs.core.EntityTag;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Default implementation of JsonWebKeySetService
+ * <p>The key set is rendered once per key set version, requests in between are served the same bytes.</p>
+ */
+@Slf4j
+public class DefaultJsonWebKeySetService implements JsonWebKeySetService {
+
+    private final JwkFactory jwkFactory;
+    private final KeyManager keyManager;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final AtomicReference<RenderedJwkSet> rendered = new AtomicReference<>();
+
+    @Inject
+    public DefaultJsonWebKeySetService(JwkFactory jwkFactory, KeyManager keyManager) {
+        this.jwkFactory = jwkFactory;
+        this.keyManager = keyManager;
+
+        // Render new key sets as soon as they are loaded, rather than on the first request for them
+        this.keyManager.addKeySetListener(this::render);
+    }
+
+    @Override
+    public RenderedJwkSet getJsonWebKeySet() {
+        SigningKeySnapshot snapshot = keyManager.getKeySnapshot();
+
+        RenderedJwkSet current = rendered.get();
+        if (current != null && current.getVersion() == snapshot.getVersion()) {
+            return current;
+        }
+
+        return render(snapshot);
+    }
+
+    private RenderedJwkSet render(SigningKeySnapshot snapshot) {
+        Stream<SigningKey> publishedKeys = Stream.concat(
+                Stream.of(snapshot.getActiveKey()).filter(Objects::nonNull),
+                snapshot.getPassiveKeys().stream());
+
+        // Keys are ordered by ID so that the same keys always render to the same bytes, and so the same entity tag
+        Set<JsonWebKey> jsonWebKeys = publishedKeys
+                .map(jwkFactory::createJsonWebKey)
+                .filter(Objects::nonNull)
+                .filter(key -> key.getKeyType() != JwaKeyType.OCT)
+                .sorted(Comparator.comparing(JsonWebKey::getKeyId))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        JwkSet jwkSet = new JwkSet();
+        jwkSet.setKeys(jsonWebKeys);
+
+        RenderedJwkSet renderedJwkSet;
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(jwkSet);
+            byte[] digest = CryptoUtils.getMessageDigest("SHA-256").digest(body);
+            EntityTag entityTag = new EntityTag(Base64.getUrlEncoder().withoutPadding().encodeToString(digest));
+            renderedJwkSet = new RenderedJwkSet(snapshot.getVersion(), entityTag, body);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Unable to render the JSON Web Key Set", e);
+        }
+
+        // Never replace a newer rendering with an older one
+        rendered.accumulateAndGet(renderedJwkSet, (previous, next) ->
+                previous != null && previous.getVersion() > next.getVersion() ? previous : next);
+        log.debug("Rendered JSON Web Key Set for key set version {}", snapshot.getVersion());
+
+        return renderedJwkSet;
+    }
+}
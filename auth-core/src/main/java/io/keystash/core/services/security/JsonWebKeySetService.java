@@ -0,0 +1,20 @@
+package io.keystash.core.services.security;
+
+import io.keystash.core.models.security.RenderedJwkSet;
+
+/**
+ * Service to provide the public keys of the authorization server as a JSON Web Key Set
+ * <p>
+ *     @see <a href="https://tools.ietf.org/html/rfc7517#section-5">https://tools.ietf.org/html/rfc7517#section-5</a>
+ * </p>
+ */
+public interface JsonWebKeySetService {
+
+    /**
+     * Gets the serialized key set for the current application keys
+     * <p>Only the active and passive asymmetric keys are published, secrets never are</p>
+     * @return the rendered key set
+     */
+    RenderedJwkSet getJsonWebKeySet();
+
+}
@@ -1,6 +1,7 @@
 package io.keystash.core.util;
 
 import io.keystash.common.models.authentication.AuthenticatedUser;
+import io.keystash.common.util.CryptoUtils;
 import org.mindrot.jbcrypt.BCrypt;
 
 import javax.servlet.http.HttpSession;
@@ -48,7 +49,7 @@ public class AuthenticationUtils {
     private static String getSessionStateWithSalt(String stateInfo, String salt) {
         MessageDigest sha256;
         try {
-            sha256 = MessageDigest.getInstance("SHA-256");
+            sha256 = CryptoUtils.getMessageDigest("SHA-256");
 
             return new String(Base64.getEncoder().encode(sha256.digest(stateInfo.getBytes("UTF-8")))) + "." +
                     new String(Base64.getEncoder().encode(salt.getBytes("UTF-8")));
@@ -0,0 +1,3 @@
+-- Adds the version column signing keys are now loaded and rotated by, to databases created before it existed.
+-- Run once against an existing database, e.g. INIT=runscript from 'classpath:migrate-app-key-version.sql'
+ALTER TABLE `app_key` ADD COLUMN IF NOT EXISTS `version` bigint(20) NOT NULL DEFAULT '0';
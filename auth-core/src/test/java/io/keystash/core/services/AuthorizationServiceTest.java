@@ -1,9 +1,13 @@
 package io.keystash.core.services;
 
+import io.keystash.common.configuration.AuthorizationCodeConfiguration;
+import io.keystash.common.configuration.CacheConfiguration;
 import io.keystash.common.exceptions.OAuth2Exception;
 import io.keystash.common.models.authentication.AuthenticatedUser;
 import io.keystash.common.models.common.AuthorizationRequest;
 import io.keystash.common.models.common.BasicAuthorizationDetails;
+import io.keystash.common.models.jose.TokenVerificationResult;
+import io.keystash.common.models.jose.VerifiedToken;
 import io.keystash.common.models.jpa.Account;
 import io.keystash.common.models.jpa.AllowedScope;
 import io.keystash.common.models.jpa.PlatformClient;
@@ -11,8 +15,12 @@ import io.keystash.common.models.jpa.RedirectUri;
 import io.keystash.common.models.oauth.OAuth2GrantType;
 import io.keystash.common.persistence.PlatformClientDao;
 import io.keystash.common.persistence.ScopeDao;
+import io.keystash.common.services.client.PlatformClientRegistry;
+import io.keystash.common.services.scope.ScopeRegistry;
 import io.keystash.core.services.authentication.AuthenticationService;
 import io.keystash.core.services.authorization.AuthorizationService;
+import io.keystash.core.services.cache.MemcachedClientProvider;
+import io.keystash.core.services.cache.MemcachedStandInServer;
 import io.keystash.common.services.jose.TokenService;
 import io.keystash.core.util.AuthenticationUtils;
 import io.keystash.core.util.TestUtils;
@@ -25,8 +33,10 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -36,6 +46,7 @@ public class AuthorizationServiceTest {
     private static final AuthenticatedUser SAMPLE_AUTHENTICATED_USER = new AuthenticatedUser(TestUtils.SAMPLE_USER_ID,
             TestUtils.SAMPLE_USER_EMAIL);
     private static final PlatformClient SAMPLE_PLATFORM_CLIENT = new PlatformClient();
+    private static final String SAMPLE_SEALING_KEY = "MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=";
     private static final BasicAuthorizationDetails SAMPlE_BASIC_AUTH_DETAILS = BasicAuthorizationDetails.fromHeaderString(TestUtils.createSampleBasicAuthHeader());
 
     private static AuthenticationService mockAuthenticationService;
@@ -72,14 +83,16 @@ public class AuthorizationServiceTest {
         );
 
         Mockito.when(mockTokenService.createRefreshToken(Mockito.anyString())).thenReturn(TestUtils.SAMPLE_REFRESH_TOKEN);
-        Mockito.when(mockTokenService.isTokenValid(Mockito.anyString())).thenReturn(true);
         Mockito.when(mockTokenService.createAccessToken(Mockito.anyMapOf(String.class, String.class), Mockito.anyInt()))
                 .thenReturn(TestUtils.SAMPLE_ACCESS_TOKEN);
         Mockito.when(mockTokenService.createIdToken(Mockito.anyString(), Mockito.any(AuthenticatedUser.class),
                 Mockito.anyString(), Mockito.anyString(), Mockito.anyString(), Mockito.anyInt())).thenReturn(TestUtils.SAMPLE_ID_TOKEN);
-        Mockito.when(mockTokenService.getTokenClaim(Mockito.anyString(), Mockito.eq("account_id")))
-                .thenReturn(String.valueOf(TestUtils.SAMPLE_USER_ID));
-        Mockito.when(mockTokenService.getTokenClaim(Mockito.anyString(), Mockito.eq("scope"))).thenReturn(TestUtils.SAMPLE_SCOPE);
+
+        Map<String, String> refreshTokenClaims = new HashMap<>();
+        refreshTokenClaims.put("account_id", String.valueOf(TestUtils.SAMPLE_USER_ID));
+        refreshTokenClaims.put("scope", TestUtils.SAMPLE_SCOPE);
+        Mockito.when(mockTokenService.verify(Mockito.anyString())).thenReturn(new VerifiedToken(TestUtils.SAMPLE_REFRESH_TOKEN,
+                null, TokenVerificationResult.VALID, 0, refreshTokenClaims));
     }
 
     @Before
@@ -328,6 +341,60 @@ public class AuthorizationServiceTest {
         Assert.assertEquals(oAuth2TokenResponse.getTokenType(), "bearer");
     }
 
+    @Test
+    public void getTokenResponseForAuthorizationCodeGrant_sealedCode_isSingleUse() {
+        authorizationService = createSealedAuthorizationService(SAMPLE_SEALING_KEY, null);
+
+        OAuth2AuthCode oAuth2AuthCode = getNewOAuth2AuthCode("code", true);
+
+        OAuth2TokenResponse oAuth2TokenResponse = authorizationService.getTokenResponseForAuthorizationCodeGrant(oAuth2AuthCode.getCode(),
+                SAMPlE_BASIC_AUTH_DETAILS, oAuth2AuthCode.getRedirectUri());
+        Assert.assertNotNull(oAuth2TokenResponse.getAccessToken());
+        Assert.assertNotNull(oAuth2TokenResponse.getIdToken());
+
+        try {
+            authorizationService.getTokenResponseForAuthorizationCodeGrant(oAuth2AuthCode.getCode(),
+                    SAMPlE_BASIC_AUTH_DETAILS, oAuth2AuthCode.getRedirectUri());
+            Assert.fail("A sealed code was redeemed twice");
+        } catch (OAuth2Exception e) {
+            // Expected, codes are single use
+        }
+    }
+
+    @Test
+    public void getTokenResponseForAuthorizationCodeGrant_sealedCodeRedeemedOnOtherNode_isRejected() throws Exception {
+        CacheConfiguration cacheConfiguration = Mockito.mock(CacheConfiguration.class);
+        Mockito.when(cacheConfiguration.operationTimeoutMillis()).thenReturn(2000L);
+
+        try (MemcachedStandInServer server = new MemcachedStandInServer(0)) {
+            Mockito.when(cacheConfiguration.memcachedServers()).thenReturn(
+                    server.getAddress().getHostString() + ":" + server.getAddress().getPort());
+
+            try (MemcachedClientProvider thisNodeClient = new MemcachedClientProvider(cacheConfiguration);
+                 MemcachedClientProvider otherNodeClient = new MemcachedClientProvider(cacheConfiguration)) {
+                authorizationService = createSealedAuthorizationService(SAMPLE_SEALING_KEY, thisNodeClient);
+                AuthorizationService otherNode = createSealedAuthorizationService(SAMPLE_SEALING_KEY, otherNodeClient);
+
+                OAuth2AuthCode oAuth2AuthCode = getNewOAuth2AuthCode("code", true);
+                Assert.assertNotNull(authorizationService.getTokenResponseForAuthorizationCodeGrant(
+                        oAuth2AuthCode.getCode(), SAMPlE_BASIC_AUTH_DETAILS, oAuth2AuthCode.getRedirectUri()).getAccessToken());
+
+                try {
+                    otherNode.getTokenResponseForAuthorizationCodeGrant(oAuth2AuthCode.getCode(),
+                            SAMPlE_BASIC_AUTH_DETAILS, oAuth2AuthCode.getRedirectUri());
+                    Assert.fail("A sealed code was redeemed again on another node");
+                } catch (OAuth2Exception e) {
+                    // Expected, redeemed codes are shared through memcached
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void createAuthorizationService_sealedCodesWithoutSealingKey_doesFail() {
+        createSealedAuthorizationService("", null);
+    }
+
     @Test(expected = OAuth2Exception.class)
     public void getTokenResponseForClientCredentialsGrant_clientCredentialsGrantNotAllowed_doesFail() {
         SAMPLE_PLATFORM_CLIENT.setAuthorizedGrantTypes(Stream.of(OAuth2GrantType.values())
@@ -406,6 +473,15 @@ public class AuthorizationServiceTest {
         Assert.assertEquals(oAuth2TokenResponse.getTokenType(), "bearer");
     }
 
+    private AuthorizationService createSealedAuthorizationService(String sealingKey,
+                                                                  MemcachedClientProvider memcachedClientProvider) {
+        AuthorizationCodeConfiguration authorizationCodeConfiguration = Mockito.mock(AuthorizationCodeConfiguration.class);
+        Mockito.when(authorizationCodeConfiguration.mode()).thenReturn("sealed");
+        Mockito.when(authorizationCodeConfiguration.sealingKey()).thenReturn(sealingKey);
+        return new AuthorizationService(mockAuthenticationService, new PlatformClientRegistry(mockPlatformClientDao),
+                new ScopeRegistry(mockScopeDao), mockTokenService, authorizationCodeConfiguration, memcachedClientProvider);
+    }
+
     private OAuth2AuthCode getNewOAuth2AuthCode(String responseType, boolean isOpenId) {
         AuthorizationRequest authorizationRequest = TestUtils.createSampleAuthorizationRequest(responseType, isOpenId);
         return authorizationService.generateAuthorizationCode(authorizationRequest, SAMPLE_AUTHENTICATED_USER);
@@ -0,0 +1,173 @@
+package io.keystash.core.services.cache;
+
+import io.keystash.common.models.authentication.AuthenticatedUser;
+import io.keystash.common.models.oauth.OAuth2AuthCode;
+import io.keystash.core.exceptions.CacheException;
+import io.keystash.core.services.authorization.AuthorizationCodeStore;
+import io.keystash.core.util.TestUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+public class JournaledCacheTest {
+
+    private static final String SAMPLE_ACCESS_TOKEN = "sample-access-token";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void build_afterRestart_restoresLiveEntries() throws Exception {
+        Path journal = temporaryFolder.getRoot().toPath().resolve("cache.journal");
+
+        try (LocalCache<String, String> cache = createCache(journal, 1, TimeUnit.MINUTES)) {
+            cache.set("kept", "value");
+            cache.set("removed", "value");
+            cache.remove("removed");
+        }
+
+        try (LocalCache<String, String> restarted = createCache(journal, 1, TimeUnit.MINUTES)) {
+            Assert.assertEquals("value", restarted.get("kept"));
+            Assert.assertNull(restarted.get("removed"));
+        }
+    }
+
+    @Test
+    public void build_afterRestart_skipsExpiredEntries() throws Exception {
+        Path journal = temporaryFolder.getRoot().toPath().resolve("cache.journal");
+
+        try (LocalCache<String, String> cache = createCache(journal, 200, TimeUnit.MILLISECONDS)) {
+            cache.set("key", "value");
+        }
+        Thread.sleep(300);
+
+        try (LocalCache<String, String> restarted = createCache(journal, 1, TimeUnit.MINUTES)) {
+            Assert.assertNull(restarted.get("key"));
+        }
+    }
+
+    @Test
+    public void set_manyEntries_compactsJournal() throws Exception {
+        Path journal = temporaryFolder.getRoot().toPath().resolve("cache.journal");
+
+        // Churn through far more data than the journal holds, so it has to compact as it goes
+        String value = String.join("", Collections.nCopies(1024, "x"));
+        try (LocalCache<String, String> cache = createCache(journal, 1, TimeUnit.MINUTES)) {
+            IntStream.range(0, 40000).forEach(i -> {
+                cache.set("key" + i, value);
+                if (i % 100 != 0) {
+                    cache.remove("key" + i);
+                }
+            });
+        }
+
+        try (LocalCache<String, String> restarted = createCache(journal, 1, TimeUnit.MINUTES)) {
+            Assert.assertEquals(400, restarted.values().size());
+            Assert.assertEquals(value, restarted.get("key39900"));
+        }
+    }
+
+    @Test
+    public void set_entryExpiredByStorage_notifiesRemovalListener() throws Exception {
+        Path journal = temporaryFolder.getRoot().toPath().resolve("cache.journal");
+        List<String> removed = new CopyOnWriteArrayList<>();
+
+        try (LocalCache<String, String> cache = CacheBuilder.<String, String>createBuilder()
+                .withExpiryTime(200, TimeUnit.MILLISECONDS)
+                .withTimingWheelExpiry()
+                .withRemovalListener((key, value) -> removed.add(key))
+                .withJournal(journal, new StringCacheCodec(), new StringCacheCodec())
+                .buildLocal()) {
+            cache.set("key", "value");
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (removed.isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+
+            Assert.assertEquals(Collections.singletonList("key"), removed);
+            Assert.assertNull(cache.get("key"));
+        }
+    }
+
+    @Test
+    public void set_afterClose_throws() {
+        Path journal = temporaryFolder.getRoot().toPath().resolve("cache.journal");
+        LocalCache<String, String> cache = createCache(journal, 1, TimeUnit.MINUTES);
+        cache.close();
+        cache.close();
+
+        try {
+            cache.set("key", "value");
+            Assert.fail("A closed journal must not accept writes");
+        } catch (CacheException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void authorizationCodeStore_afterRestart_redeemsOutstandingCode() {
+        String journal = temporaryFolder.getRoot().toPath().resolve("codes.journal").toString();
+        AuthenticatedUser user = new AuthenticatedUser(TestUtils.SAMPLE_USER_ID, TestUtils.SAMPLE_USER_EMAIL);
+
+        try (AuthorizationCodeStore store = new AuthorizationCodeStore(10, TimeUnit.MINUTES, null, journal)) {
+            store.put(createAuthCode(user));
+        }
+
+        try (AuthorizationCodeStore restarted = new AuthorizationCodeStore(10, TimeUnit.MINUTES, null, journal)) {
+            Assert.assertNotNull(restarted.findExisting(TestUtils.SAMPLE_CLIENT_ID, user, false, false));
+            Assert.assertNotNull(restarted.remove("code"));
+        }
+
+        try (AuthorizationCodeStore restarted = new AuthorizationCodeStore(10, TimeUnit.MINUTES, null, journal)) {
+            Assert.assertNull(restarted.get("code"));
+        }
+    }
+
+    @Test
+    public void authorizationCodeStore_withTokens_keepsTokensOutOfJournal() throws Exception {
+        Path journal = temporaryFolder.getRoot().toPath().resolve("codes.journal");
+        AuthenticatedUser user = new AuthenticatedUser(TestUtils.SAMPLE_USER_ID, TestUtils.SAMPLE_USER_EMAIL);
+
+        try (AuthorizationCodeStore store = new AuthorizationCodeStore(10, TimeUnit.MINUTES, null, journal.toString())) {
+            OAuth2AuthCode authCode = createAuthCode(user);
+            authCode.setAccessToken(SAMPLE_ACCESS_TOKEN);
+            store.put(authCode);
+            Assert.assertEquals(SAMPLE_ACCESS_TOKEN, store.get("code").getAccessToken());
+        }
+
+        String journalContents = new String(Files.readAllBytes(journal), StandardCharsets.UTF_8);
+        Assert.assertFalse(journalContents.contains(SAMPLE_ACCESS_TOKEN));
+
+        try (AuthorizationCodeStore restarted = new AuthorizationCodeStore(10, TimeUnit.MINUTES, null,
+                journal.toString())) {
+            OAuth2AuthCode restored = restarted.get("code");
+            Assert.assertNotNull(restored);
+            Assert.assertNull(restored.getAccessToken());
+            Assert.assertNotNull(restarted.findExisting(TestUtils.SAMPLE_CLIENT_ID, user, false, false));
+        }
+    }
+
+    private static OAuth2AuthCode createAuthCode(AuthenticatedUser user) {
+        return new OAuth2AuthCode("code", TestUtils.SAMPLE_CLIENT_ID, new HashSet<>(Collections.singletonList("openid")),
+                TestUtils.SAMPLE_VALID_REDIRECT_URI, user);
+    }
+
+    private static LocalCache<String, String> createCache(Path journal, long expiryTimeDuration, TimeUnit expiryTimeUnit) {
+        return CacheBuilder.<String, String>createBuilder()
+                .withExpiryTime(expiryTimeDuration, expiryTimeUnit)
+                .withJournal(journal, new StringCacheCodec(), new StringCacheCodec())
+                .buildLocal();
+    }
+}
@@ -0,0 +1,167 @@
+package io.keystash.core.services.cache;
+
+import io.keystash.common.models.authentication.AuthenticatedUser;
+import io.keystash.common.models.oauth.OAuth2AuthCode;
+import io.keystash.core.services.authorization.AuthorizationCodeStore;
+import io.keystash.core.util.TestUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class MemcachedCacheTest {
+
+    private MemcachedStandInServer server;
+    private MemcachedClient client;
+
+    @Before
+    public void startServer() throws Exception {
+        server = new MemcachedStandInServer(0);
+        client = new MemcachedClient(Collections.singletonList(server.getAddress()), 2000);
+    }
+
+    @After
+    public void stopServer() throws Exception {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    public void set_thenGet_isSuccessful() {
+        Cache<String, String> cache = createCache(null);
+
+        cache.set("key", "value");
+
+        Assert.assertEquals("value", cache.get("key"));
+        Assert.assertTrue(cache.has("key"));
+        Assert.assertNull(cache.get("missing"));
+    }
+
+    @Test
+    public void putIfAbsent_existingValue_isKept() {
+        Cache<String, String> cache = createCache(null);
+
+        Assert.assertNull(cache.putIfAbsent("key", "first"));
+        Assert.assertEquals("first", cache.putIfAbsent("key", "second"));
+        Assert.assertEquals("first", cache.get("key"));
+    }
+
+    @Test
+    public void remove_concurrentCallers_onlyOneGetsValue() throws Exception {
+        Cache<String, String> cache = createCache(null);
+        cache.set("key", "value");
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = executor.invokeAll(Collections.nCopies(8, () -> cache.remove("key")));
+
+            long winners = 0;
+            for (Future<String> result : results) {
+                if (result.get() != null) {
+                    winners++;
+                }
+            }
+
+            Assert.assertEquals(1, winners);
+            Assert.assertNull(cache.get("key"));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void getAll_manyKeys_isSuccessful() {
+        Cache<String, String> cache = createCache(null);
+        IntStream.range(0, 250).forEach(i -> cache.set("key" + i, "value" + i));
+
+        List<String> keys = IntStream.range(0, 300).mapToObj(i -> "key" + i).collect(Collectors.toList());
+        Map<String, String> values = cache.getAll(keys);
+
+        Assert.assertEquals(250, values.size());
+        Assert.assertEquals("value42", values.get("key42"));
+        Assert.assertFalse(values.containsKey("key260"));
+    }
+
+    @Test
+    public void get_concurrentCallers_isSuccessful() throws Exception {
+        Cache<String, String> cache = createCache(null);
+        IntStream.range(0, 100).forEach(i -> cache.set("key" + i, "value" + i));
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Callable<Boolean>> lookups = IntStream.range(0, 1000)
+                    .mapToObj(i -> (Callable<Boolean>) () -> ("value" + i % 100).equals(cache.get("key" + i % 100)))
+                    .collect(Collectors.toList());
+
+            for (Future<Boolean> result : executor.invokeAll(lookups)) {
+                Assert.assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void get_keyWithSpaces_isSuccessful() {
+        Cache<String, String> cache = createCache(null);
+
+        cache.set("a key with spaces", "value");
+
+        Assert.assertEquals("value", cache.get("a key with spaces"));
+    }
+
+    @Test
+    public void get_withNearCache_servesLocalCopy() {
+        Cache<String, String> cache = createCache(new long[] { 100, 60 });
+        Cache<String, String> otherNode = createCache(null);
+
+        cache.set("key", "value");
+        otherNode.set("key", "changed");
+
+        // The near cache still holds the value written on this node
+        Assert.assertEquals("value", cache.get("key"));
+        Assert.assertEquals("changed", otherNode.get("key"));
+    }
+
+    @Test
+    public void authorizationCodeStore_codeIssuedOnOneNode_isRedeemedOnAnother() {
+        AuthorizationCodeStore issuingNode = new AuthorizationCodeStore(10, TimeUnit.MINUTES, client);
+        AuthorizationCodeStore redeemingNode = new AuthorizationCodeStore(10, TimeUnit.MINUTES, client);
+
+        AuthenticatedUser user = new AuthenticatedUser(TestUtils.SAMPLE_USER_ID, TestUtils.SAMPLE_USER_EMAIL);
+        OAuth2AuthCode authCode = new OAuth2AuthCode("code", TestUtils.SAMPLE_CLIENT_ID,
+                new HashSet<>(Collections.singletonList("openid")), TestUtils.SAMPLE_VALID_REDIRECT_URI, user);
+        issuingNode.put(authCode);
+
+        Assert.assertNotNull(redeemingNode.findExisting(TestUtils.SAMPLE_CLIENT_ID, user, false, false));
+
+        OAuth2AuthCode redeemed = redeemingNode.remove("code");
+        Assert.assertNotNull(redeemed);
+        Assert.assertEquals(TestUtils.SAMPLE_CLIENT_ID, redeemed.getClientId());
+        Assert.assertNull(issuingNode.remove("code"));
+        Assert.assertNull(issuingNode.findExisting(TestUtils.SAMPLE_CLIENT_ID, user, false, false));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void buildLocal_remoteStorage_isRejected() {
+        CacheBuilder.<String, String>createBuilder()
+                .withRemoteStorage(client, "test", new StringCacheCodec())
+                .buildLocal();
+    }
+
+    private Cache<String, String> createCache(long[] nearCache) {
+        CacheBuilder<String, String> builder = CacheBuilder.<String, String>createBuilder()
+                .withExpiryTime(1, TimeUnit.MINUTES)
+                .withRemoteStorage(client, "test", new StringCacheCodec());
+        if (nearCache != null) {
+            builder.withNearCache(nearCache[0], nearCache[1], TimeUnit.SECONDS);
+        }
+
+        return builder.build();
+    }
+}
@@ -0,0 +1,127 @@
+package io.keystash.core.services.cache;
+
+import io.keystash.core.exceptions.CacheException;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class OffHeapCacheTest {
+
+    private static final long SLAB_SIZE = 1 << 20;
+
+    // Stored in 64 byte blocks
+    private static final String SMALL = "small";
+    // Stored in 4 KB blocks, so 256 fit in a slab
+    private static final String LARGE = StringUtils.repeat('x', 3000);
+    private static final int LARGE_PER_SLAB = 256;
+
+    @Test
+    public void set_mixedRecordSizes_areAllKept() {
+        List<String> removed = new ArrayList<>();
+        LocalCache<String, String> cache = buildCache(2 * SLAB_SIZE, 10, TimeUnit.MINUTES, removed);
+
+        for (int i = 0; i < 100; i++) {
+            cache.set("small-" + i, SMALL + i);
+            cache.set("large-" + i, LARGE + i);
+        }
+
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(SMALL + i, cache.get("small-" + i));
+            Assert.assertEquals(LARGE + i, cache.get("large-" + i));
+        }
+        Assert.assertTrue(removed.isEmpty());
+    }
+
+    @Test
+    public void set_capacityUsedUp_evictsOldestOfSameSizeOnly() {
+        List<String> removed = new ArrayList<>();
+        LocalCache<String, String> cache = buildCache(2 * SLAB_SIZE, 10, TimeUnit.MINUTES, removed);
+
+        cache.set("small", SMALL);
+        for (int i = 0; i <= LARGE_PER_SLAB; i++) {
+            cache.set("large-" + i, LARGE + i);
+        }
+
+        Assert.assertEquals(1, removed.size());
+        Assert.assertEquals(LARGE + 0, removed.get(0));
+        Assert.assertEquals(SMALL, cache.get("small"));
+        Assert.assertEquals(LARGE + LARGE_PER_SLAB, cache.get("large-" + LARGE_PER_SLAB));
+    }
+
+    @Test
+    public void set_noRoomForSize_throwsWithoutEvictingOtherSizes() {
+        List<String> removed = new ArrayList<>();
+        LocalCache<String, String> cache = buildCache(SLAB_SIZE, 10, TimeUnit.MINUTES, removed);
+        cache.set("small", SMALL);
+
+        try {
+            cache.set("large", LARGE);
+            Assert.fail("A record that can not be stored must be reported");
+        } catch (CacheException e) {
+            // Expected
+        }
+
+        Assert.assertTrue(removed.isEmpty());
+        Assert.assertEquals(SMALL, cache.get("small"));
+        Assert.assertNull(cache.get("large"));
+    }
+
+    @Test
+    public void set_afterSlabEmptied_reusesSlabForOtherSize() {
+        LocalCache<String, String> cache = buildCache(SLAB_SIZE, 10, TimeUnit.MINUTES, new ArrayList<>());
+        cache.set("small", SMALL);
+        Assert.assertEquals(SMALL, cache.remove("small"));
+
+        cache.set("large", LARGE);
+
+        Assert.assertEquals(LARGE, cache.get("large"));
+    }
+
+    @Test
+    public void set_freedBlock_isReusedWithoutEviction() {
+        List<String> removed = new ArrayList<>();
+        LocalCache<String, String> cache = buildCache(SLAB_SIZE, 10, TimeUnit.MINUTES, removed);
+        for (int i = 0; i < LARGE_PER_SLAB; i++) {
+            cache.set("large-" + i, LARGE + i);
+        }
+
+        cache.remove("large-10");
+        cache.set("large-new", LARGE);
+
+        Assert.assertEquals(Collections.singletonList(LARGE + 10), removed);
+        Assert.assertEquals(LARGE_PER_SLAB, cache.values().size());
+        Assert.assertEquals(LARGE + 0, cache.get("large-0"));
+        Assert.assertEquals(LARGE, cache.get("large-new"));
+    }
+
+    @Test
+    public void set_afterExpiry_sweepsExpiredEntriesAndReclaimsTheirSlab() throws Exception {
+        List<String> removed = new ArrayList<>();
+        LocalCache<String, String> cache = buildCache(SLAB_SIZE, 200, TimeUnit.MILLISECONDS, removed);
+        cache.set("small-1", SMALL + 1);
+        cache.set("small-2", SMALL + 2);
+
+        Thread.sleep(300);
+        cache.set("large", LARGE);
+
+        Assert.assertEquals(2, removed.size());
+        Assert.assertTrue(removed.contains(SMALL + 1));
+        Assert.assertTrue(removed.contains(SMALL + 2));
+        Assert.assertNull(cache.get("small-1"));
+        Assert.assertEquals(LARGE, cache.get("large"));
+    }
+
+    private static LocalCache<String, String> buildCache(long capacityBytes, long expiryTimeDuration, TimeUnit expiryTimeUnit,
+                                                    List<String> removed) {
+        return CacheBuilder.<String, String>createBuilder()
+                .withExpiryTime(expiryTimeDuration, expiryTimeUnit)
+                .withOffHeapStorage(new StringCacheCodec(), capacityBytes)
+                .withRemovalListener((key, value) -> removed.add(value))
+                .buildLocal();
+    }
+}
@@ -0,0 +1,62 @@
+package io.keystash.core.services.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+public class TimingWheelCacheTest {
+
+    @Test
+    public void get_expiredEntry_isRemovedInBackground() throws Exception {
+        Map<String, String> removed = new ConcurrentHashMap<>();
+        LocalCache<String, String> cache = CacheBuilder.<String, String>createBuilder()
+                .withExpiryTime(300, TimeUnit.MILLISECONDS)
+                .withTimingWheelExpiry()
+                .withRemovalListener(removed::put)
+                .buildLocal();
+
+        cache.set("key", "value");
+        Assert.assertEquals("value", cache.get("key"));
+
+        // The wheel thread removes the entry without anyone touching the cache
+        long deadline = System.currentTimeMillis() + 5000;
+        while (removed.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+
+        Assert.assertEquals("value", removed.get("key"));
+        Assert.assertNull(cache.get("key"));
+        Assert.assertTrue(cache.values().isEmpty());
+    }
+
+    @Test
+    public void set_replacedEntry_outlivesOriginalExpiry() throws Exception {
+        LocalCache<String, String> cache = CacheBuilder.<String, String>createBuilder()
+                .withExpiryTime(600, TimeUnit.MILLISECONDS)
+                .withTimingWheelExpiry()
+                .buildLocal();
+
+        cache.set("key", "first");
+        Thread.sleep(400);
+        cache.set("key", "second");
+        Thread.sleep(400);
+
+        Assert.assertEquals("second", cache.get("key"));
+    }
+
+    @Test
+    public void putIfAbsent_existingEntry_isKept() {
+        LocalCache<String, String> cache = CacheBuilder.<String, String>createBuilder()
+                .withExpiryTime(1, TimeUnit.MINUTES)
+                .withTimingWheelExpiry()
+                .buildLocal();
+
+        Assert.assertNull(cache.putIfAbsent("key", "first"));
+        Assert.assertEquals("first", cache.putIfAbsent("key", "second"));
+        Assert.assertEquals("first", cache.remove("key"));
+        Assert.assertNull(cache.remove("key"));
+    }
+}
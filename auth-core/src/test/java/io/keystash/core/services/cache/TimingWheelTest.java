@@ -0,0 +1,109 @@
+package io.keystash.core.services.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TimingWheelTest {
+
+    // Deliberately not on a level boundary, so timeouts straddle the slots of every level
+    private static final long START_MILLIS = 1_000_037L * TimingWheel.TICK_MILLIS;
+
+    @Test
+    public void advanceTo_deadlinesOnEveryLevel_fireExactlyAtTheirTick() {
+        TimingWheel wheel = new TimingWheel(START_MILLIS);
+        long[] deltaTicks = { 1, 10, 63, 64, 65, 100, 4095, 4096, 4097, 5000, 262143, 262144, 262145, 300000,
+                TimingWheel.MAX_DELTA_TICKS };
+
+        RecordingTimeout[] timeouts = new RecordingTimeout[deltaTicks.length];
+        for (int i = 0; i < deltaTicks.length; i++) {
+            timeouts[i] = new RecordingTimeout(START_MILLIS + deltaTicks[i] * TimingWheel.TICK_MILLIS);
+            wheel.schedule(timeouts[i]);
+        }
+
+        for (int i = 0; i < timeouts.length; i++) {
+            long deadline = timeouts[i].getDeadline();
+
+            wheel.advanceTo(deadline - 1);
+            Assert.assertEquals("Fired early, " + deltaTicks[i] + " ticks out", 0, timeouts[i].fired.get());
+
+            wheel.advanceTo(deadline);
+            Assert.assertEquals("Not fired on time, " + deltaTicks[i] + " ticks out", 1, timeouts[i].fired.get());
+        }
+    }
+
+    @Test
+    public void advanceTo_deadlineBeyondTopLevel_isPlacedAgainAndFiresOnTime() {
+        TimingWheel wheel = new TimingWheel(START_MILLIS);
+        long deltaTicks = TimingWheel.MAX_DELTA_TICKS + 12345;
+        RecordingTimeout timeout = new RecordingTimeout(START_MILLIS + deltaTicks * TimingWheel.TICK_MILLIS);
+        wheel.schedule(timeout);
+
+        // Where the deadline was clamped to when it was first placed
+        wheel.advanceTo(START_MILLIS + (TimingWheel.MAX_DELTA_TICKS + 1) * TimingWheel.TICK_MILLIS);
+        Assert.assertEquals(0, timeout.fired.get());
+
+        wheel.advanceTo(timeout.getDeadline() - 1);
+        Assert.assertEquals(0, timeout.fired.get());
+
+        wheel.advanceTo(timeout.getDeadline());
+        Assert.assertEquals(1, timeout.fired.get());
+    }
+
+    @Test
+    public void advanceTo_deadlineBetweenTicks_firesOnTheFollowingTick() {
+        TimingWheel wheel = new TimingWheel(START_MILLIS);
+        RecordingTimeout timeout = new RecordingTimeout(START_MILLIS + 70 * TimingWheel.TICK_MILLIS + 1);
+        wheel.schedule(timeout);
+
+        wheel.advanceTo(START_MILLIS + 70 * TimingWheel.TICK_MILLIS);
+        Assert.assertEquals(0, timeout.fired.get());
+
+        wheel.advanceTo(START_MILLIS + 71 * TimingWheel.TICK_MILLIS);
+        Assert.assertEquals(1, timeout.fired.get());
+    }
+
+    @Test
+    public void advanceTo_pastDeadline_firesOnNextAdvance() {
+        TimingWheel wheel = new TimingWheel(START_MILLIS);
+        RecordingTimeout timeout = new RecordingTimeout(START_MILLIS - 5000);
+        wheel.schedule(timeout);
+
+        wheel.advanceTo(START_MILLIS);
+
+        Assert.assertEquals(1, timeout.fired.get());
+    }
+
+    @Test
+    public void advanceTo_cancelledTimeout_neverFires() {
+        TimingWheel wheel = new TimingWheel(START_MILLIS);
+        RecordingTimeout cascaded = new RecordingTimeout(START_MILLIS + 5000 * TimingWheel.TICK_MILLIS);
+        RecordingTimeout pending = new RecordingTimeout(START_MILLIS + 10 * TimingWheel.TICK_MILLIS);
+        wheel.schedule(cascaded);
+        wheel.schedule(pending);
+
+        // One is cancelled while it waits on a higher level, the other while it waits on the first level
+        wheel.advanceTo(START_MILLIS + TimingWheel.TICK_MILLIS);
+        cascaded.cancel();
+        pending.cancel();
+        wheel.advanceTo(START_MILLIS + 6000 * TimingWheel.TICK_MILLIS);
+
+        Assert.assertEquals(0, cascaded.fired.get());
+        Assert.assertEquals(0, pending.fired.get());
+    }
+
+    private static final class RecordingTimeout extends TimingWheel.Timeout {
+
+        private final AtomicInteger fired = new AtomicInteger();
+
+        private RecordingTimeout(long deadline) {
+            super(deadline);
+        }
+
+        @Override
+        void expire() {
+            fired.incrementAndGet();
+        }
+    }
+}
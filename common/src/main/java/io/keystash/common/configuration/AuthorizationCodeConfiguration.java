@@ -0,0 +1,39 @@
+package io.keystash.common.configuration;
+
+import io.keystash.common.annotation.ConfigFile;
+
+import javax.inject.Singleton;
+
+/**
+ * An object containing configuration for how authorization codes are issued and redeemed
+ */
+@Singleton
+@ConfigFile("authorizationCode.properties")
+public interface AuthorizationCodeConfiguration extends Configuration {
+
+    String namespace = "authorizationCode";
+
+    /**
+     * Gets how authorization codes are kept, either cache or sealed
+     * <p>
+     *     Cached codes are random strings backed by state held by the node that issued them. Sealed codes are
+     *     encrypted and carry their own state, so any node sharing the sealing key can redeem them.
+     * </p>
+     * @return the authorization code mode
+     */
+    String mode();
+
+    /**
+     * Gets the base64 encoded 256 bit AES key used to seal codes
+     * <p>Every node must be configured with the same key. Only used when codes are sealed</p>
+     * @return the sealing key
+     */
+    String sealingKey();
+
+    /**
+     * Gets the file outstanding cached codes are journaled to, so that they survive a restart
+     * <p>When empty, codes are only kept in memory. Only used when codes are cached on this node</p>
+     * @return the journal file path
+     */
+    String journalPath();
+}
@@ -0,0 +1,28 @@
+package io.keystash.common.configuration;
+
+import io.keystash.common.annotation.ConfigFile;
+
+import javax.inject.Singleton;
+
+/**
+ * An object containing configuration for caches shared between nodes
+ */
+@Singleton
+@ConfigFile("cache.properties")
+public interface CacheConfiguration extends Configuration {
+
+    String namespace = "cache";
+
+    /**
+     * Gets the memcached servers shared caches are kept on, as a comma separated list of host:port pairs
+     * <p>When empty, caches are kept on each node</p>
+     * @return the memcached servers
+     */
+    String memcachedServers();
+
+    /**
+     * Gets how long to wait for a memcached server to connect or respond before failing the request
+     * @return the timeout in milliseconds
+     */
+    long operationTimeoutMillis();
+}
@@ -0,0 +1,53 @@
+package io.keystash.common.configuration;
+
+import io.keystash.common.annotation.ConfigFile;
+
+import javax.inject.Singleton;
+
+/**
+ * An object containing configuration for the automatic rotation of signing keys
+ */
+@Singleton
+@ConfigFile("keyRotation.properties")
+public interface KeyRotationConfiguration extends Configuration {
+
+    String namespace = "keyRotation";
+
+    /**
+     * Whether keys should be rotated automatically at all
+     * @return true if the rotation scheduler should run
+     */
+    boolean enabled();
+
+    /**
+     * Gets the algorithm used for newly generated keys, one of rsa, ecdsa, eddsa or hmac
+     * @return the algorithm name
+     */
+    String algorithm();
+
+    /**
+     * Gets how long a key stays active before it is replaced by its successor
+     * @return the active lifetime of a key in seconds
+     */
+    long rotationIntervalSeconds();
+
+    /**
+     * Gets how long before promotion a successor key is generated and published as passive
+     * <p>This should comfortably exceed the time JWKS consumers cache the key set</p>
+     * @return the lead time in seconds
+     */
+    long prepublishSeconds();
+
+    /**
+     * Gets the longest lifetime of any token signed by a key, refresh tokens included
+     * <p>A replaced key stays passive for this long so that outstanding tokens still verify</p>
+     * @return the maximum token lifetime in seconds
+     */
+    long maxTokenLifetimeSeconds();
+
+    /**
+     * Gets how often the scheduler checks whether any key needs to change state
+     * @return the check interval in seconds
+     */
+    long checkIntervalSeconds();
+}
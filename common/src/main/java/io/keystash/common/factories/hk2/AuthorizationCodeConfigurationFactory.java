@@ -0,0 +1,15 @@
+package io.keystash.common.factories.hk2;
+
+import io.keystash.common.configuration.AuthorizationCodeConfiguration;
+import org.cfg4j.provider.ConfigurationProvider;
+
+import javax.inject.Inject;
+
+public class AuthorizationCodeConfigurationFactory extends ConfigurationFactory<AuthorizationCodeConfiguration> {
+
+    @Inject
+    public AuthorizationCodeConfigurationFactory(ConfigurationProvider configurationProvider) {
+        super(configurationProvider, AuthorizationCodeConfiguration.namespace, AuthorizationCodeConfiguration.class);
+    }
+
+}
@@ -0,0 +1,15 @@
+package io.keystash.common.factories.hk2;
+
+import io.keystash.common.configuration.CacheConfiguration;
+import org.cfg4j.provider.ConfigurationProvider;
+
+import javax.inject.Inject;
+
+public class CacheConfigurationFactory extends ConfigurationFactory<CacheConfiguration> {
+
+    @Inject
+    public CacheConfigurationFactory(ConfigurationProvider configurationProvider) {
+        super(configurationProvider, CacheConfiguration.namespace, CacheConfiguration.class);
+    }
+
+}
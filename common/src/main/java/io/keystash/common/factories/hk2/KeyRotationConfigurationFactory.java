@@ -0,0 +1,15 @@
+package io.keystash.common.factories.hk2;
+
+import io.keystash.common.configuration.KeyRotationConfiguration;
+import org.cfg4j.provider.ConfigurationProvider;
+
+import javax.inject.Inject;
+
+public class KeyRotationConfigurationFactory extends ConfigurationFactory<KeyRotationConfiguration> {
+
+    @Inject
+    public KeyRotationConfigurationFactory(ConfigurationProvider configurationProvider) {
+        super(configurationProvider, KeyRotationConfiguration.namespace, KeyRotationConfiguration.class);
+    }
+
+}
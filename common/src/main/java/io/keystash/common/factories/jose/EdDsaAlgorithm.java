@@ -0,0 +1,61 @@
+package io.keystash.common.factories.jose;
+
+import io.keystash.common.models.jose.EdDsaKey;
+import io.keystash.common.util.CryptoUtils;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.SignatureGenerationException;
+import com.auth0.jwt.exceptions.SignatureVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Signature;
+import java.util.Base64;
+
+/**
+ * The EdDSA JWS algorithm using Ed25519 keys as defined by RFC8037
+ * <p>
+ *     The auth0 library does not ship an EdDSA algorithm, so this uses the JCA implementation directly. Ed25519 is only
+ *     available from Java 15 onwards, on older runtimes signing and verification will fail.
+ * </p>
+ */
+class EdDsaAlgorithm extends Algorithm {
+
+    static final String NAME = "EdDSA";
+    static final String JAVA_ALGORITHM = "Ed25519";
+
+    private final EdDsaKey edDsaKey;
+
+    EdDsaAlgorithm(EdDsaKey edDsaKey) {
+        super(NAME, JAVA_ALGORITHM);
+        this.edDsaKey = edDsaKey;
+    }
+
+    @Override
+    public void verify(DecodedJWT jwt) throws SignatureVerificationException {
+        byte[] content = String.format("%s.%s", jwt.getHeader(), jwt.getPayload()).getBytes(StandardCharsets.UTF_8);
+
+        try {
+            Signature signature = CryptoUtils.getSignature(JAVA_ALGORITHM);
+            signature.initVerify(edDsaKey.getPublicKey());
+            signature.update(content);
+            if (!signature.verify(Base64.getUrlDecoder().decode(jwt.getSignature()))) {
+                throw new SignatureVerificationException(this);
+            }
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new SignatureVerificationException(this, e);
+        }
+    }
+
+    @Override
+    public byte[] sign(byte[] contentBytes) throws SignatureGenerationException {
+        try {
+            Signature signature = CryptoUtils.getSignature(JAVA_ALGORITHM);
+            signature.initSign(edDsaKey.getPrivateKey());
+            signature.update(contentBytes);
+            return signature.sign();
+        } catch (GeneralSecurityException e) {
+            throw new SignatureGenerationException(this, e);
+        }
+    }
+}
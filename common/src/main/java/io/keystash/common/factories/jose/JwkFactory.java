@@ -1,6 +1,7 @@
 package io.keystash.common.factories.jose;
 
 import io.keystash.common.models.jose.*;
+import io.keystash.common.util.KeyUtils;
 
 /**
  * Creates JSON Web Key instances from signing keys of different algorithms
@@ -12,6 +13,12 @@ public class JwkFactory {
         if (signingKey.getAlgorithm() == JwsAlgorithmType.RSA) {
             RsaKey rsaKey = (RsaKey) signingKey;
             jsonWebKey = new RsaJsonWebKey(rsaKey.getPublicKey().getModulus(), rsaKey.getPublicKey().getPublicExponent());
+        } else if (signingKey.getAlgorithm() == JwsAlgorithmType.ECDSA) {
+            EcKey ecKey = (EcKey) signingKey;
+            jsonWebKey = new EcJsonWebKey(ecKey.getPublicKey().getW().getAffineX(), ecKey.getPublicKey().getW().getAffineY());
+        } else if (signingKey.getAlgorithm() == JwsAlgorithmType.EDDSA) {
+            EdDsaKey edDsaKey = (EdDsaKey) signingKey;
+            jsonWebKey = new OctetKeyPairJsonWebKey(KeyUtils.getRawEdDsaPublicKey(edDsaKey.getPublicKey()));
         } else if (signingKey.getAlgorithm() == JwsAlgorithmType.HMAC) {
             HmacKey hmacKey = (HmacKey) signingKey;
             jsonWebKey = new SymmetricJsonWebKey(hmacKey.getSecret(), "HS256");
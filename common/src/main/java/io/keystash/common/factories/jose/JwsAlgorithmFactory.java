@@ -1,48 +1,130 @@
 package io.keystash.common.factories.jose;
 
 import io.keystash.common.exceptions.SigningKeyException;
+import io.keystash.common.models.jose.EcKey;
+import io.keystash.common.models.jose.EdDsaKey;
 import io.keystash.common.models.jose.HmacKey;
 import io.keystash.common.models.jose.RsaKey;
 import io.keystash.common.models.jose.SigningKey;
+import io.keystash.common.models.jose.SigningKeyStatus;
+import io.keystash.common.services.jose.SigningKeySnapshot;
+import io.keystash.common.util.CryptoUtils;
 import com.auth0.jwt.algorithms.Algorithm;
 
+import javax.crypto.Mac;
 import java.io.UnsupportedEncodingException;
-import java.util.HashSet;
-import java.util.Set;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.Signature;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Creates a new Algorithm object to be used in signing JWT
+ * <p>Algorithms are cached by key ID for as long as the key they were built from stays the same.
+ * The cache is pruned through {@link #onKeySetChanged(SigningKeySnapshot)} whenever a key changes status.</p>
  */
 public class JwsAlgorithmFactory {
 
+    private static final int ES256_SIGNATURE_LENGTH = 64;
+
+    private final Map<String, CachedAlgorithm> algorithms = new ConcurrentHashMap<>();
+
     public Algorithm createAlgorithmForSignature(SigningKey activeKey) throws SigningKeyException {
 
-        Algorithm algorithm = createAlgorithm(activeKey);
-        if (algorithm == null) {
+        CachedAlgorithm cachedAlgorithm = getCachedAlgorithm(activeKey);
+        if (cachedAlgorithm == null) {
             throw new SigningKeyException("No valid key was found to create an algorithm for.");
         }
 
-        return algorithm;
+        return cachedAlgorithm.getAlgorithm();
     }
 
-    public Set<Algorithm> createAlgorithmsForVerification(SigningKey activeKey, Set<SigningKey> passiveKeys) throws SigningKeyException {
-        Set<Algorithm> algorithms = new HashSet<>();
-        if (activeKey != null) {
-            algorithms.add(createAlgorithm(activeKey));
+    /**
+     * Checks a JWS signature against the given key without using exceptions to signal a mismatch
+     * @param signingKey the key the token claims to be signed with
+     * @param algorithmName the JWS algorithm name from the token header
+     * @param content the signing input, that is the encoded header and payload joined with a period
+     * @param signature the decoded signature bytes
+     * @return true if the signature was created by the given key using the expected algorithm, false otherwise
+     * @throws SigningKeyException if the key could not be used to create an algorithm
+     */
+    public boolean verifySignature(SigningKey signingKey, String algorithmName, byte[] content, byte[] signature)
+            throws SigningKeyException {
+        CachedAlgorithm cachedAlgorithm = getCachedAlgorithm(signingKey);
+        if (cachedAlgorithm == null || !cachedAlgorithm.getAlgorithm().getName().equals(algorithmName)) {
+            return false;
         }
 
-        for (SigningKey signingKey : passiveKeys) {
-            algorithms.add(createAlgorithm(signingKey));
+        try {
+            switch (signingKey.getAlgorithm()) {
+                case HMAC:
+                    Mac mac = CryptoUtils.getMac(signingKey.getAlgorithm().getJavaAlgorithm(), signingKey.getKid(),
+                            ((HmacKey) signingKey).getSecret());
+                    return MessageDigest.isEqual(mac.doFinal(content), signature);
+                case RSA:
+                    Signature rsaSignature = CryptoUtils.getSignature("SHA256withRSA");
+                    rsaSignature.initVerify(((RsaKey) signingKey).getPublicKey());
+                    rsaSignature.update(content);
+                    return rsaSignature.verify(signature);
+                case ECDSA:
+                    byte[] derSignature = joseToDer(signature);
+                    if (derSignature == null) {
+                        return false;
+                    }
+                    Signature ecSignature = CryptoUtils.getSignature("SHA256withECDSA");
+                    ecSignature.initVerify(((EcKey) signingKey).getPublicKey());
+                    ecSignature.update(content);
+                    return ecSignature.verify(derSignature);
+                case EDDSA:
+                    Signature edDsaSignature = CryptoUtils.getSignature(EdDsaAlgorithm.JAVA_ALGORITHM);
+                    edDsaSignature.initVerify(((EdDsaKey) signingKey).getPublicKey());
+                    edDsaSignature.update(content);
+                    return edDsaSignature.verify(signature);
+                default:
+                    return false;
+            }
+        } catch (GeneralSecurityException e) {
+            // A signature of the wrong length for the key surfaces here rather than as a false result
+            return false;
         }
+    }
 
-        return algorithms;
+    /**
+     * Drops any cached algorithm whose key is no longer usable, or whose key has been replaced
+     * @param snapshot the latest key snapshot
+     */
+    public void onKeySetChanged(SigningKeySnapshot snapshot) {
+        algorithms.entrySet().removeIf(entry -> {
+            SigningKeyStatus status = snapshot.getStatus(entry.getKey());
+            return status == null || status == SigningKeyStatus.DISABLED
+                    || snapshot.getKey(entry.getKey()) != entry.getValue().getSigningKey();
+        });
     }
 
-    private Algorithm createAlgorithm(SigningKey signingKey) throws SigningKeyException {
+    private CachedAlgorithm getCachedAlgorithm(SigningKey signingKey) throws SigningKeyException {
         if (signingKey == null) {
             return null;
         }
 
+        // Keys are only re-parsed when their material changes, so a new instance means the cached entry is stale
+        CachedAlgorithm cachedAlgorithm = algorithms.get(signingKey.getKid());
+        if (cachedAlgorithm != null && cachedAlgorithm.getSigningKey() == signingKey) {
+            return cachedAlgorithm;
+        }
+
+        Algorithm algorithm = createAlgorithm(signingKey);
+        if (algorithm == null) {
+            return null;
+        }
+
+        cachedAlgorithm = new CachedAlgorithm(signingKey, algorithm);
+        algorithms.put(signingKey.getKid(), cachedAlgorithm);
+
+        return cachedAlgorithm;
+    }
+
+    private Algorithm createAlgorithm(SigningKey signingKey) throws SigningKeyException {
         try {
             switch (signingKey.getAlgorithm()) {
                 case HMAC:
@@ -51,6 +133,11 @@ public class JwsAlgorithmFactory {
                 case RSA:
                     RsaKey rsaKey = (RsaKey) signingKey;
                     return Algorithm.RSA256(rsaKey.getPublicKey(), rsaKey.getPrivateKey());
+                case ECDSA:
+                    EcKey ecKey = (EcKey) signingKey;
+                    return Algorithm.ECDSA256(ecKey.getPublicKey(), ecKey.getPrivateKey());
+                case EDDSA:
+                    return new EdDsaAlgorithm((EdDsaKey) signingKey);
                 default:
                     return null;
             }
@@ -58,4 +145,72 @@ public class JwsAlgorithmFactory {
             throw new SigningKeyException(String.format("Failed to create algorithm using given signing key [%s]", signingKey), e);
         }
     }
+
+    /**
+     * Converts a JOSE ECDSA signature (the fixed length R and S values concatenated) into the DER form used by JCA
+     * @param joseSignature the signature from the token
+     * @return the DER encoded signature, or null if the signature is not a valid P-256 signature
+     */
+    private byte[] joseToDer(byte[] joseSignature) {
+        if (joseSignature.length != ES256_SIGNATURE_LENGTH) {
+            return null;
+        }
+
+        byte[] r = toDerInteger(joseSignature, 0, ES256_SIGNATURE_LENGTH / 2);
+        byte[] s = toDerInteger(joseSignature, ES256_SIGNATURE_LENGTH / 2, ES256_SIGNATURE_LENGTH / 2);
+        if (r == null || s == null) {
+            // Neither value can ever be zero in a genuine signature
+            return null;
+        }
+
+        int sequenceLength = 2 + r.length + 2 + s.length;
+        byte[] der = new byte[2 + sequenceLength];
+        der[0] = 0x30;
+        der[1] = (byte) sequenceLength;
+        der[2] = 0x02;
+        der[3] = (byte) r.length;
+        System.arraycopy(r, 0, der, 4, r.length);
+        der[4 + r.length] = 0x02;
+        der[5 + r.length] = (byte) s.length;
+        System.arraycopy(s, 0, der, 6 + r.length, s.length);
+
+        return der;
+    }
+
+    private byte[] toDerInteger(byte[] source, int offset, int length) {
+        int start = offset;
+        int end = offset + length;
+        while (start < end && source[start] == 0) {
+            start++;
+        }
+
+        if (start == end) {
+            return null;
+        }
+
+        // Keep the integer positive by prefixing a zero byte when the high bit is set
+        int padding = (source[start] & 0x80) != 0 ? 1 : 0;
+        byte[] integer = new byte[end - start + padding];
+        System.arraycopy(source, start, integer, padding, end - start);
+        return integer;
+    }
+
+    private static final class CachedAlgorithm {
+
+        private final SigningKey signingKey;
+        private final Algorithm algorithm;
+
+        private CachedAlgorithm(SigningKey signingKey, Algorithm algorithm) {
+            this.signingKey = signingKey;
+            this.algorithm = algorithm;
+        }
+
+        private SigningKey getSigningKey() {
+            return signingKey;
+        }
+
+        private Algorithm getAlgorithm() {
+            return algorithm;
+        }
+    }
 }
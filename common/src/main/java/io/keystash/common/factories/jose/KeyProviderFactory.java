@@ -3,8 +3,11 @@ package io.keystash.common.factories.jose;
 import io.keystash.common.exceptions.SigningKeyException;
 import io.keystash.common.models.jose.JwsAlgorithmType;
 import io.keystash.common.models.jose.KeyConfigName;
+import io.keystash.common.models.jose.SigningKeyStatus;
 import io.keystash.common.models.jpa.AppKey;
 import io.keystash.common.models.jpa.AppKeyConfig;
+import io.keystash.common.services.jose.EcKeyProvider;
+import io.keystash.common.services.jose.EdDsaKeyProvider;
 import io.keystash.common.services.jose.HmacSecretKeyProvider;
 import io.keystash.common.services.jose.KeyProvider;
 import io.keystash.common.services.jose.RsaKeyProvider;
@@ -14,6 +17,8 @@ import org.apache.commons.lang3.StringUtils;
 
 import java.security.PrivateKey;
 import java.security.PublicKey;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
 import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
 import java.util.List;
@@ -41,6 +46,12 @@ public class KeyProviderFactory {
             case RSA:
                 keyProvider = buildRsaKeyProvider(appKey.getId(), appKey.getConfigs());
                 break;
+            case ECDSA:
+                keyProvider = buildEcKeyProvider(appKey.getId(), appKey.getConfigs());
+                break;
+            case EDDSA:
+                keyProvider = buildEdDsaKeyProvider(appKey.getId(), appKey.getConfigs());
+                break;
             default:
                 keyProvider = null;
                 break;
@@ -49,10 +60,34 @@ public class KeyProviderFactory {
         return keyProvider;
     }
 
+    /**
+     * Resolve the status of a persistent app key without building or parsing the key itself
+     * @param appKey the app key entity
+     * @return the status of the key
+     */
+    public SigningKeyStatus getKeyStatus(AppKey appKey) {
+        if (Boolean.parseBoolean(getConfigValueByName(appKey.getConfigs(), KeyConfigName.ACTIVE))) {
+            return SigningKeyStatus.ACTIVE;
+        } else if (Boolean.parseBoolean(getConfigValueByName(appKey.getConfigs(), KeyConfigName.PASSIVE))) {
+            return SigningKeyStatus.PASSIVE;
+        }
+
+        return SigningKeyStatus.DISABLED;
+    }
+
+    /**
+     * Gets the key ID that is published for a persistent app key
+     * @param appKeyId the ID of the app key entity
+     * @return the key ID used in token headers and the JWKS
+     */
+    public String getKeyId(int appKeyId) {
+        return UUID.nameUUIDFromBytes(String.valueOf(appKeyId).getBytes()).toString();
+    }
+
     private HmacSecretKeyProvider buildHmacKeyProvider(int keyId, List<AppKeyConfig> appKeyConfigs) {
         boolean isActive = Boolean.parseBoolean(getConfigValueByName(appKeyConfigs, KeyConfigName.ACTIVE));
         boolean isPassive = Boolean.parseBoolean(getConfigValueByName(appKeyConfigs, KeyConfigName.PASSIVE));
-        String kid = UUID.nameUUIDFromBytes(String.valueOf(keyId).getBytes()).toString();
+        String kid = getKeyId(keyId);
         String secret = getConfigValueByName(appKeyConfigs, KeyConfigName.SECRET);
 
         return new HmacSecretKeyProvider(kid, secret, isActive, isPassive);
@@ -61,7 +96,7 @@ public class KeyProviderFactory {
     private RsaKeyProvider buildRsaKeyProvider(int keyId, List<AppKeyConfig> appKeyConfigs) {
         boolean isActive = Boolean.parseBoolean(getConfigValueByName(appKeyConfigs, KeyConfigName.ACTIVE));
         boolean isPassive = Boolean.parseBoolean(getConfigValueByName(appKeyConfigs, KeyConfigName.PASSIVE));
-        String kid = UUID.nameUUIDFromBytes(String.valueOf(keyId).getBytes()).toString();
+        String kid = getKeyId(keyId);
 
         PrivateKey privateKey = null;
         PublicKey publicKey = null;
@@ -80,6 +115,49 @@ public class KeyProviderFactory {
         return new RsaKeyProvider(kid, (RSAPublicKey) publicKey, (RSAPrivateKey) privateKey, isActive, isPassive);
     }
 
+    private EcKeyProvider buildEcKeyProvider(int keyId, List<AppKeyConfig> appKeyConfigs) {
+        boolean isActive = Boolean.parseBoolean(getConfigValueByName(appKeyConfigs, KeyConfigName.ACTIVE));
+        boolean isPassive = Boolean.parseBoolean(getConfigValueByName(appKeyConfigs, KeyConfigName.PASSIVE));
+        String kid = getKeyId(keyId);
+
+        PrivateKey privateKey = null;
+        PublicKey publicKey = null;
+
+        try {
+            privateKey = KeyUtils.getPrivateKeyFromString(getConfigValueByName(appKeyConfigs, KeyConfigName.PRIVATE_KEY), JwsAlgorithmType.ECDSA);
+            publicKey = KeyUtils.getPublicKeyFromString(getConfigValueByName(appKeyConfigs, KeyConfigName.PUBLIC_KEY), JwsAlgorithmType.ECDSA);
+        } catch (SigningKeyException e) {
+            log.warn("Failed to get private or public key... EC signing of tokens using this key will likely fail.", e);
+        }
+
+        if ((publicKey != null && !KeyUtils.isP256Key((ECPublicKey) publicKey))
+                || (privateKey != null && !KeyUtils.isP256Key((ECPrivateKey) privateKey))) {
+            log.error("Key [{}] is not on the P-256 curve, only P-256 keys can be used for ES256. The key will not be " +
+                    "loaded.", kid);
+            return null;
+        }
+
+        return new EcKeyProvider(kid, (ECPublicKey) publicKey, (ECPrivateKey) privateKey, isActive, isPassive);
+    }
+
+    private EdDsaKeyProvider buildEdDsaKeyProvider(int keyId, List<AppKeyConfig> appKeyConfigs) {
+        boolean isActive = Boolean.parseBoolean(getConfigValueByName(appKeyConfigs, KeyConfigName.ACTIVE));
+        boolean isPassive = Boolean.parseBoolean(getConfigValueByName(appKeyConfigs, KeyConfigName.PASSIVE));
+        String kid = getKeyId(keyId);
+
+        PrivateKey privateKey = null;
+        PublicKey publicKey = null;
+
+        try {
+            privateKey = KeyUtils.getPrivateKeyFromString(getConfigValueByName(appKeyConfigs, KeyConfigName.PRIVATE_KEY), JwsAlgorithmType.EDDSA);
+            publicKey = KeyUtils.getPublicKeyFromString(getConfigValueByName(appKeyConfigs, KeyConfigName.PUBLIC_KEY), JwsAlgorithmType.EDDSA);
+        } catch (SigningKeyException e) {
+            log.warn("Failed to get private or public key... EdDSA signing of tokens using this key will likely fail.", e);
+        }
+
+        return new EdDsaKeyProvider(kid, publicKey, privateKey, isActive, isPassive);
+    }
+
     private String getConfigValueByName(List<AppKeyConfig> appKeyConfigs, KeyConfigName keyConfigName) {
         return appKeyConfigs.stream()
                 .filter(config -> config.getName() != null && keyConfigName.getValue().equals(config.getName()))
@@ -0,0 +1,64 @@
+package io.keystash.common.models.jose;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.math.BigInteger;
+import java.util.Base64;
+
+/**
+ * A JSON Web Key that uses an elliptic curve public key on the P-256 curve
+ */
+@ToString
+@EqualsAndHashCode(callSuper = true)
+public class EcJsonWebKey extends JsonWebKey {
+
+    private static final int P256_COORDINATE_LENGTH = 32;
+
+    /**
+     * The curve the key belongs to
+     */
+    @JsonProperty("crv")
+    @Getter private final String curve;
+
+    /**
+     * The x coordinate of the public point, represented as a Base64url-encoded value
+     */
+    @JsonProperty("x")
+    @Getter private final String x;
+
+    /**
+     * The y coordinate of the public point, represented as a Base64url-encoded value
+     */
+    @JsonProperty("y")
+    @Getter private final String y;
+
+    public EcJsonWebKey(BigInteger xCoordinate, BigInteger yCoordinate) {
+        this.setAlgorithm("ES256");
+        this.setKeyType(JwaKeyType.EC);
+
+        this.curve = "P-256";
+        this.x = encodeCoordinate(xCoordinate);
+        this.y = encodeCoordinate(yCoordinate);
+    }
+
+    /**
+     * Coordinates must be the full size of the curve, so the sign byte is dropped and short values are left padded
+     * @throws IllegalArgumentException if the coordinate does not fit the P-256 curve
+     */
+    private static String encodeCoordinate(BigInteger coordinate) {
+        if (coordinate.signum() < 0 || coordinate.bitLength() > P256_COORDINATE_LENGTH * 8) {
+            throw new IllegalArgumentException(String.format("Coordinate of %d bits is not a P-256 coordinate",
+                    coordinate.bitLength()));
+        }
+
+        byte[] bytes = coordinate.toByteArray();
+        byte[] padded = new byte[P256_COORDINATE_LENGTH];
+        int length = Math.min(bytes.length, P256_COORDINATE_LENGTH);
+        System.arraycopy(bytes, bytes.length - length, padded, P256_COORDINATE_LENGTH - length, length);
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(padded);
+    }
+}
@@ -0,0 +1,24 @@
+package io.keystash.common.models.jose;
+
+import lombok.*;
+
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+
+/**
+ * Represents a key with public/private keys on the P-256 curve, used with the ES256 algorithm
+ */
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class EcKey implements PublicPrivateKey {
+
+    @Getter private final String kid;
+    @Getter private final ECPublicKey publicKey;
+    @Getter private final ECPrivateKey privateKey;
+
+    @Override
+    public JwsAlgorithmType getAlgorithm() {
+        return JwsAlgorithmType.ECDSA;
+    }
+}
@@ -0,0 +1,24 @@
+package io.keystash.common.models.jose;
+
+import lombok.*;
+
+import java.security.PrivateKey;
+import java.security.PublicKey;
+
+/**
+ * Represents a key with public/private Ed25519 keys, used with the EdDSA algorithm
+ */
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class EdDsaKey implements PublicPrivateKey {
+
+    @Getter private final String kid;
+    @Getter private final PublicKey publicKey;
+    @Getter private final PrivateKey privateKey;
+
+    @Override
+    public JwsAlgorithmType getAlgorithm() {
+        return JwsAlgorithmType.EDDSA;
+    }
+}
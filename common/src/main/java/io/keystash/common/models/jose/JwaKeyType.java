@@ -12,7 +12,8 @@ public enum JwaKeyType {
 
     EC("EC"),
     RSA("RSA"),
-    OCT("oct");
+    OCT("oct"),
+    OKP("OKP");
 
     private final String ktyValue;
 
@@ -6,7 +6,8 @@ public enum JwsAlgorithmType {
     RSA(null),
     HMAC("HmacSHA256"),
     AES("AES"),
-    ECDSA(null);
+    ECDSA(null),
+    EDDSA(null);
 
     @Getter private final String javaAlgorithm;
 
@@ -8,7 +8,10 @@ public enum KeyConfigName {
     PRIVATE_KEY("privateKey"),
     SECRET("secret"),
     ACTIVE("active"),
-    PASSIVE("passive");
+    PASSIVE("passive"),
+    CREATED_AT("createdAt"),
+    ACTIVATE_AT("activateAt"),
+    RETIRE_AT("retireAt");
 
     @Getter private final String value;
 
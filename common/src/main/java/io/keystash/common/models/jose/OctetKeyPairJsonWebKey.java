@@ -0,0 +1,36 @@
+package io.keystash.common.models.jose;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Base64;
+
+/**
+ * A JSON Web Key that uses an Ed25519 public key as defined by RFC8037
+ */
+@ToString
+@EqualsAndHashCode(callSuper = true)
+public class OctetKeyPairJsonWebKey extends JsonWebKey {
+
+    /**
+     * The curve the key belongs to
+     */
+    @JsonProperty("crv")
+    @Getter private final String curve;
+
+    /**
+     * The raw public key, represented as a Base64url-encoded value
+     */
+    @JsonProperty("x")
+    @Getter private final String publicKey;
+
+    public OctetKeyPairJsonWebKey(byte[] publicKey) {
+        this.setAlgorithm("EdDSA");
+        this.setKeyType(JwaKeyType.OKP);
+
+        this.curve = "Ed25519";
+        this.publicKey = Base64.getUrlEncoder().withoutPadding().encodeToString(publicKey);
+    }
+}
@@ -0,0 +1,41 @@
+package io.keystash.common.models.jose;
+
+/**
+ * The outcome of verifying a signed JSON Web Token
+ */
+public enum TokenVerificationResult {
+
+    /**
+     * The signature and time claims are all valid
+     */
+    VALID,
+
+    /**
+     * The token was signed correctly, but its expiry time has passed
+     */
+    EXPIRED,
+
+    /**
+     * The token was signed correctly, but is not valid yet according to its not before or issued at claims
+     */
+    NOT_YET_VALID,
+
+    /**
+     * The signature does not match the key referenced by the token, or was created with a different algorithm
+     */
+    INVALID_SIGNATURE,
+
+    /**
+     * The token does not reference a key that can currently be used for verification
+     */
+    UNKNOWN_KEY,
+
+    /**
+     * The token could not be decoded at all
+     */
+    MALFORMED;
+
+    public boolean isValid() {
+        return this == VALID;
+    }
+}
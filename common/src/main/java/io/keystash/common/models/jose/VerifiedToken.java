@@ -0,0 +1,62 @@
+package io.keystash.common.models.jose;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable view of a token that has been decoded and verified once
+ * <p>
+ *     Claims are only exposed when the signature was verified against a known key. Only claims holding string values
+ *     are available through {@link #getClaim(String)}.
+ * </p>
+ */
+@ToString(exclude = "token")
+public final class VerifiedToken {
+
+    @Getter private final String token;
+    @Getter private final String keyId;
+    @Getter private final TokenVerificationResult verificationResult;
+
+    /**
+     * The expiry time of the token in seconds since the epoch, or 0 if the token does not expire
+     */
+    @Getter private final long expiresAt;
+
+    @Getter private final Map<String, String> claims;
+
+    public VerifiedToken(String token, String keyId, TokenVerificationResult verificationResult, long expiresAt,
+                         Map<String, String> claims) {
+        this.token = token;
+        this.keyId = keyId;
+        this.verificationResult = verificationResult;
+        this.expiresAt = expiresAt;
+        this.claims = Collections.unmodifiableMap(new HashMap<>(claims));
+    }
+
+    /**
+     * Create a view for a token that could not be verified, exposing no claims
+     * @param token the token that was checked
+     * @param verificationResult the reason the token could not be verified
+     * @return a view of the unverified token
+     */
+    public static VerifiedToken unverified(String token, TokenVerificationResult verificationResult) {
+        return new VerifiedToken(token, null, verificationResult, 0, Collections.emptyMap());
+    }
+
+    public boolean isValid() {
+        return verificationResult.isValid();
+    }
+
+    /**
+     * Gets the value of a string claim
+     * @param claim the claim name
+     * @return the claim value, or null if the claim does not exist or is not a string
+     */
+    public String getClaim(String claim) {
+        return claims.get(claim);
+    }
+}
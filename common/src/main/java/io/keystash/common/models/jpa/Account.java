@@ -34,4 +34,8 @@ public class Account implements Serializable {
 
     @Column(name = "facebook_id")
     @Getter @Setter private String facebookId;
+
+    @Version
+    @Column(nullable = false, name = "version")
+    @Getter @Setter private long version;
 }
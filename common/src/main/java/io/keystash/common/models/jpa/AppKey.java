@@ -13,8 +13,24 @@ import java.util.List;
 @ToString
 @EqualsAndHashCode
 @Entity(name = "app_key")
+@NamedQueries({
+        @NamedQuery(name = AppKey.FIND_ALL, query = "select k from app_key k left join fetch k.configs"),
+        @NamedQuery(name = AppKey.GET_KEY_SET_VERSION, query = "select count(k), coalesce(max(k.id), 0), " +
+                "coalesce(sum(k.version), 0) from app_key k")
+})
 public class AppKey implements Serializable {
 
+    /**
+     * Fetches every key, along with its configs, in a single query
+     */
+    public static final String FIND_ALL = "AppKey.findAll";
+
+    /**
+     * Fetches the number of keys, the highest key ID and the sum of the key versions, which together change whenever
+     * a key is added, removed or updated
+     */
+    public static final String GET_KEY_SET_VERSION = "AppKey.getKeySetVersion";
+
     @Id
     @Column(name = "id")
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -26,6 +42,10 @@ public class AppKey implements Serializable {
     @Column(nullable = false, name = "algorithm")
     @Getter private String algorithm;
 
+    @Version
+    @Column(nullable = false, name = "version")
+    @Getter @Setter private long version;
+
     @OneToMany(mappedBy = "appKey", fetch = FetchType.EAGER, cascade = CascadeType.ALL)
     @Getter @Setter private List<AppKeyConfig> configs;
 
@@ -8,8 +8,8 @@ import lombok.ToString;
 import javax.persistence.*;
 import java.io.Serializable;
 
-@ToString
-@EqualsAndHashCode
+@ToString(exclude = "appKey")
+@EqualsAndHashCode(exclude = "appKey")
 @Entity(name = "app_key_config")
 public class AppKeyConfig implements Serializable {
 
@@ -17,8 +17,15 @@ import java.util.stream.Stream;
 @ToString
 @EqualsAndHashCode
 @Entity(name = "platform_client")
+@NamedQuery(name = PlatformClient.FIND_BY_CLIENT_ID, query = "select c from platform_client c " +
+        "join fetch c.account left join fetch c.redirectUris where c.clientId = :clientId")
 public class PlatformClient implements Serializable {
 
+    /**
+     * Fetches a client by its client ID, along with its account and redirect URIs, in a single query
+     */
+    public static final String FIND_BY_CLIENT_ID = "PlatformClient.findByClientId";
+
     @Id
     @Column(name = "id")
     @GeneratedValue(strategy = GenerationType.IDENTITY)
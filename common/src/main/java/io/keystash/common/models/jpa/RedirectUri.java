@@ -6,6 +6,7 @@ import lombok.Setter;
 import lombok.ToString;
 
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
@@ -17,7 +18,8 @@ import java.io.Serializable;
 public class RedirectUri implements Serializable {
 
     @Id
-    @ManyToOne
+    // Lazy, so loading a client with its redirect URIs does not load the client a second time
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(nullable = false, name = "platform_client_id")
     @Getter @Setter private PlatformClient platformClient;
 
@@ -0,0 +1,32 @@
+package io.keystash.common.models.metrics;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A snapshot of how often a cache was able to serve a lookup
+ */
+@ToString
+@EqualsAndHashCode
+public final class CacheStatistics {
+
+    @Getter private final long hitCount;
+    @Getter private final long missCount;
+    @Getter private final long evictionCount;
+
+    public CacheStatistics(long hitCount, long missCount, long evictionCount) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+    }
+
+    /**
+     * Gets the share of lookups that were hits
+     * @return the hit rate, or 1 if there have been no lookups
+     */
+    public double getHitRate() {
+        long requestCount = hitCount + missCount;
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+}
@@ -9,6 +9,7 @@ import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Root;
 import java.util.List;
+import java.util.Locale;
 
 public class AccountDao {
 
@@ -23,16 +24,38 @@ public class AccountDao {
         return jpaEntityDao.getEntityById(Account.class, id);
     }
 
+    /**
+     * Gets an account by its email
+     * <p>Emails are compared trimmed and lower cased on both sides, so the stored case of an email does not matter</p>
+     * @param email the email
+     * @return the account, or null if there is no such account
+     * @throws JpaExecutionException if the account could not be loaded
+     */
     public Account getAccountByEmail(String email) throws JpaExecutionException {
+        String normalisedEmail = email.trim().toLowerCase(Locale.ROOT);
         return jpaEntityDao.doWork(session -> {
             CriteriaBuilder criteriaBuilder = session.getCriteriaBuilder();
             CriteriaQuery<Account> query = criteriaBuilder.createQuery(Account.class);
             Root<Account> accountRoot = query.from(Account.class);
 
-            query.select(accountRoot).where(criteriaBuilder.equal(accountRoot.get("email"), email));
+            query.select(accountRoot).where(criteriaBuilder.equal(
+                    criteriaBuilder.lower(criteriaBuilder.trim(accountRoot.get("email"))), normalisedEmail));
             List<Account> accountList = session.createQuery(query).getResultList();
 
             return accountList.size() > 0 ? accountList.get(0) : null;
         });
     }
+
+    public Long getAccountVersion(int id) throws JpaExecutionException {
+        return jpaEntityDao.doWork(session -> {
+            CriteriaBuilder criteriaBuilder = session.getCriteriaBuilder();
+            CriteriaQuery<Long> query = criteriaBuilder.createQuery(Long.class);
+            Root<Account> accountRoot = query.from(Account.class);
+
+            query.select(accountRoot.<Long>get("version")).where(criteriaBuilder.equal(accountRoot.get("id"), id));
+            List<Long> versionList = session.createQuery(query).getResultList();
+
+            return versionList.size() > 0 ? versionList.get(0) : null;
+        });
+    }
 }
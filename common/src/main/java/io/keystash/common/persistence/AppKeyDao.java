@@ -6,7 +6,8 @@ import io.keystash.common.persistence.JpaEntityDao;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.inject.Inject;
-import java.util.List;
+import javax.persistence.LockModeType;
+import java.util.*;
 
 @Slf4j
 public class AppKeyDao {
@@ -18,7 +19,68 @@ public class AppKeyDao {
         this.jpaEntityDao = jpaEntityDao;
     }
 
+    /**
+     * Gets every key along with its configs, in a single query
+     * @return the keys
+     * @throws JpaExecutionException if the keys could not be read
+     */
     public List<AppKey> getKeys() throws JpaExecutionException {
-        return jpaEntityDao.getEntities(AppKey.class);
+        return jpaEntityDao.doWork(entityManager -> {
+            // The config join repeats each key once per config, so the rows are collapsed back to distinct keys. Keys
+            // and configs refer to each other, so they are compared by identity rather than by equals
+            List<AppKey> rows = entityManager.createNamedQuery(AppKey.FIND_ALL, AppKey.class).getResultList();
+            Set<AppKey> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            List<AppKey> appKeys = new ArrayList<>();
+            for (AppKey appKey : rows) {
+                if (seen.add(appKey)) {
+                    appKeys.add(appKey);
+                }
+            }
+
+            return appKeys;
+        });
+    }
+
+    /**
+     * Gets a stamp of the whole key set, which is cheap to read and changes whenever a key is written through this dao
+     * @return the number of keys, the highest key ID and the sum of the key versions
+     * @throws JpaExecutionException if the stamp could not be read
+     */
+    public List<Long> getKeySetVersion() throws JpaExecutionException {
+        return jpaEntityDao.doWork(entityManager -> {
+            Object[] row = entityManager.createNamedQuery(AppKey.GET_KEY_SET_VERSION, Object[].class).getSingleResult();
+            List<Long> version = new ArrayList<>(row.length);
+            for (Object column : row) {
+                version.add(column != null ? ((Number) column).longValue() : 0);
+            }
+
+            return version;
+        });
+    }
+
+    public void saveKey(AppKey appKey) throws JpaExecutionException {
+        updateKeys(Collections.singletonList(appKey));
+    }
+
+    /**
+     * Writes all given keys, along with their configs, in a single transaction
+     * <p>
+     *     New keys are inserted. The version of every existing key is checked and incremented, even when only its
+     *     configs changed, so the whole write fails if any of the keys was changed elsewhere since it was read.
+     * </p>
+     * @param appKeys the keys to write
+     * @throws JpaExecutionException if any of the keys could not be written, or was changed elsewhere
+     */
+    public void updateKeys(Collection<AppKey> appKeys) throws JpaExecutionException {
+        jpaEntityDao.doWork(entityManager -> {
+            for (AppKey appKey : appKeys) {
+                if (appKey.getId() == 0) {
+                    entityManager.persist(appKey);
+                } else {
+                    entityManager.lock(entityManager.merge(appKey), LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+                }
+            }
+            return null;
+        });
     }
 }
@@ -6,9 +6,6 @@ import io.keystash.common.persistence.JpaEntityDao;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.inject.Inject;
-import javax.persistence.criteria.CriteriaBuilder;
-import javax.persistence.criteria.CriteriaQuery;
-import javax.persistence.criteria.Root;
 import java.util.List;
 
 @Slf4j
@@ -23,12 +20,10 @@ public class PlatformClientDao {
 
     public PlatformClient getPlatformClientByClientId(String clientId) throws JpaExecutionException {
         return jpaEntityDao.doWork(session -> {
-            CriteriaBuilder criteriaBuilder = session.getCriteriaBuilder();
-            CriteriaQuery<PlatformClient> query = criteriaBuilder.createQuery(PlatformClient.class);
-            Root<PlatformClient> platformClientRoot = query.from(PlatformClient.class);
-
-            query.select(platformClientRoot).where(criteriaBuilder.equal(platformClientRoot.get("clientId"), clientId));
-            List<PlatformClient> clientList = session.createQuery(query).getResultList();
+            // The redirect URI join repeats the client once per URI, each row resolving to the same instance
+            List<PlatformClient> clientList = session.createNamedQuery(PlatformClient.FIND_BY_CLIENT_ID, PlatformClient.class)
+                    .setParameter("clientId", clientId)
+                    .getResultList();
 
             return clientList.size() > 0 ? clientList.get(0) : null;
         });
@@ -28,6 +28,10 @@ public final class HibernateConfigurationUtil {
     public static void close() {
         if (registry != null) StandardServiceRegistryBuilder.destroy(registry);
         if (sessionFactory != null) sessionFactory.close();
+
+        // Allow initialize to build a fresh session factory afterwards
+        registry = null;
+        sessionFactory = null;
     }
 
     public static SessionFactory getSessionFactory() {
@@ -0,0 +1,152 @@
+package io.keystash.common.services.account;
+
+import io.keystash.common.exceptions.jpa.JpaExecutionException;
+import io.keystash.common.models.jpa.Account;
+import io.keystash.common.persistence.AccountDao;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import javax.inject.Inject;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A cache of accounts in front of {@link AccountDao}, indexed by account ID and by normalised email
+ * <p>
+ *     Emails are normalised by trimming and lower casing them, and {@link AccountDao} compares the stored emails the
+ *     same way, so an account is found whatever the case its email was stored in. Emails that match no account are
+ *     remembered for a short time, so that floods of logins for unknown emails do not reach the database every time.
+ * </p>
+ * <p>
+ *     A cached account is trusted for a few seconds. After that its version column is read before it is served again,
+ *     and the account is only loaded again if the version has changed, which happens whenever the account is updated.
+ * </p>
+ */
+public class AccountRegistry {
+
+    private static final long ACCOUNT_EXPIRY_MINUTES = 10;
+    private static final long VERSION_CHECK_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final long UNKNOWN_EMAIL_EXPIRY_SECONDS = 30;
+    private static final long MAXIMUM_ACCOUNTS = 10000;
+    private static final long MAXIMUM_UNKNOWN_EMAILS = 100000;
+
+    private final AccountDao accountDao;
+    private final Cache<Integer, CachedAccount> accountsById;
+    private final Cache<String, Integer> accountIdsByEmail;
+    private final Cache<String, Boolean> unknownEmails;
+
+    @Inject
+    public AccountRegistry(AccountDao accountDao) {
+        this.accountDao = accountDao;
+        this.accountsById = CacheBuilder.newBuilder()
+                .expireAfterWrite(ACCOUNT_EXPIRY_MINUTES, TimeUnit.MINUTES)
+                .maximumSize(MAXIMUM_ACCOUNTS)
+                .build();
+        this.accountIdsByEmail = CacheBuilder.newBuilder()
+                .expireAfterWrite(ACCOUNT_EXPIRY_MINUTES, TimeUnit.MINUTES)
+                .maximumSize(MAXIMUM_ACCOUNTS)
+                .build();
+        this.unknownEmails = CacheBuilder.newBuilder()
+                .expireAfterWrite(UNKNOWN_EMAIL_EXPIRY_SECONDS, TimeUnit.SECONDS)
+                .maximumSize(MAXIMUM_UNKNOWN_EMAILS)
+                .build();
+    }
+
+    /**
+     * Gets an account by its ID, loading it from the database if it is not cached or has changed
+     * @param id the account ID
+     * @return the account, or null if there is no such account
+     * @throws JpaExecutionException if the account could not be loaded
+     */
+    public Account getAccountById(int id) throws JpaExecutionException {
+        CachedAccount cached = accountsById.getIfPresent(id);
+        if (cached != null && isCurrent(cached)) {
+            return cached.account;
+        }
+
+        Account account = accountDao.getAccountById(id);
+        if (account == null) {
+            accountsById.invalidate(id);
+            return null;
+        }
+
+        cache(account);
+        return account;
+    }
+
+    /**
+     * Gets an account by its email, loading it from the database if it is not cached or has changed
+     * @param email the email, compared without regard to case or surrounding whitespace
+     * @return the account, or null if there is no such account
+     * @throws JpaExecutionException if the account could not be loaded
+     */
+    public Account getAccountByEmail(String email) throws JpaExecutionException {
+        String normalisedEmail = normaliseEmail(email);
+        if (normalisedEmail == null || unknownEmails.getIfPresent(normalisedEmail) != null) {
+            return null;
+        }
+
+        Integer id = accountIdsByEmail.getIfPresent(normalisedEmail);
+        CachedAccount cached = id != null ? accountsById.getIfPresent(id) : null;
+
+        // The account may have changed its email since it was indexed
+        if (cached != null && normalisedEmail.equals(normaliseEmail(cached.account.getEmail())) && isCurrent(cached)) {
+            return cached.account;
+        }
+
+        Account account = accountDao.getAccountByEmail(normalisedEmail);
+        if (account == null) {
+            accountIdsByEmail.invalidate(normalisedEmail);
+            unknownEmails.put(normalisedEmail, Boolean.TRUE);
+            return null;
+        }
+
+        cache(account);
+        return account;
+    }
+
+    /**
+     * Checks a cached account against the version in the database, once its version check interval has passed
+     */
+    private boolean isCurrent(CachedAccount cached) throws JpaExecutionException {
+        long now = System.currentTimeMillis();
+        if (now - cached.checkedAt < VERSION_CHECK_INTERVAL_MILLIS) {
+            return true;
+        }
+
+        Long version = accountDao.getAccountVersion(cached.account.getId());
+        if (version == null || version != cached.account.getVersion()) {
+            return false;
+        }
+
+        cached.checkedAt = now;
+        return true;
+    }
+
+    private void cache(Account account) {
+        // A slower load must not replace a newer version of the account
+        accountsById.asMap().compute(account.getId(), (id, existing) ->
+                existing != null && existing.account.getVersion() > account.getVersion() ? existing : new CachedAccount(account));
+
+        String normalisedEmail = normaliseEmail(account.getEmail());
+        if (normalisedEmail != null) {
+            accountIdsByEmail.put(normalisedEmail, account.getId());
+            unknownEmails.invalidate(normalisedEmail);
+        }
+    }
+
+    private static String normaliseEmail(String email) {
+        return email != null ? email.trim().toLowerCase(Locale.ROOT) : null;
+    }
+
+    private static final class CachedAccount {
+
+        private final Account account;
+        private volatile long checkedAt;
+
+        private CachedAccount(Account account) {
+            this.account = account;
+            this.checkedAt = System.currentTimeMillis();
+        }
+    }
+}
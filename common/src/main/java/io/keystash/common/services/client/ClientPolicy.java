@@ -0,0 +1,107 @@
+package io.keystash.common.services.client;
+
+import io.keystash.common.models.jpa.Account;
+import io.keystash.common.models.jpa.PlatformClient;
+import io.keystash.common.models.jpa.RedirectUri;
+import io.keystash.common.models.oauth.OAuth2GrantType;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.net.URI;
+import java.util.*;
+
+/**
+ * An immutable, precompiled view of what a platform client is allowed to do
+ * <p>
+ *     The grant types, scopes and redirect URIs of a client are parsed once, when the client is loaded, so that
+ *     checking a request against them is a set lookup rather than parsing the stored client on every request. The
+ *     policy copies what it needs out of the stored client and keeps no reference to it, so it can be shared between
+ *     threads for as long as it is cached.
+ * </p>
+ */
+public final class ClientPolicy {
+
+    @Getter private final String clientId;
+    @Getter private final String clientSecret;
+    @Getter private final int accountId;
+    @Getter private final String accountEmail;
+    @Getter private final Set<String> scopes;
+
+    private final Set<OAuth2GrantType> grantTypes;
+    private final Set<RedirectKey> redirectUris;
+
+    private ClientPolicy(PlatformClient platformClient) {
+        this.clientId = platformClient.getClientId();
+        this.clientSecret = platformClient.getClientSecret();
+
+        Account account = platformClient.getAccount();
+        this.accountId = account != null ? account.getId() : 0;
+        this.accountEmail = account != null ? account.getEmail() : null;
+
+        Set<String> scopes = new LinkedHashSet<>();
+        if (platformClient.getScope() != null) {
+            for (String scope : platformClient.getScope().split(",")) {
+                scopes.add(scope.intern());
+            }
+        }
+        this.scopes = Collections.unmodifiableSet(scopes);
+
+        EnumSet<OAuth2GrantType> grantTypes = EnumSet.noneOf(OAuth2GrantType.class);
+        if (platformClient.getAuthorizedGrantTypesStr() != null) {
+            grantTypes.addAll(platformClient.getAuthorizedGrantTypes());
+        }
+        this.grantTypes = Collections.unmodifiableSet(grantTypes);
+
+        Set<RedirectKey> redirectUris = new HashSet<>();
+        if (platformClient.getRedirectUris() != null) {
+            for (RedirectUri redirectUri : platformClient.getRedirectUris()) {
+                redirectUris.add(new RedirectKey(URI.create(redirectUri.getValue())));
+            }
+        }
+        this.redirectUris = Collections.unmodifiableSet(redirectUris);
+    }
+
+    /**
+     * Compiles the policy of a client
+     * @param platformClient the client as stored
+     * @return the client's policy
+     */
+    public static ClientPolicy compile(PlatformClient platformClient) {
+        return new ClientPolicy(platformClient);
+    }
+
+    /**
+     * Returns true if the client may use the given grant type, false otherwise
+     * @param grantType the grant type
+     * @return true or false depending on whether the grant type is authorized
+     */
+    public boolean isGrantTypeAllowed(OAuth2GrantType grantType) {
+        return grantTypes.contains(grantType);
+    }
+
+    /**
+     * Returns true if the given redirect URI was registered for the client, false otherwise
+     * <p>Query parameters and fragments are disregarded, the scheme, host, port and path must match exactly</p>
+     * @param requestedUri the redirect URI of a request
+     * @return true or false depending on whether the redirect URI is registered
+     */
+    public boolean isRedirectUriAllowed(String requestedUri) {
+        return redirectUris.contains(new RedirectKey(URI.create(requestedUri)));
+    }
+
+    @EqualsAndHashCode
+    private static final class RedirectKey {
+
+        private final String scheme;
+        private final String host;
+        private final int port;
+        private final String path;
+
+        private RedirectKey(URI uri) {
+            this.scheme = uri.getScheme();
+            this.host = uri.getHost();
+            this.port = uri.getPort();
+            this.path = uri.getPath();
+        }
+    }
+}
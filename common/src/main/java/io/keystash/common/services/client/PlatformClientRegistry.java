@@ -0,0 +1,130 @@
+package io.keystash.common.services.client;
+
+import io.keystash.common.exceptions.jpa.JpaExecutionException;
+import io.keystash.common.models.jpa.PlatformClient;
+import io.keystash.common.persistence.PlatformClientDao;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import javax.inject.Inject;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A read-through cache of platform clients in front of {@link PlatformClientDao}
+ * <p>
+ *     Clients are compiled into a {@link ClientPolicy} when they are loaded and kept for a few minutes, and client
+ *     IDs that match no client are remembered for a short time, so that requests for unknown clients do not reach
+ *     the database every time. Concurrent lookups of the same client share a single load.
+ * </p>
+ * <p>
+ *     Auth core and the admin console run as separate applications in the same JVM, each with its own registry.
+ *     Invalidating a client drops it from every registry in the JVM, so changes made through the admin console take
+ *     effect immediately. Other nodes pick up changes once their cached copy expires.
+ * </p>
+ */
+public class PlatformClientRegistry {
+
+    private static final long CLIENT_EXPIRY_MINUTES = 5;
+    private static final long UNKNOWN_CLIENT_EXPIRY_SECONDS = 30;
+    private static final long MAXIMUM_CLIENTS = 10000;
+    private static final long MAXIMUM_UNKNOWN_CLIENTS = 100000;
+
+    private static final Set<PlatformClientRegistry> REGISTRIES = Collections.synchronizedSet(
+            Collections.newSetFromMap(new WeakHashMap<>()));
+
+    private final PlatformClientDao platformClientDao;
+    private final Cache<String, ClientPolicy> clients;
+    private final Cache<String, Boolean> unknownClientIds;
+
+    @Inject
+    public PlatformClientRegistry(PlatformClientDao platformClientDao) {
+        this.platformClientDao = platformClientDao;
+        this.clients = CacheBuilder.newBuilder()
+                .expireAfterWrite(CLIENT_EXPIRY_MINUTES, TimeUnit.MINUTES)
+                .maximumSize(MAXIMUM_CLIENTS)
+                .build();
+        this.unknownClientIds = CacheBuilder.newBuilder()
+                .expireAfterWrite(UNKNOWN_CLIENT_EXPIRY_SECONDS, TimeUnit.SECONDS)
+                .maximumSize(MAXIMUM_UNKNOWN_CLIENTS)
+                .build();
+
+        REGISTRIES.add(this);
+    }
+
+    /**
+     * Gets the policy of a client by its client ID, loading the client from the database if it is not cached
+     * @param clientId the client ID
+     * @return the client's policy, or null if there is no such client
+     * @throws JpaExecutionException if the client could not be loaded
+     */
+    public ClientPolicy getClientPolicy(String clientId) throws JpaExecutionException {
+        if (clientId == null || unknownClientIds.getIfPresent(clientId) != null) {
+            return null;
+        }
+
+        try {
+            return clients.get(clientId, () -> {
+                PlatformClient client = platformClientDao.getPlatformClientByClientId(clientId);
+                if (client == null) {
+                    throw new UnknownClientException();
+                }
+
+                return ClientPolicy.compile(client);
+            });
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UnknownClientException) {
+                unknownClientIds.put(clientId, Boolean.TRUE);
+                return null;
+            }
+
+            if (e.getCause() instanceof JpaExecutionException) {
+                throw (JpaExecutionException) e.getCause();
+            }
+
+            throw new JpaExecutionException(String.format("Unable to load client [%s]", clientId), e.getCause());
+        } catch (UncheckedExecutionException e) {
+            throw new JpaExecutionException(String.format("Unable to load client [%s]", clientId), e.getCause());
+        }
+    }
+
+    /**
+     * Drops a client from every registry in the JVM, so that it is loaded again on its next use
+     * <p>Should be called whenever a client is created, changed or deleted</p>
+     * @param clientId the client ID
+     */
+    public void invalidate(String clientId) {
+        synchronized (REGISTRIES) {
+            for (PlatformClientRegistry registry : REGISTRIES) {
+                registry.clients.invalidate(clientId);
+                registry.unknownClientIds.invalidate(clientId);
+            }
+        }
+    }
+
+    /**
+     * Drops every client from every registry in the JVM
+     */
+    public void invalidateAll() {
+        synchronized (REGISTRIES) {
+            for (PlatformClientRegistry registry : REGISTRIES) {
+                registry.clients.invalidateAll();
+                registry.unknownClientIds.invalidateAll();
+            }
+        }
+    }
+
+    /**
+     * Signals that a client ID matched no client, without the cost of a stack trace
+     */
+    private static final class UnknownClientException extends Exception {
+
+        private UnknownClientException() {
+            super(null, null, false, false);
+        }
+    }
+}
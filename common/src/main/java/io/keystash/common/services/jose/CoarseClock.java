@@ -0,0 +1,45 @@
+package io.keystash.common.services.jose;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A clock for token timestamps, which only need to be accurate to the second
+ * <p>
+ *     A background thread reads the system time every few milliseconds and caches it, so reading the clock is a
+ *     single volatile read. The cached time is at most one tick behind the system time.
+ * </p>
+ */
+final class CoarseClock {
+
+    private static final long TICK_MILLIS = 50;
+
+    private static volatile long currentTimeMillis = System.currentTimeMillis();
+
+    static {
+        Thread thread = new Thread(CoarseClock::run, "coarse-clock");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private CoarseClock() {
+    }
+
+    /**
+     * Gets the cached time
+     * @return the time in seconds since the epoch
+     */
+    static long currentTimeSeconds() {
+        return currentTimeMillis / 1000;
+    }
+
+    private static void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(TICK_MILLIS);
+                currentTimeMillis = System.currentTimeMillis();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
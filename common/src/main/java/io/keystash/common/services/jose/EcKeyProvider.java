@@ -0,0 +1,28 @@
+package io.keystash.common.services.jose;
+
+import io.keystash.common.models.jose.JwsAlgorithmType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+
+@AllArgsConstructor
+public class EcKeyProvider implements PublicPrivateKeyProvider {
+
+    @Getter private final String keyId;
+    @Getter private final ECPublicKey publicKey;
+    @Getter private final ECPrivateKey privateKey;
+    @Getter private final boolean isActive;
+    @Getter private final boolean isPassive;
+
+    @Override
+    public JwsAlgorithmType getAlgorithmType() {
+        return JwsAlgorithmType.ECDSA;
+    }
+
+    @Override
+    public String getId() {
+        return keyId;
+    }
+}
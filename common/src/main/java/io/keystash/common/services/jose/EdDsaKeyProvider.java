@@ -0,0 +1,28 @@
+package io.keystash.common.services.jose;
+
+import io.keystash.common.models.jose.JwsAlgorithmType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.security.PrivateKey;
+import java.security.PublicKey;
+
+@AllArgsConstructor
+public class EdDsaKeyProvider implements PublicPrivateKeyProvider {
+
+    @Getter private final String keyId;
+    @Getter private final PublicKey publicKey;
+    @Getter private final PrivateKey privateKey;
+    @Getter private final boolean isActive;
+    @Getter private final boolean isPassive;
+
+    @Override
+    public JwsAlgorithmType getAlgorithmType() {
+        return JwsAlgorithmType.EDDSA;
+    }
+
+    @Override
+    public String getId() {
+        return keyId;
+    }
+}
@@ -0,0 +1,413 @@
+package io.keystash.common.services.jose;
+
+import io.keystash.common.models.jose.SigningKey;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.SignatureGenerationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Writes compact signed JSON Web Tokens without going through auth0's {@code JWTCreator}
+ * <p>
+ *     The header is always written as {@code alg}, {@code typ}, {@code kid}, and claims are written in the order they
+ *     were first added. Values are escaped the way Jackson escapes them, so any JSON parser reads back the same claims.
+ *     The encoded header is computed once per key, and the payload is written and Base64URL encoded into buffers that
+ *     are reused by each thread.
+ * </p>
+ */
+public class JwtMinter {
+
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] UPPER_HEX_DIGITS = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BASE64_URL_DIGITS =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".getBytes(StandardCharsets.US_ASCII);
+
+    private final Map<String, EncodedHeader> headers = new ConcurrentHashMap<>();
+    private final ThreadLocal<Draft> drafts = ThreadLocal.withInitial(Draft::new);
+
+    /**
+     * Gets an empty draft for the current thread to add claims to
+     * <p>The draft is reused by the next call on the same thread, so it must be signed before starting another</p>
+     * @return an empty draft
+     */
+    public Draft draft() {
+        Draft draft = drafts.get();
+        draft.reset();
+        return draft;
+    }
+
+    /**
+     * Sign a draft with the given key
+     * @param draft the draft holding the payload claims
+     * @param signingKey the key the token is signed with, used for the key ID header
+     * @param algorithm the algorithm created from the signing key
+     * @return the compact serialization of the signed token
+     * @throws SignatureGenerationException if the algorithm failed to sign the token
+     */
+    public String sign(Draft draft, SigningKey signingKey, Algorithm algorithm) throws SignatureGenerationException {
+        EncodedHeader header = getHeader(signingKey.getKid(), algorithm.getName());
+
+        TokenBuffer json = draft.json;
+        json.reset();
+        writePayload(draft, json);
+
+        TokenBuffer token = draft.token;
+        token.reset();
+        token.append(header.getBytes());
+        token.appendBase64Url(json.bytes, json.length);
+
+        byte[] signature = algorithm.sign(Arrays.copyOf(token.bytes, token.length));
+        token.append((byte) '.');
+        token.appendBase64Url(signature, signature.length);
+
+        return new String(token.bytes, 0, token.length, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Creates a random ID in the same format as a type 4 UUID, without going through a blocking random source
+     * @return a random ID string
+     */
+    public static String randomId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long mostSignificantBits = (random.nextLong() & 0xffffffffffff0fffL) | 0x0000000000004000L;
+        long leastSignificantBits = (random.nextLong() & 0x3fffffffffffffffL) | 0x8000000000000000L;
+
+        char[] chars = new char[36];
+        writeHex(chars, 0, mostSignificantBits >>> 32, 8);
+        chars[8] = '-';
+        writeHex(chars, 9, mostSignificantBits >>> 16, 4);
+        chars[13] = '-';
+        writeHex(chars, 14, mostSignificantBits, 4);
+        chars[18] = '-';
+        writeHex(chars, 19, leastSignificantBits >>> 48, 4);
+        chars[23] = '-';
+        writeHex(chars, 24, leastSignificantBits, 12);
+
+        return new String(chars);
+    }
+
+    private static void writeHex(char[] chars, int offset, long value, int digits) {
+        for (int i = digits - 1; i >= 0; i--) {
+            chars[offset + i] = (char) HEX_DIGITS[(int) (value & 0xf)];
+            value >>>= 4;
+        }
+    }
+
+    private EncodedHeader getHeader(String kid, String algorithmName) {
+        EncodedHeader header = headers.get(kid);
+        if (header == null || !header.getAlgorithmName().equals(algorithmName)) {
+            header = new EncodedHeader(kid, algorithmName);
+            headers.put(kid, header);
+        }
+
+        return header;
+    }
+
+    private static void writePayload(Draft draft, TokenBuffer json) {
+        json.append((byte) '{');
+        for (int i = 0; i < draft.size; i++) {
+            if (i > 0) {
+                json.append((byte) ',');
+            }
+
+            json.appendJsonString(draft.names[i]);
+            json.append((byte) ':');
+
+            if (draft.values[i] != null) {
+                json.appendJsonString(draft.values[i]);
+            } else {
+                json.appendLong(draft.numbers[i]);
+            }
+        }
+        json.append((byte) '}');
+    }
+
+    /**
+     * The claims of a token waiting to be signed
+     * <p>Claims are kept in insertion order. Setting a claim that already exists keeps its original position and
+     * setting a null value removes the claim, matching the behaviour of {@code JWTCreator}.</p>
+     */
+    public static final class Draft {
+
+        private String[] names = new String[16];
+        private String[] values = new String[16];
+        private long[] numbers = new long[16];
+        private int size;
+
+        private final TokenBuffer json = new TokenBuffer(512);
+        private final TokenBuffer token = new TokenBuffer(1024);
+
+        private Draft() {
+        }
+
+        public Draft withClaim(String name, String value) {
+            if (value == null) {
+                return withoutClaim(name);
+            }
+
+            int index = put(name);
+            values[index] = value;
+            return this;
+        }
+
+        /**
+         * Add a claim holding a date, written as a number of seconds since the epoch
+         * @param name the claim name
+         * @param epochSeconds the date in seconds since the epoch
+         * @return this draft
+         */
+        public Draft withDateClaim(String name, long epochSeconds) {
+            int index = put(name);
+            values[index] = null;
+            numbers[index] = epochSeconds;
+            return this;
+        }
+
+        public Draft withoutClaim(String name) {
+            int index = indexOf(name);
+            if (index < 0) {
+                return this;
+            }
+
+            int remaining = size - index - 1;
+            System.arraycopy(names, index + 1, names, index, remaining);
+            System.arraycopy(values, index + 1, values, index, remaining);
+            System.arraycopy(numbers, index + 1, numbers, index, remaining);
+            size--;
+            names[size] = null;
+            values[size] = null;
+            return this;
+        }
+
+        private int put(String name) {
+            int index = indexOf(name);
+            if (index >= 0) {
+                return index;
+            }
+
+            if (size == names.length) {
+                int capacity = size * 2;
+                names = Arrays.copyOf(names, capacity);
+                values = Arrays.copyOf(values, capacity);
+                numbers = Arrays.copyOf(numbers, capacity);
+            }
+
+            names[size] = name;
+            return size++;
+        }
+
+        private int indexOf(String name) {
+            for (int i = 0; i < size; i++) {
+                if (names[i].equals(name)) {
+                    return i;
+                }
+            }
+
+            return -1;
+        }
+
+        private void reset() {
+            Arrays.fill(names, 0, size, null);
+            Arrays.fill(values, 0, size, null);
+            size = 0;
+        }
+    }
+
+    /**
+     * The Base64URL encoded header for a key, including the trailing period
+     */
+    private static final class EncodedHeader {
+
+        private final String algorithmName;
+        private final byte[] bytes;
+
+        private EncodedHeader(String kid, String algorithmName) {
+            this.algorithmName = algorithmName;
+
+            String[] names = { "alg", "typ", "kid" };
+            String[] values = { algorithmName, "JWT", kid };
+
+            TokenBuffer json = new TokenBuffer(128);
+            json.append((byte) '{');
+            for (int i = 0; i < names.length; i++) {
+                if (i > 0) {
+                    json.append((byte) ',');
+                }
+                json.appendJsonString(names[i]);
+                json.append((byte) ':');
+                json.appendJsonString(values[i]);
+            }
+            json.append((byte) '}');
+
+            TokenBuffer encoded = new TokenBuffer(256);
+            encoded.appendBase64Url(json.bytes, json.length);
+            encoded.append((byte) '.');
+            this.bytes = Arrays.copyOf(encoded.bytes, encoded.length);
+        }
+
+        private String getAlgorithmName() {
+            return algorithmName;
+        }
+
+        private byte[] getBytes() {
+            return bytes;
+        }
+    }
+
+    /**
+     * A growable byte buffer that knows how to write JSON strings and Base64URL text
+     */
+    private static final class TokenBuffer {
+
+        private byte[] bytes;
+        private int length;
+
+        private TokenBuffer(int initialCapacity) {
+            this.bytes = new byte[initialCapacity];
+        }
+
+        private void reset() {
+            length = 0;
+        }
+
+        private void ensureCapacity(int additional) {
+            if (length + additional > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + additional));
+            }
+        }
+
+        private void append(byte value) {
+            ensureCapacity(1);
+            bytes[length++] = value;
+        }
+
+        private void append(byte[] values) {
+            ensureCapacity(values.length);
+            System.arraycopy(values, 0, bytes, length, values.length);
+            length += values.length;
+        }
+
+        private void appendLong(long value) {
+            if (value == Long.MIN_VALUE) {
+                append(Long.toString(value).getBytes(StandardCharsets.US_ASCII));
+                return;
+            }
+
+            ensureCapacity(20);
+            if (value < 0) {
+                bytes[length++] = '-';
+                value = -value;
+            }
+
+            int start = length;
+            do {
+                bytes[length++] = (byte) ('0' + (value % 10));
+                value /= 10;
+            } while (value > 0);
+
+            for (int i = start, j = length - 1; i < j; i++, j--) {
+                byte swap = bytes[i];
+                bytes[i] = bytes[j];
+                bytes[j] = swap;
+            }
+        }
+
+        /**
+         * Writes a quoted JSON string, escaping characters the same way Jackson does by default
+         */
+        private void appendJsonString(String value) {
+            ensureCapacity(value.length() * 6 + 2);
+            bytes[length++] = '"';
+
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    bytes[length++] = '\\';
+                    bytes[length++] = (byte) c;
+                } else if (c < 0x20) {
+                    appendControlCharacter(c);
+                } else if (c < 0x80) {
+                    bytes[length++] = (byte) c;
+                } else if (c < 0x800) {
+                    bytes[length++] = (byte) (0xc0 | (c >> 6));
+                    bytes[length++] = (byte) (0x80 | (c & 0x3f));
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    bytes[length++] = (byte) (0xf0 | (codePoint >> 18));
+                    bytes[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                    bytes[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                    bytes[length++] = (byte) (0x80 | (codePoint & 0x3f));
+                } else if (Character.isSurrogate(c)) {
+                    // Unpaired surrogates can not be encoded, and become a question mark just like String.getBytes
+                    bytes[length++] = '?';
+                } else {
+                    bytes[length++] = (byte) (0xe0 | (c >> 12));
+                    bytes[length++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                    bytes[length++] = (byte) (0x80 | (c & 0x3f));
+                }
+            }
+
+            bytes[length++] = '"';
+        }
+
+        private void appendControlCharacter(char c) {
+            bytes[length++] = '\\';
+            switch (c) {
+                case '\b':
+                    bytes[length++] = 'b';
+                    break;
+                case '\t':
+                    bytes[length++] = 't';
+                    break;
+                case '\n':
+                    bytes[length++] = 'n';
+                    break;
+                case '\f':
+                    bytes[length++] = 'f';
+                    break;
+                case '\r':
+                    bytes[length++] = 'r';
+                    break;
+                default:
+                    bytes[length++] = 'u';
+                    bytes[length++] = '0';
+                    bytes[length++] = '0';
+                    bytes[length++] = UPPER_HEX_DIGITS[c >> 4];
+                    bytes[length++] = UPPER_HEX_DIGITS[c & 0xf];
+            }
+        }
+
+        /**
+         * Appends the unpadded Base64URL encoding of the given bytes
+         */
+        private void appendBase64Url(byte[] source, int sourceLength) {
+            ensureCapacity((sourceLength + 2) / 3 * 4);
+
+            int i = 0;
+            for (; i + 2 < sourceLength; i += 3) {
+                int bits = (source[i] & 0xff) << 16 | (source[i + 1] & 0xff) << 8 | (source[i + 2] & 0xff);
+                bytes[length++] = BASE64_URL_DIGITS[(bits >>> 18) & 0x3f];
+                bytes[length++] = BASE64_URL_DIGITS[(bits >>> 12) & 0x3f];
+                bytes[length++] = BASE64_URL_DIGITS[(bits >>> 6) & 0x3f];
+                bytes[length++] = BASE64_URL_DIGITS[bits & 0x3f];
+            }
+
+            int remaining = sourceLength - i;
+            if (remaining == 1) {
+                int bits = (source[i] & 0xff) << 16;
+                bytes[length++] = BASE64_URL_DIGITS[(bits >>> 18) & 0x3f];
+                bytes[length++] = BASE64_URL_DIGITS[(bits >>> 12) & 0x3f];
+            } else if (remaining == 2) {
+                int bits = (source[i] & 0xff) << 16 | (source[i + 1] & 0xff) << 8;
+                bytes[length++] = BASE64_URL_DIGITS[(bits >>> 18) & 0x3f];
+                bytes[length++] = BASE64_URL_DIGITS[(bits >>> 12) & 0x3f];
+                bytes[length++] = BASE64_URL_DIGITS[(bits >>> 6) & 0x3f];
+            }
+        }
+    }
+}
@@ -4,25 +4,31 @@ import io.keystash.common.exceptions.SigningKeyException;
 import io.keystash.common.models.jose.HmacKey;
 import io.keystash.common.models.jose.JwsAlgorithmType;
 import io.keystash.common.models.jose.SigningKey;
+import io.keystash.common.models.jose.SigningKeyStatus;
+import io.keystash.common.models.jose.TokenVerificationResult;
+import io.keystash.common.models.jose.VerifiedToken;
 import io.keystash.common.exceptions.TokenException;
 import io.keystash.common.factories.jose.JwsAlgorithmFactory;
 import io.keystash.common.models.authentication.AuthenticatedUser;
 import io.keystash.common.models.web.HostInfo;
+import io.keystash.common.services.metrics.CacheMetrics;
 import com.auth0.jwt.JWT;
 import com.auth0.jwt.JWTCreator;
-import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
-import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.exceptions.JWTDecodeException;
+import com.auth0.jwt.exceptions.SignatureGenerationException;
+import com.auth0.jwt.impl.PublicClaims;
 import com.auth0.jwt.interfaces.DecodedJWT;
 import io.keystash.common.util.AuthorizationUtils;
+import io.keystash.common.util.CryptoUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.joda.time.DateTime;
 
 import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import javax.inject.Inject;
 import javax.inject.Provider;
+import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -31,64 +37,67 @@ import java.util.*;
 @Slf4j
 public class JwtTokenService implements TokenService {
 
+    /**
+     * The name the verified token cache is registered under with {@link CacheMetrics}
+     */
+    public static final String VERIFIED_TOKEN_CACHE = "verified-tokens";
+
     private final JwsAlgorithmFactory jwsAlgorithmFactory;
     private final KeyManager keyManager;
     private final Provider<HostInfo> hostInfoProvider;
+    private final JwtMinter jwtMinter = new JwtMinter();
+    private final VerifiedTokenCache verifiedTokenCache = new VerifiedTokenCache();
 
     @Inject
-    public JwtTokenService(JwsAlgorithmFactory jwsAlgorithmFactory, KeyManager keyManager, Provider<HostInfo> hostInfoProvider) {
+    public JwtTokenService(JwsAlgorithmFactory jwsAlgorithmFactory, KeyManager keyManager, Provider<HostInfo> hostInfoProvider,
+                           CacheMetrics cacheMetrics) {
         this.jwsAlgorithmFactory = jwsAlgorithmFactory;
         this.keyManager = keyManager;
         this.hostInfoProvider = hostInfoProvider;
+
+        this.keyManager.addKeySetListener(jwsAlgorithmFactory::onKeySetChanged);
+        this.keyManager.addKeySetListener(verifiedTokenCache::onKeySetChanged);
+        cacheMetrics.register(VERIFIED_TOKEN_CACHE, verifiedTokenCache::getStats);
     }
 
     @Override
     public String createAccessToken(Map<String, String> claims, int expiryTimeInSeconds) throws TokenException {
-        JWTCreator.Builder jwtCreator = JWT.create();
-        Date now = new Date();
+        long now = currentTimeSeconds();
 
         SigningKey activeKey = this.keyManager.getActiveKey();
 
         // Create some defaults
-        jwtCreator.withJWTId(UUID.randomUUID().toString());
-        jwtCreator.withKeyId(activeKey.getKid());
-        jwtCreator.withIssuedAt(now);
-        jwtCreator.withExpiresAt(new DateTime(now).plusSeconds(expiryTimeInSeconds).toDate());
+        JwtMinter.Draft draft = jwtMinter.draft()
+                .withClaim(PublicClaims.JWT_ID, JwtMinter.randomId())
+                .withDateClaim(PublicClaims.ISSUED_AT, now)
+                .withDateClaim(PublicClaims.EXPIRES_AT, now + expiryTimeInSeconds);
 
-        // Add all claims to the builder
+        // Add all claims to the draft
         // If caller specified reserved claims, use those to override defaults
-        claims.forEach(jwtCreator::withClaim);
+        claims.forEach(draft::withClaim);
 
-        try {
-            return jwtCreator.sign(jwsAlgorithmFactory.createAlgorithmForSignature(activeKey));
-        } catch (SigningKeyException e) {
-            throw new TokenException("Failed to create a JWT due to a problem with the signing key", e);
-        }
+        return sign(draft, activeKey);
     }
 
     @Override
     public String createRefreshToken(String accessToken) throws TokenException {
         DecodedJWT decodedAccessToken = JWT.decode(accessToken);
-        JWTCreator.Builder jwtCreator = JWT.create();
+        JwtMinter.Draft draft = jwtMinter.draft();
 
-        decodedAccessToken.getClaims().forEach((string, claim) -> jwtCreator.withClaim(string, claim.asString()));
+        decodedAccessToken.getClaims().forEach((string, claim) -> draft.withClaim(string, claim.asString()));
 
-        Date now = new Date();
+        long now = currentTimeSeconds();
 
         SigningKey activeKey = this.keyManager.getActiveKey();
 
         // Create some defaults
-        jwtCreator.withJWTId(UUID.randomUUID().toString());
-        jwtCreator.withKeyId(activeKey.getKid());
-        jwtCreator.withIssuedAt(now);
-        jwtCreator.withExpiresAt(new DateTime(decodedAccessToken.getExpiresAt()).plusDays(7).toDate());
-        jwtCreator.withClaim("ati", decodedAccessToken.getId());
+        draft.withClaim(PublicClaims.JWT_ID, JwtMinter.randomId());
+        draft.withDateClaim(PublicClaims.ISSUED_AT, now);
+        draft.withDateClaim(PublicClaims.EXPIRES_AT,
+                new DateTime(decodedAccessToken.getExpiresAt()).plusDays(7).getMillis() / 1000);
+        draft.withClaim("ati", decodedAccessToken.getId());
 
-        try {
-            return jwtCreator.sign(jwsAlgorithmFactory.createAlgorithmForSignature(activeKey));
-        } catch (SigningKeyException e) {
-            throw new TokenException("Failed to create a JWT due to a problem with the signing key", e);
-        }
+        return sign(draft, activeKey);
     }
 
     @Override
@@ -134,44 +143,104 @@ public class JwtTokenService implements TokenService {
 
     @Override
     public boolean isTokenValid(String token) {
+        return verifyToken(token).isValid();
+    }
+
+    @Override
+    public TokenVerificationResult verifyToken(String token) {
+        return verify(token).getVerificationResult();
+    }
+
+    @Override
+    public VerifiedToken verify(String token) {
+        VerifiedToken verifiedToken = verifiedTokenCache.get(token, this.keyManager.getKeySnapshot());
+        if (verifiedToken == null) {
+            verifiedToken = verifyUncached(token);
+            verifiedTokenCache.put(verifiedToken);
+        }
+
+        return verifiedToken;
+    }
+
+    private VerifiedToken verifyUncached(String token) {
+        DecodedJWT decodedToken;
+        byte[] signature;
+        try {
+            decodedToken = JWT.decode(token);
+            signature = Base64.getUrlDecoder().decode(decodedToken.getSignature());
+        } catch (JWTDecodeException | IllegalArgumentException e) {
+            log.debug("Token could not be decoded: {}", e.getMessage());
+            return VerifiedToken.unverified(token, TokenVerificationResult.MALFORMED);
+        }
+
+        SigningKeySnapshot keySnapshot = this.keyManager.getKeySnapshot();
+        SigningKeyStatus keyStatus = keySnapshot.getStatus(decodedToken.getKeyId());
+        if (keyStatus != SigningKeyStatus.ACTIVE && keyStatus != SigningKeyStatus.PASSIVE) {
+            return VerifiedToken.unverified(token, TokenVerificationResult.UNKNOWN_KEY);
+        }
+
+        String signingInput = token.substring(0, token.lastIndexOf('.'));
+
         try {
-            Set<Algorithm> algorithmsForVerification = jwsAlgorithmFactory.createAlgorithmsForVerification(this.keyManager.getActiveKey(),
-                    this.keyManager.getPassiveKeys());
-
-            for (Algorithm algorithm : algorithmsForVerification) {
-                JWTVerifier verifier = JWT.require(algorithm).build();
-
-                // This is not ideal... But due to Auth0's JWT implementation, we have to run the try/catch here as
-                // the recommended way to verify token is to check if the verifier throws an exception :s
-                try {
-                    verifier.verify(token);
-                    return true;
-                } catch (JWTVerificationException e) {
-                    log.debug("Token was not valid... skipping...");
-                }
+            if (!jwsAlgorithmFactory.verifySignature(keySnapshot.getKey(decodedToken.getKeyId()), decodedToken.getAlgorithm(),
+                    signingInput.getBytes(StandardCharsets.UTF_8), signature)) {
+                return VerifiedToken.unverified(token, TokenVerificationResult.INVALID_SIGNATURE);
             }
         } catch (SigningKeyException e) {
-            log.warn("Unable to properly create verification algorithm using found passive/active keys. " +
-                    "Marking token as invalid as a result.");
+            log.warn("Unable to properly create verification algorithm for key [{}]. Marking token as invalid as a result.",
+                    decodedToken.getKeyId());
+            return VerifiedToken.unverified(token, TokenVerificationResult.INVALID_SIGNATURE);
         }
 
-        return false;
+        Map<String, String> claims = new HashMap<>();
+        decodedToken.getClaims().forEach((name, claim) -> {
+            String value = claim.asString();
+            if (value != null) {
+                claims.put(name, value);
+            }
+        });
+
+        long expiresAt = decodedToken.getExpiresAt() != null ? decodedToken.getExpiresAt().getTime() / 1000 : 0;
+        return new VerifiedToken(token, decodedToken.getKeyId(), getTimeValidity(decodedToken), expiresAt, claims);
     }
 
-    @Override
-    public String getTokenClaim(String token, String claim) {
-        DecodedJWT decodedAccessToken = JWT.decode(token);
-        return decodedAccessToken.getClaim(claim).asString();
+    private TokenVerificationResult getTimeValidity(DecodedJWT decodedToken) {
+        long now = System.currentTimeMillis();
+        if (decodedToken.getExpiresAt() != null && now > decodedToken.getExpiresAt().getTime()) {
+            return TokenVerificationResult.EXPIRED;
+        }
+
+        if ((decodedToken.getNotBefore() != null && now < decodedToken.getNotBefore().getTime())
+                || (decodedToken.getIssuedAt() != null && now < decodedToken.getIssuedAt().getTime())) {
+            return TokenVerificationResult.NOT_YET_VALID;
+        }
+
+        return TokenVerificationResult.VALID;
+    }
+
+    private String sign(JwtMinter.Draft draft, SigningKey activeKey) throws TokenException {
+        try {
+            return jwtMinter.sign(draft, activeKey, jwsAlgorithmFactory.createAlgorithmForSignature(activeKey));
+        } catch (SigningKeyException | SignatureGenerationException e) {
+            throw new TokenException("Failed to create a JWT due to a problem with the signing key", e);
+        }
+    }
+
+    private long currentTimeSeconds() {
+        return CoarseClock.currentTimeSeconds();
     }
 
     private String getHashFromSourceForIdToken(String source, SigningKey signingKey) {
 
         // Hash the token with the algorithm provided (same as used to sign ID token)
         byte[] hashedTokenBytes;
-        if (signingKey.getAlgorithm() == JwsAlgorithmType.RSA) {
-            hashedTokenBytes = getRsaSourceHash(source);
+        if (signingKey.getAlgorithm() == JwsAlgorithmType.RSA || signingKey.getAlgorithm() == JwsAlgorithmType.ECDSA) {
+            hashedTokenBytes = getSourceHash(source, "SHA-256");
+        } else if (signingKey.getAlgorithm() == JwsAlgorithmType.EDDSA) {
+            // Ed25519 uses SHA-512 internally, so the token hashes use it too
+            hashedTokenBytes = getSourceHash(source, "SHA-512");
         } else if (signingKey.getAlgorithm() == JwsAlgorithmType.HMAC){
-            hashedTokenBytes = getHmacSourceHash(source, ((HmacKey) signingKey).getSecret());
+            hashedTokenBytes = getHmacSourceHash(source, (HmacKey) signingKey);
         } else {
             throw new RuntimeException("An invalid algorithm was found when generating hashes for id token.");
         }
@@ -184,22 +253,21 @@ public class JwtTokenService implements TokenService {
         return new String(Base64.getEncoder().encode(significantBytes));
     }
 
-    private byte[] getRsaSourceHash(String source) {
-        MessageDigest sha256;
+    private byte[] getSourceHash(String source, String digestAlgorithm) {
+        MessageDigest messageDigest;
         try {
-            sha256 = MessageDigest.getInstance("SHA-256");
+            messageDigest = CryptoUtils.getMessageDigest(digestAlgorithm);
         } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("Unable to hash source using RSA256", e);
+            throw new RuntimeException(String.format("Unable to hash source using %s", digestAlgorithm), e);
         }
 
-        return sha256.digest(source.getBytes());
+        return messageDigest.digest(source.getBytes());
     }
 
-    private byte[] getHmacSourceHash(String source, String secret) {
+    private byte[] getHmacSourceHash(String source, HmacKey hmacKey) {
         Mac hmacSha256;
         try {
-            hmacSha256 = Mac.getInstance("HmacSHA256");
-            hmacSha256.init(new SecretKeySpec(secret.getBytes(), "HmacSHA256"));
+            hmacSha256 = CryptoUtils.getMac(JwsAlgorithmType.HMAC.getJavaAlgorithm(), hmacKey.getKid(), hmacKey.getSecret());
         } catch (NoSuchAlgorithmException | InvalidKeyException e) {
             throw new RuntimeException("Unable to hash source using HmacSHA256", e);
         }
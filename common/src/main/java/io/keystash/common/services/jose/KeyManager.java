@@ -39,4 +39,23 @@ public interface KeyManager {
      */
     Set<SigningKey> getAllKeys();
 
+    /**
+     * Gets a consistent view of all keys as of the last refresh
+     * <p>Prefer this over the individual getters when more than one key set is needed, since the snapshot
+     * can not change between calls</p>
+     * @return the current key snapshot
+     */
+    SigningKeySnapshot getKeySnapshot();
+
+    /**
+     * Reloads the keys from persistence right away instead of waiting for the next background refresh
+     */
+    void refreshKeys();
+
+    /**
+     * Registers a listener that is notified whenever the key set changes, including status changes
+     * @param listener the listener to notify
+     */
+    void addKeySetListener(KeySetListener listener);
+
 }
@@ -0,0 +1,346 @@
+package io.keystash.common.services.jose;
+
+import io.keystash.common.configuration.KeyRotationConfiguration;
+import io.keystash.common.exceptions.SigningKeyException;
+import io.keystash.common.exceptions.jpa.JpaExecutionException;
+import io.keystash.common.factories.jose.JwsAlgorithmFactory;
+import io.keystash.common.factories.jose.KeyProviderFactory;
+import io.keystash.common.models.jose.JwsAlgorithmType;
+import io.keystash.common.models.jose.KeyConfigName;
+import io.keystash.common.models.jose.SigningKey;
+import io.keystash.common.models.jose.SigningKeyStatus;
+import io.keystash.common.models.jpa.AppKey;
+import io.keystash.common.models.jpa.AppKeyConfig;
+import io.keystash.common.persistence.AppKeyDao;
+import io.keystash.common.util.KeyUtils;
+import com.auth0.jwt.algorithms.Algorithm;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.hibernate.StaleStateException;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.persistence.OptimisticLockException;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rotates the application signing keys in the background
+ * <p>
+ *     Every key carries its own schedule in its configs: when it was created, when it becomes active and when it
+ *     is retired. Each run of the scheduler compares that schedule with the clock and moves keys along, so a run
+ *     can be repeated or skipped without harm:
+ * </p>
+ * <ul>
+ *     <li>Ahead of the next rotation a successor key is generated and published as passive, so that consumers of
+ *     the JWKS have it cached before the first token is signed with it</li>
+ *     <li>Before the successor is promoted its material is parsed and its algorithm built and tested, so the
+ *     switch over does not slow down the first requests signed with it</li>
+ *     <li>The replaced key stays passive for the maximum token lifetime, after which it is disabled</li>
+ * </ul>
+ * <p>
+ *     An active key without a schedule, such as a key added by hand, starts its rotation clock the first time it is
+ *     seen. Passive keys without a schedule are left alone.
+ * </p>
+ * <p>
+ *     Every node runs the scheduler against the same keys. Each run writes all of its changes in one transaction,
+ *     which always includes the active key, and the write fails if any of the keys were changed since they were read.
+ *     When two nodes act on the same schedule only the first one's changes are kept, so a successor is never
+ *     published twice and two keys are never promoted.
+ * </p>
+ */
+@Slf4j
+public class KeyRotationScheduler {
+
+    private static final byte[] PREWARM_CONTENT = "key-rotation-prewarm".getBytes(StandardCharsets.UTF_8);
+
+    private final AppKeyDao appKeyDao;
+    private final KeyManager keyManager;
+    private final KeyProviderFactory keyProviderFactory;
+    private final JwsAlgorithmFactory jwsAlgorithmFactory;
+    private final KeyRotationConfiguration keyRotationConfiguration;
+
+    private ScheduledExecutorService rotationExecutor;
+
+    @Inject
+    public KeyRotationScheduler(AppKeyDao appKeyDao, KeyManager keyManager, KeyProviderFactory keyProviderFactory,
+                                JwsAlgorithmFactory jwsAlgorithmFactory, KeyRotationConfiguration keyRotationConfiguration) {
+        this.appKeyDao = appKeyDao;
+        this.keyManager = keyManager;
+        this.keyProviderFactory = keyProviderFactory;
+        this.jwsAlgorithmFactory = jwsAlgorithmFactory;
+        this.keyRotationConfiguration = keyRotationConfiguration;
+    }
+
+    /**
+     * Starts checking the key schedule in the background, unless rotation has been disabled
+     */
+    public synchronized void start() {
+        if (rotationExecutor != null) {
+            return;
+        }
+
+        if (!keyRotationConfiguration.enabled()) {
+            log.info("Automatic key rotation is disabled");
+            return;
+        }
+
+        rotationExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "key-rotation-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long checkIntervalSeconds = keyRotationConfiguration.checkIntervalSeconds();
+        rotationExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                rotate();
+            } catch (RuntimeException e) {
+                log.error("Unexpected failure rotating signing keys", e);
+            }
+        }, 0, checkIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops the background rotation of keys
+     */
+    @PreDestroy
+    public synchronized void close() {
+        if (rotationExecutor != null) {
+            rotationExecutor.shutdownNow();
+            rotationExecutor = null;
+        }
+    }
+
+    /**
+     * Moves every key along its schedule as of right now
+     */
+    public void rotate() {
+        rotate(System.currentTimeMillis() / 1000);
+    }
+
+    synchronized void rotate(long now) {
+        List<AppKey> appKeys;
+        try {
+            appKeys = appKeyDao.getKeys();
+        } catch (JpaExecutionException e) {
+            log.error("Unable to load application keys, skipping key rotation", e);
+            return;
+        }
+
+        AppKey activeKey = appKeys.stream()
+                .filter(appKey -> keyProviderFactory.getKeyStatus(appKey) == SigningKeyStatus.ACTIVE)
+                .findFirst()
+                .orElse(null);
+        if (activeKey == null) {
+            log.warn("No active signing key exists, there is nothing to rotate");
+            return;
+        }
+
+        Set<AppKey> changedKeys = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        long activatedAt = getTimestamp(activeKey, KeyConfigName.ACTIVATE_AT);
+        if (activatedAt == 0) {
+            activatedAt = now;
+            setConfigValue(activeKey, KeyConfigName.ACTIVATE_AT, String.valueOf(now));
+            changedKeys.add(activeKey);
+        }
+
+        AppKey successor = getSuccessor(appKeys, activatedAt);
+        long rotateAt = activatedAt + keyRotationConfiguration.rotationIntervalSeconds();
+        AppKey publishedKey = null;
+
+        if (successor == null) {
+            if (now >= rotateAt - keyRotationConfiguration.prepublishSeconds()) {
+                publishedKey = createSuccessor(Math.max(rotateAt, now), now);
+                if (publishedKey != null) {
+                    changedKeys.add(publishedKey);
+                }
+            }
+        } else if (now >= getTimestamp(successor, KeyConfigName.ACTIVATE_AT) && prewarm(successor)) {
+            setConfigValue(successor, KeyConfigName.ACTIVE, Boolean.TRUE.toString());
+            setConfigValue(successor, KeyConfigName.PASSIVE, Boolean.FALSE.toString());
+            setConfigValue(activeKey, KeyConfigName.ACTIVE, Boolean.FALSE.toString());
+            setConfigValue(activeKey, KeyConfigName.PASSIVE, Boolean.TRUE.toString());
+            changedKeys.add(successor);
+            changedKeys.add(activeKey);
+
+            log.info("Promoting signing key [{}] to replace key [{}]", successor.getId(), activeKey.getId());
+            activeKey = successor;
+            activatedAt = getTimestamp(successor, KeyConfigName.ACTIVATE_AT);
+        }
+
+        retirePassiveKeys(appKeys, activeKey, activatedAt, now, changedKeys);
+
+        if (changedKeys.isEmpty()) {
+            return;
+        }
+
+        // The active key is always written, so that of two nodes acting on the same schedule the second one fails on
+        // its version instead of publishing or promoting a second key
+        changedKeys.add(activeKey);
+        try {
+            appKeyDao.updateKeys(changedKeys);
+        } catch (JpaExecutionException e) {
+            if (ExceptionUtils.indexOfType(e, OptimisticLockException.class) >= 0
+                    || ExceptionUtils.indexOfType(e, StaleStateException.class) >= 0) {
+                log.info("The key schedule was changed by another node, will check it again on the next run");
+            } else {
+                log.error("Unable to update the key schedule, will try again on the next run", e);
+            }
+            return;
+        }
+
+        keyManager.refreshKeys();
+        if (publishedKey != null) {
+            log.info("Published signing key [{}], it will become active at {}", publishedKey.getId(),
+                    getTimestamp(publishedKey, KeyConfigName.ACTIVATE_AT));
+            prewarm(publishedKey);
+        }
+    }
+
+    /**
+     * Finds the passive key that is lined up to replace the active key, if any
+     */
+    private AppKey getSuccessor(List<AppKey> appKeys, long activatedAt) {
+        return appKeys.stream()
+                .filter(appKey -> keyProviderFactory.getKeyStatus(appKey) == SigningKeyStatus.PASSIVE)
+                .filter(appKey -> getTimestamp(appKey, KeyConfigName.RETIRE_AT) == 0)
+                .filter(appKey -> getTimestamp(appKey, KeyConfigName.ACTIVATE_AT) > activatedAt)
+                .min(Comparator.comparingLong(appKey -> getTimestamp(appKey, KeyConfigName.ACTIVATE_AT)))
+                .orElse(null);
+    }
+
+    /**
+     * Schedules the retirement of passive keys that are no longer lined up for promotion, and disables passive keys
+     * whose retirement is due
+     */
+    private void retirePassiveKeys(List<AppKey> appKeys, AppKey activeKey, long activatedAt, long now,
+                                   Set<AppKey> changedKeys) {
+        for (AppKey appKey : appKeys) {
+            if (appKey == activeKey || keyProviderFactory.getKeyStatus(appKey) != SigningKeyStatus.PASSIVE) {
+                continue;
+            }
+
+            // Keys without a schedule were not put in place by rotation, so they are not retired by it either
+            if (getConfig(appKey, KeyConfigName.ACTIVATE_AT) == null) {
+                continue;
+            }
+
+            long retireAt = getTimestamp(appKey, KeyConfigName.RETIRE_AT);
+            if (retireAt == 0) {
+                if (getTimestamp(appKey, KeyConfigName.ACTIVATE_AT) <= activatedAt) {
+                    retireAt = now + keyRotationConfiguration.maxTokenLifetimeSeconds();
+                    setConfigValue(appKey, KeyConfigName.RETIRE_AT, String.valueOf(retireAt));
+                    changedKeys.add(appKey);
+                }
+            } else if (now >= retireAt) {
+                log.info("Retiring signing key [{}]", appKey.getId());
+                setConfigValue(appKey, KeyConfigName.PASSIVE, Boolean.FALSE.toString());
+                changedKeys.add(appKey);
+            }
+        }
+    }
+
+    /**
+     * Generates a passive key that becomes active at the given time, without saving it
+     * @return the new key, or null if it could not be generated
+     */
+    private AppKey createSuccessor(long activateAt, long now) {
+        JwsAlgorithmType algorithmType = JwsAlgorithmType.valueOf(keyRotationConfiguration.algorithm().toUpperCase());
+
+        AppKey successor = new AppKey();
+        successor.setName(String.format("%s-%d", algorithmType, activateAt));
+        successor.setAlgorithm(algorithmType);
+        successor.setConfigs(new ArrayList<>());
+
+        try {
+            if (algorithmType == JwsAlgorithmType.HMAC) {
+                setConfigValue(successor, KeyConfigName.SECRET, KeyUtils.generateSecret());
+            } else {
+                KeyPair keyPair = KeyUtils.generateKeyPair(algorithmType);
+                setConfigValue(successor, KeyConfigName.PRIVATE_KEY, KeyUtils.getKeyString(keyPair.getPrivate()));
+                setConfigValue(successor, KeyConfigName.PUBLIC_KEY, KeyUtils.getKeyString(keyPair.getPublic()));
+            }
+        } catch (SigningKeyException e) {
+            log.error("Unable to generate a successor signing key", e);
+            return null;
+        }
+
+        setConfigValue(successor, KeyConfigName.ACTIVE, Boolean.FALSE.toString());
+        setConfigValue(successor, KeyConfigName.PASSIVE, Boolean.TRUE.toString());
+        setConfigValue(successor, KeyConfigName.CREATED_AT, String.valueOf(now));
+        setConfigValue(successor, KeyConfigName.ACTIVATE_AT, String.valueOf(activateAt));
+        return successor;
+    }
+
+    /**
+     * Makes sure the key is loaded, and that its algorithm is built and can produce signatures that verify
+     * @return true if the key is ready to sign tokens
+     */
+    private boolean prewarm(AppKey appKey) {
+        String kid = keyProviderFactory.getKeyId(appKey.getId());
+
+        SigningKey signingKey = keyManager.getKeySnapshot().getKey(kid);
+        if (signingKey == null) {
+            keyManager.refreshKeys();
+            signingKey = keyManager.getKeySnapshot().getKey(kid);
+        }
+
+        if (signingKey == null) {
+            log.warn("Signing key [{}] could not be loaded, it will not be promoted", appKey.getId());
+            return false;
+        }
+
+        try {
+            Algorithm algorithm = jwsAlgorithmFactory.createAlgorithmForSignature(signingKey);
+
+            byte[] signature = algorithm.sign(PREWARM_CONTENT);
+            if (jwsAlgorithmFactory.verifySignature(signingKey, algorithm.getName(), PREWARM_CONTENT, signature)) {
+                return true;
+            }
+
+            log.warn("Signing key [{}] produced a signature it could not verify, it will not be promoted", appKey.getId());
+        } catch (SigningKeyException | RuntimeException e) {
+            log.warn("Signing key [{}] could not be used to sign, it will not be promoted", appKey.getId(), e);
+        }
+
+        return false;
+    }
+
+    private long getTimestamp(AppKey appKey, KeyConfigName keyConfigName) {
+        AppKeyConfig config = getConfig(appKey, keyConfigName);
+        return config != null ? NumberUtils.toLong(config.getValue()) : 0;
+    }
+
+    private void setConfigValue(AppKey appKey, KeyConfigName keyConfigName, String value) {
+        AppKeyConfig config = getConfig(appKey, keyConfigName);
+        if (config == null) {
+            config = new AppKeyConfig();
+            config.setAppKey(appKey);
+            config.setName(keyConfigName.getValue());
+            appKey.getConfigs().add(config);
+        }
+
+        config.setValue(value);
+    }
+
+    private AppKeyConfig getConfig(AppKey appKey, KeyConfigName keyConfigName) {
+        if (appKey.getConfigs() == null) {
+            return null;
+        }
+
+        for (AppKeyConfig config : appKey.getConfigs()) {
+            if (keyConfigName.getValue().equals(config.getName())) {
+                return config;
+            }
+        }
+
+        return null;
+    }
+}
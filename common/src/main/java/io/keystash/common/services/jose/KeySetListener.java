@@ -0,0 +1,14 @@
+package io.keystash.common.services.jose;
+
+/**
+ * Notified whenever the application key set changes
+ */
+@FunctionalInterface
+public interface KeySetListener {
+
+    /**
+     * Called after a new key snapshot has been published
+     * @param snapshot the newly published key snapshot
+     */
+    void onKeySetChanged(SigningKeySnapshot snapshot);
+}
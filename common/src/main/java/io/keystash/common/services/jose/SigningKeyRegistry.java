@@ -0,0 +1,277 @@
+package io.keystash.common.services.jose;
+
+import io.keystash.common.exceptions.jpa.JpaExecutionException;
+import io.keystash.common.factories.jose.KeyProviderFactory;
+import io.keystash.common.models.jose.EcKey;
+import io.keystash.common.models.jose.EdDsaKey;
+import io.keystash.common.models.jose.HmacKey;
+import io.keystash.common.models.jose.RsaKey;
+import io.keystash.common.models.jose.SigningKey;
+import io.keystash.common.models.jose.SigningKeyStatus;
+import io.keystash.common.models.jose.KeyConfigName;
+import io.keystash.common.models.jpa.AppKey;
+import io.keystash.common.models.jpa.AppKeyConfig;
+import io.keystash.common.persistence.AppKeyDao;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps the application signing keys parsed and in memory
+ * <p>
+ *     The version stamp of the persisted keys is polled in the background, and the keys are only loaded when it has
+ *     changed. Keys written by hand, without going through {@link AppKeyDao}, may not move the stamp, so the keys are
+ *     also loaded every few minutes regardless. Whenever the loaded rows differ from the previous ones, a new
+ *     {@link SigningKeySnapshot} is built and swapped in atomically. Key material is only parsed when the material
+ *     itself changes, so flipping a key between active and passive does not cause it to be parsed again.
+ * </p>
+ * <p>Readers of the registry never touch JPA and never parse keys, with the exception of the very first read.</p>
+ */
+@Slf4j
+public class SigningKeyRegistry {
+
+    private static final long DEFAULT_REFRESH_INTERVAL_SECONDS = 30;
+    private static final long FULL_RELOAD_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private final AppKeyDao appKeyDao;
+    private final KeyProviderFactory keyProviderFactory;
+    private final long refreshIntervalSeconds;
+
+    private final AtomicReference<SigningKeySnapshot> snapshot = new AtomicReference<>();
+    private final Map<Integer, ParsedKey> parsedKeys = new HashMap<>();
+    private final List<KeySetListener> listeners = new CopyOnWriteArrayList<>();
+    private List<Long> lastKeySetVersion;
+    private List<List<Object>> lastContent;
+    private long lastLoadedAt;
+
+    private ScheduledExecutorService refreshExecutor;
+
+    @Inject
+    public SigningKeyRegistry(AppKeyDao appKeyDao, KeyProviderFactory keyProviderFactory) {
+        this(appKeyDao, keyProviderFactory, DEFAULT_REFRESH_INTERVAL_SECONDS);
+    }
+
+    public SigningKeyRegistry(AppKeyDao appKeyDao, KeyProviderFactory keyProviderFactory, long refreshIntervalSeconds) {
+        this.appKeyDao = appKeyDao;
+        this.keyProviderFactory = keyProviderFactory;
+        this.refreshIntervalSeconds = refreshIntervalSeconds;
+    }
+
+    /**
+     * Gets the current key snapshot
+     * <p>The first call will load the keys synchronously and start the background refresh</p>
+     * @return the latest snapshot of signing keys
+     */
+    public SigningKeySnapshot getSnapshot() {
+        SigningKeySnapshot current = snapshot.get();
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot.get();
+                if (current == null) {
+                    refresh();
+                    startBackgroundRefresh();
+                    current = snapshot.get();
+                }
+            }
+        }
+
+        return current;
+    }
+
+    /**
+     * Register a listener to be notified every time a new snapshot is published
+     * @param listener the listener to register
+     */
+    public void addListener(KeySetListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Reload the keys from persistence if their version has changed, publishing a new snapshot if anything has changed
+     */
+    public synchronized void refresh() {
+        List<Long> keySetVersion;
+        List<AppKey> appKeys;
+        SigningKeySnapshot current = snapshot.get();
+        boolean loaded = current != null && current != SigningKeySnapshot.EMPTY;
+        try {
+            keySetVersion = appKeyDao.getKeySetVersion();
+            if (loaded && keySetVersion.equals(lastKeySetVersion)
+                    && System.currentTimeMillis() - lastLoadedAt < FULL_RELOAD_INTERVAL_MILLIS) {
+                return;
+            }
+
+            appKeys = appKeyDao.getKeys();
+        } catch (JpaExecutionException e) {
+            log.error("Unable to load application keys. Keeping the previously loaded keys", e);
+            snapshot.compareAndSet(null, SigningKeySnapshot.EMPTY);
+            return;
+        }
+
+        lastKeySetVersion = keySetVersion;
+        lastLoadedAt = System.currentTimeMillis();
+
+        List<List<Object>> content = new ArrayList<>(appKeys.size());
+        for (AppKey appKey : appKeys) {
+            content.add(getContent(appKey));
+        }
+
+        if (loaded && content.equals(lastContent)) {
+            return;
+        }
+
+        Map<String, SigningKey> keys = new LinkedHashMap<>();
+        Map<String, SigningKeyStatus> statuses = new HashMap<>();
+        Map<Integer, ParsedKey> stillPresent = new HashMap<>();
+
+        for (AppKey appKey : appKeys) {
+            ParsedKey parsedKey = getParsedKey(appKey);
+            stillPresent.put(appKey.getId(), parsedKey);
+
+            if (parsedKey.getSigningKey() != null) {
+                keys.put(parsedKey.getSigningKey().getKid(), parsedKey.getSigningKey());
+                statuses.put(parsedKey.getSigningKey().getKid(), keyProviderFactory.getKeyStatus(appKey));
+            }
+        }
+
+        parsedKeys.clear();
+        parsedKeys.putAll(stillPresent);
+        lastContent = content;
+
+        long version = current != null ? current.getVersion() + 1 : 1;
+        SigningKeySnapshot updated = new SigningKeySnapshot(version, keys, statuses);
+        snapshot.set(updated);
+        log.info("Loaded {} signing keys, key set is now at version {}", keys.size(), version);
+
+        for (KeySetListener listener : listeners) {
+            try {
+                listener.onKeySetChanged(updated);
+            } catch (RuntimeException e) {
+                log.error("Key set listener failed to handle key set version {}", version, e);
+            }
+        }
+    }
+
+    /**
+     * Stops the background refresh of keys
+     */
+    @PreDestroy
+    public synchronized void close() {
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+            refreshExecutor = null;
+        }
+    }
+
+    private void startBackgroundRefresh() {
+        if (refreshExecutor != null) {
+            return;
+        }
+
+        refreshExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "signing-key-registry");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        refreshExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (RuntimeException e) {
+                log.error("Unexpected failure refreshing signing keys", e);
+            }
+        }, refreshIntervalSeconds, refreshIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    private ParsedKey getParsedKey(AppKey appKey) {
+        List<Object> material = getConfigContent(appKey, false);
+
+        ParsedKey previous = parsedKeys.get(appKey.getId());
+        if (previous != null && previous.getMaterial().equals(material)) {
+            return previous;
+        }
+
+        KeyProvider keyProvider = keyProviderFactory.createKeyProvider(appKey);
+        return new ParsedKey(material, keyProvider != null ? createSigningKey(keyProvider) : null);
+    }
+
+    private SigningKey createSigningKey(KeyProvider keyProvider) {
+        switch (keyProvider.getAlgorithmType()) {
+            case HMAC:
+                HmacSecretKeyProvider hmacSecretKeyProvider = (HmacSecretKeyProvider) keyProvider;
+                return new HmacKey(hmacSecretKeyProvider.getKeyId(), hmacSecretKeyProvider.getSecret());
+            case RSA:
+                RsaKeyProvider rsaKeyProvider = (RsaKeyProvider) keyProvider;
+                return new RsaKey(rsaKeyProvider.getKeyId(), rsaKeyProvider.getPublicKey(), rsaKeyProvider.getPrivateKey());
+            case ECDSA:
+                EcKeyProvider ecKeyProvider = (EcKeyProvider) keyProvider;
+                return new EcKey(ecKeyProvider.getKeyId(), ecKeyProvider.getPublicKey(), ecKeyProvider.getPrivateKey());
+            case EDDSA:
+                EdDsaKeyProvider edDsaKeyProvider = (EdDsaKeyProvider) keyProvider;
+                return new EdDsaKey(edDsaKeyProvider.getKeyId(), edDsaKeyProvider.getPublicKey(), edDsaKeyProvider.getPrivateKey());
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Gets everything about a key that the snapshot is built from, so it can be compared exactly with a previous load
+     */
+    private List<Object> getContent(AppKey appKey) {
+        return Arrays.asList(appKey.getId(), getConfigContent(appKey, false), getConfigContent(appKey, true));
+    }
+
+    /**
+     * Gets the ID, name and value of either the key material configs, along with the algorithm, or the status configs
+     * of a key, ordered by config ID
+     */
+    private List<Object> getConfigContent(AppKey appKey, boolean statusConfigs) {
+        List<Object> content = new ArrayList<>();
+        if (!statusConfigs) {
+            content.add(appKey.getAlgorithm());
+        }
+
+        if (appKey.getConfigs() != null) {
+            appKey.getConfigs().stream()
+                    .filter(config -> isStatusConfig(config) == statusConfigs)
+                    .sorted(Comparator.comparingInt(AppKeyConfig::getId))
+                    .forEach(config -> content.addAll(Arrays.asList(config.getId(), config.getName(), config.getValue())));
+        }
+
+        return content;
+    }
+
+    private boolean isStatusConfig(AppKeyConfig config) {
+        return KeyConfigName.ACTIVE.getValue().equals(config.getName())
+                || KeyConfigName.PASSIVE.getValue().equals(config.getName())
+                || KeyConfigName.CREATED_AT.getValue().equals(config.getName())
+                || KeyConfigName.ACTIVATE_AT.getValue().equals(config.getName())
+                || KeyConfigName.RETIRE_AT.getValue().equals(config.getName());
+    }
+
+    private static final class ParsedKey {
+
+        private final List<Object> material;
+        private final SigningKey signingKey;
+
+        private ParsedKey(List<Object> material, SigningKey signingKey) {
+            this.material = material;
+            this.signingKey = signingKey;
+        }
+
+        private List<Object> getMaterial() {
+            return material;
+        }
+
+        private SigningKey getSigningKey() {
+            return signingKey;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package io.keystash.common.services.jose;
+
+import io.keystash.common.models.jose.SigningKey;
+import io.keystash.common.models.jose.SigningKeyStatus;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.*;
+
+/**
+ * An immutable view of all application signing keys at a given point in time
+ * <p>Snapshots are built in the background by the {@link SigningKeyRegistry} and swapped in atomically, so a reader
+ * will always see a consistent active/passive/disabled split.</p>
+ */
+@ToString
+public final class SigningKeySnapshot {
+
+    public static final SigningKeySnapshot EMPTY = new SigningKeySnapshot(0, Collections.emptyMap(), Collections.emptyMap());
+
+    /**
+     * A number that is incremented every time the persisted key set is seen to change
+     */
+    @Getter private final long version;
+
+    @Getter private final SigningKey activeKey;
+    @Getter private final Set<SigningKey> passiveKeys;
+    @Getter private final Set<SigningKey> disabledKeys;
+    @Getter private final Set<SigningKey> allKeys;
+
+    private final Map<String, SigningKey> keysByKid;
+    private final Map<String, SigningKeyStatus> statusesByKid;
+
+    /**
+     * Create a new snapshot
+     * @param version the version of the key set
+     * @param keys the signing keys in persistence order, indexed by key ID
+     * @param statuses the status of every key, indexed by key ID
+     */
+    SigningKeySnapshot(long version, Map<String, SigningKey> keys, Map<String, SigningKeyStatus> statuses) {
+        this.version = version;
+
+        SigningKey active = null;
+        Set<SigningKey> passive = new HashSet<>();
+        Set<SigningKey> disabled = new HashSet<>();
+
+        for (Map.Entry<String, SigningKey> entry : keys.entrySet()) {
+            SigningKeyStatus status = statuses.get(entry.getKey());
+            if (status == SigningKeyStatus.ACTIVE && active == null) {
+                active = entry.getValue();
+            } else if (status == SigningKeyStatus.PASSIVE) {
+                passive.add(entry.getValue());
+            } else if (status == SigningKeyStatus.DISABLED) {
+                disabled.add(entry.getValue());
+            }
+        }
+
+        this.activeKey = active;
+        this.passiveKeys = Collections.unmodifiableSet(passive);
+        this.disabledKeys = Collections.unmodifiableSet(disabled);
+        this.allKeys = Collections.unmodifiableSet(new HashSet<>(keys.values()));
+        this.keysByKid = Collections.unmodifiableMap(new LinkedHashMap<>(keys));
+        this.statusesByKid = Collections.unmodifiableMap(new HashMap<>(statuses));
+    }
+
+    /**
+     * Gets a key by its key ID regardless of status
+     * @param kid the key ID
+     * @return the signing key, or null if no key exists with the given ID
+     */
+    public SigningKey getKey(String kid) {
+        return kid != null ? keysByKid.get(kid) : null;
+    }
+
+    /**
+     * Gets the status of a key by its key ID
+     * @param kid the key ID
+     * @return the status of the key, or null if no key exists with the given ID
+     */
+    public SigningKeyStatus getStatus(String kid) {
+        return kid != null ? statusesByKid.get(kid) : null;
+    }
+}
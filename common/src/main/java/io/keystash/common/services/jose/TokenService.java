@@ -2,6 +2,8 @@ package io.keystash.common.services.jose;
 
 import io.keystash.common.exceptions.TokenException;
 import io.keystash.common.models.authentication.AuthenticatedUser;
+import io.keystash.common.models.jose.TokenVerificationResult;
+import io.keystash.common.models.jose.VerifiedToken;
 
 import java.util.Map;
 
@@ -50,10 +52,16 @@ public interface TokenService {
     boolean isTokenValid(String token);
 
     /**
-     * Gets the value associated with the given token claim, or null if not defined
-     * @param token the token to check the claim for
-     * @param claim the claim to look up
-     * @return a value representing the token claim, or null if claim does not exist
+     * Verifies a token against the key referenced by its key ID, checking the signature and time claims once
+     * @param token the token to be verified
+     * @return the outcome of the verification
      */
-    String getTokenClaim(String token, String claim);
+    TokenVerificationResult verifyToken(String token);
+
+    /**
+     * Decodes and verifies a token once, returning the verification outcome along with its claims
+     * @param token the token to be verified
+     * @return an immutable view of the verified token
+     */
+    VerifiedToken verify(String token);
 }
\ No newline at end of file
@@ -0,0 +1,104 @@
+package io.keystash.common.services.jose;
+
+import io.keystash.common.models.jose.SigningKeyStatus;
+import io.keystash.common.models.jose.VerifiedToken;
+import io.keystash.common.models.metrics.CacheStatistics;
+import io.keystash.common.util.CryptoUtils;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A bounded cache of tokens that have already passed verification
+ * <p>
+ *     Tokens are keyed by their SHA-256 hash. A cached token is only served while it has not expired and the key that
+ *     signed it is still active or passive, otherwise it is dropped and has to be verified again.
+ * </p>
+ */
+public class VerifiedTokenCache {
+
+    private static final long DEFAULT_MAXIMUM_SIZE = 10000;
+
+    private final Cache<ByteBuffer, VerifiedToken> verifiedTokens;
+
+    public VerifiedTokenCache() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    public VerifiedTokenCache(long maximumSize) {
+        this.verifiedTokens = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Gets a previously verified token
+     * @param token the token to look up
+     * @param keySnapshot the current key snapshot, used to check the signing key is still usable
+     * @return the verified token, or null if the token has to be verified
+     */
+    public VerifiedToken get(String token, SigningKeySnapshot keySnapshot) {
+        ByteBuffer key = getKey(token);
+        VerifiedToken verifiedToken = verifiedTokens.getIfPresent(key);
+        if (verifiedToken == null) {
+            return null;
+        }
+
+        if (isExpired(verifiedToken) || !isKeyUsable(keySnapshot.getStatus(verifiedToken.getKeyId()))) {
+            verifiedTokens.invalidate(key);
+            return null;
+        }
+
+        return verifiedToken;
+    }
+
+    /**
+     * Caches a token if it was verified successfully
+     * @param verifiedToken the outcome of verifying a token
+     */
+    public void put(VerifiedToken verifiedToken) {
+        if (verifiedToken.isValid()) {
+            verifiedTokens.put(getKey(verifiedToken.getToken()), verifiedToken);
+        }
+    }
+
+    /**
+     * Drops every cached token signed by a key that is no longer active or passive
+     * @param keySnapshot the latest key snapshot
+     */
+    public void onKeySetChanged(SigningKeySnapshot keySnapshot) {
+        verifiedTokens.asMap().values()
+                .removeIf(verifiedToken -> !isKeyUsable(keySnapshot.getStatus(verifiedToken.getKeyId())));
+    }
+
+    /**
+     * Gets the hit and miss counts of the cache
+     * @return the cache statistics
+     */
+    public CacheStatistics getStats() {
+        CacheStats stats = verifiedTokens.stats();
+        return new CacheStatistics(stats.hitCount(), stats.missCount(), stats.evictionCount());
+    }
+
+    private boolean isExpired(VerifiedToken verifiedToken) {
+        return verifiedToken.getExpiresAt() > 0 && System.currentTimeMillis() > verifiedToken.getExpiresAt() * 1000;
+    }
+
+    private boolean isKeyUsable(SigningKeyStatus status) {
+        return status == SigningKeyStatus.ACTIVE || status == SigningKeyStatus.PASSIVE;
+    }
+
+    private ByteBuffer getKey(String token) {
+        try {
+            return ByteBuffer.wrap(CryptoUtils.getMessageDigest("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new RuntimeException("Unable to hash token for the verified token cache", e);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package io.keystash.common.services.metrics;
+
+import io.keystash.common.models.metrics.CacheStatistics;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Collects the statistics of the caches an application registers
+ * <p>
+ *     Auth core and the admin console run as separate applications in the same JVM, each with its own instance named
+ *     after the application. Statistics can be read for every application in the JVM, so that a single endpoint
+ *     reports them all.
+ * </p>
+ */
+public class CacheMetrics {
+
+    private static final Set<CacheMetrics> INSTANCES = Collections.synchronizedSet(
+            Collections.newSetFromMap(new WeakHashMap<>()));
+
+    private final String application;
+    private final Map<String, Supplier<CacheStatistics>> caches = new ConcurrentHashMap<>();
+
+    public CacheMetrics(String application) {
+        this.application = application;
+
+        INSTANCES.add(this);
+    }
+
+    /**
+     * Registers a cache, replacing any cache registered under the same name
+     * @param name the cache name
+     * @param statistics reads the current statistics of the cache
+     */
+    public void register(String name, Supplier<CacheStatistics> statistics) {
+        caches.put(name, statistics);
+    }
+
+    /**
+     * Gets the statistics of the named cache in every application in the JVM that registered it
+     * @param name the cache name
+     * @return the statistics keyed by application name
+     */
+    public Map<String, CacheStatistics> getStatistics(String name) {
+        Map<String, CacheStatistics> statistics = new TreeMap<>();
+        synchronized (INSTANCES) {
+            for (CacheMetrics instance : INSTANCES) {
+                Supplier<CacheStatistics> cache = instance.caches.get(name);
+                if (cache != null) {
+                    statistics.put(instance.application, cache.get());
+                }
+            }
+        }
+
+        return statistics;
+    }
+}
@@ -0,0 +1,197 @@
+package io.keystash.common.services.scope;
+
+import io.keystash.common.exceptions.jpa.JpaExecutionException;
+import io.keystash.common.models.jpa.AllowedScope;
+import io.keystash.common.persistence.ScopeDao;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An in-memory copy of the scope catalogue held by {@link ScopeDao}
+ * <p>
+ *     Every scope is given a bit position the first time it is loaded, so sets of scopes can be checked against the
+ *     catalogue with a few bitwise operations. Bit positions are never reused, which keeps {@link ScopeSet}s valid
+ *     when the catalogue is reloaded. One scope set is kept per unique combination of scopes.
+ * </p>
+ * <p>
+ *     The catalogue is reloaded once it is a minute old, by the first request to notice, while other requests carry
+ *     on with the previous copy. {@link #refresh()} reloads it straight away, and should be called whenever the
+ *     catalogue is changed.
+ * </p>
+ */
+@Slf4j
+public class ScopeRegistry {
+
+    private static final long CATALOGUE_EXPIRY_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final long MAXIMUM_SCOPE_SETS = 10000;
+    private static final String PRIVILEGED_SCOPE = "privileged";
+
+    private final ScopeDao scopeDao;
+    private final Cache<BitSet, ScopeSet> scopeSets;
+    private final AtomicBoolean reloading = new AtomicBoolean();
+
+    // Guarded by this
+    private final Map<String, Integer> bitsByScope = new HashMap<>();
+    private final List<String> scopesByBit = new ArrayList<>();
+
+    private volatile Catalogue catalogue;
+
+    @Inject
+    public ScopeRegistry(ScopeDao scopeDao) {
+        this.scopeDao = scopeDao;
+        this.scopeSets = CacheBuilder.newBuilder()
+                .maximumSize(MAXIMUM_SCOPE_SETS)
+                .build();
+    }
+
+    /**
+     * Gets the scope catalogue, loading it if it has not been loaded yet or reloading it if it is stale
+     * <p>A stale catalogue is still returned if reloading it fails</p>
+     * @return the scope catalogue
+     * @throws JpaExecutionException if the catalogue has never been loaded and could not be loaded now
+     */
+    public Catalogue getCatalogue() throws JpaExecutionException {
+        Catalogue current = catalogue;
+        if (current == null) {
+            synchronized (this) {
+                if (catalogue == null) {
+                    refresh();
+                }
+                return catalogue;
+            }
+        }
+
+        if (System.currentTimeMillis() - current.loadedAt >= CATALOGUE_EXPIRY_MILLIS && reloading.compareAndSet(false, true)) {
+            try {
+                refresh();
+            } catch (JpaExecutionException e) {
+                log.warn("Unable to reload the scope catalogue, carrying on with the previous copy", e);
+            } finally {
+                reloading.set(false);
+            }
+        }
+
+        return catalogue;
+    }
+
+    /**
+     * Reloads the scope catalogue from the database
+     * @throws JpaExecutionException if the catalogue could not be loaded
+     */
+    public synchronized void refresh() throws JpaExecutionException {
+        List<AllowedScope> allowedScopes = scopeDao.getAllowedScopes();
+
+        Map<String, Integer> bits = new HashMap<>();
+        BitSet allowed = new BitSet();
+        for (AllowedScope allowedScope : allowedScopes) {
+            String scope = allowedScope.getScope();
+            if (scope == null) {
+                continue;
+            }
+
+            Integer bit = bitsByScope.get(scope);
+            if (bit == null) {
+                bit = scopesByBit.size();
+                scope = scope.intern();
+                bitsByScope.put(scope, bit);
+                scopesByBit.add(scope);
+            }
+
+            bits.put(scopesByBit.get(bit), bit);
+            allowed.set(bit);
+        }
+
+        catalogue = new Catalogue(bits, scopesByBit.toArray(new String[0]), allowed);
+    }
+
+    /**
+     * A snapshot of the scope catalogue
+     */
+    public final class Catalogue {
+
+        private final Map<String, Integer> bitsByScope;
+        private final String[] scopesByBit;
+        private final BitSet allowed;
+        private final boolean privileged;
+        private final long loadedAt;
+
+        private Catalogue(Map<String, Integer> bitsByScope, String[] scopesByBit, BitSet allowed) {
+            this.bitsByScope = bitsByScope;
+            this.scopesByBit = scopesByBit;
+            this.allowed = allowed;
+            this.privileged = bitsByScope.containsKey(PRIVILEGED_SCOPE);
+            this.loadedAt = System.currentTimeMillis();
+        }
+
+        /**
+         * Finds a scope that is not in the catalogue
+         * @param scopes the scopes to check
+         * @return the first scope that is not in the catalogue, or null if they all are
+         */
+        public String findUnknownScope(Collection<String> scopes) {
+            for (String scope : scopes) {
+                if (!bitsByScope.containsKey(scope)) {
+                    return scope;
+                }
+            }
+
+            return null;
+        }
+
+        /**
+         * Finds a scope in the catalogue that is not in the given set
+         * @param scopes the scope set to check
+         * @return the catalogue scope with the lowest bit position missing from the set, or null if none is missing
+         */
+        public String findMissingScope(ScopeSet scopes) {
+            BitSet missing = (BitSet) allowed.clone();
+            missing.andNot(scopes.getBits());
+
+            int bit = missing.nextSetBit(0);
+            return bit >= 0 ? scopesByBit[bit] : null;
+        }
+
+        /**
+         * Gets the shared scope set holding the given scopes
+         * @param scopes the scopes, any that are not in the catalogue are left out
+         * @return the scope set
+         */
+        public ScopeSet toScopeSet(Collection<String> scopes) {
+            BitSet bits = new BitSet(scopesByBit.length);
+            for (String scope : scopes) {
+                Integer bit = bitsByScope.get(scope);
+                if (bit != null) {
+                    bits.set(bit);
+                }
+            }
+
+            ScopeSet scopeSet = scopeSets.getIfPresent(bits);
+            if (scopeSet != null) {
+                return scopeSet;
+            }
+
+            String[] members = new String[bits.cardinality()];
+            for (int bit = bits.nextSetBit(0), i = 0; bit >= 0; bit = bits.nextSetBit(bit + 1), i++) {
+                members[i] = scopesByBit[bit];
+            }
+
+            scopeSet = new ScopeSet(bits, members);
+            ScopeSet existing = scopeSets.asMap().putIfAbsent(bits, scopeSet);
+            return existing != null ? existing : scopeSet;
+        }
+
+        /**
+         * Checks whether the catalogue holds the privileged scope, which lets clients request any subset of scopes
+         * @return true if the catalogue holds the privileged scope
+         */
+        public boolean isPrivileged() {
+            return privileged;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package io.keystash.common.services.scope;
+
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable set of scopes, backed by the bit positions the {@link ScopeRegistry} gave them
+ * <p>
+ *     Scope sets are shared, one per unique combination of scopes, so the scope strings they hold are interned and
+ *     their space separated form is only joined once.
+ * </p>
+ */
+public final class ScopeSet extends AbstractSet<String> {
+
+    private final BitSet bits;
+    private final String[] scopes;
+    private final String joined;
+
+    ScopeSet(BitSet bits, String[] scopes) {
+        this.bits = bits;
+        this.scopes = scopes;
+        this.joined = String.join(" ", scopes);
+    }
+
+    /**
+     * Joins scopes into the space separated form used in tokens and token responses
+     * @param scopes the scopes to join
+     * @return the joined scopes, without joining again if they are a scope set
+     */
+    public static String join(Set<String> scopes) {
+        return scopes instanceof ScopeSet ? ((ScopeSet) scopes).joined : String.join(" ", scopes);
+    }
+
+    /**
+     * Gets the bit positions of the scopes in this set
+     * @return a copy of the bits
+     */
+    public BitSet getBits() {
+        return (BitSet) bits.clone();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        for (String scope : scopes) {
+            if (scope.equals(o)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < scopes.length;
+            }
+
+            @Override
+            public String next() {
+                if (index >= scopes.length) {
+                    throw new NoSuchElementException();
+                }
+
+                return scopes[index++];
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return scopes.length;
+    }
+
+    @Override
+    public String toString() {
+        return joined;
+    }
+}
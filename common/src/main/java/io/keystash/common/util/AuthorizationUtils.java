@@ -3,6 +3,7 @@ package io.keystash.common.util;
 import io.keystash.common.exceptions.OAuth2Exception;
 import io.keystash.common.models.authentication.AuthenticatedUser;
 import io.keystash.common.models.error.ErrorType;
+import io.keystash.common.models.jose.VerifiedToken;
 import io.keystash.common.services.jose.TokenService;
 import org.apache.commons.lang3.StringUtils;
 
@@ -33,7 +34,7 @@ public class AuthorizationUtils {
     public static String getSubjectIdentifierForUser(AuthenticatedUser authenticatedUser) {
         MessageDigest sha256;
         try {
-            sha256 = MessageDigest.getInstance("SHA-256");
+            sha256 = CryptoUtils.getMessageDigest("SHA-256");
         } catch (NoSuchAlgorithmException e) {
             // Hardcoding the algorithm should mean we never get here
             throw new RuntimeException("Unable to generate subject identifier for user", e);
@@ -45,6 +46,17 @@ public class AuthorizationUtils {
     }
 
     public static String getAccessTokenFromHeader(String authorizationHeader, TokenService tokenService) {
+        return getVerifiedAccessTokenFromHeader(authorizationHeader, tokenService).getToken();
+    }
+
+    /**
+     * Gets the bearer token from an authorization header, verifying it once
+     * @param authorizationHeader the value of the authorization header
+     * @param tokenService the token service used to verify the token
+     * @return the verified token, with its claims
+     * @throws OAuth2Exception if the header is not a bearer token, or the token is not valid
+     */
+    public static VerifiedToken getVerifiedAccessTokenFromHeader(String authorizationHeader, TokenService tokenService) {
         if (StringUtils.isEmpty(authorizationHeader)) {
             throw new OAuth2Exception(ErrorType.OAuth2.INVALID_ACCESS_TOKEN, Response.Status.UNAUTHORIZED);
         }
@@ -54,11 +66,11 @@ public class AuthorizationUtils {
             throw new OAuth2Exception(ErrorType.OAuth2.INVALID_ACCESS_TOKEN, Response.Status.UNAUTHORIZED);
         }
 
-        String token = headerParts[1];
-        if (!tokenService.isTokenValid(token)) {
+        VerifiedToken verifiedToken = tokenService.verify(headerParts[1]);
+        if (!verifiedToken.isValid()) {
             throw new OAuth2Exception(ErrorType.OAuth2.EXPIRED_ACCESS_TOKEN, Response.Status.UNAUTHORIZED);
         }
 
-        return token;
+        return verifiedToken;
     }
 }
@@ -0,0 +1,125 @@
+package io.keystash.common.util;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Signature;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hands out reusable JCA engines that are kept per thread
+ * <p>
+ *     Looking up JCA engines goes through the provider list and is synchronized, which shows up under load. Engines are
+ *     not thread safe, so each thread keeps its own. Callers must finish with an engine before asking for another
+ *     engine of the same algorithm on the same thread.
+ * </p>
+ */
+public final class CryptoUtils {
+
+    private static final ThreadLocal<Map<String, MessageDigest>> MESSAGE_DIGESTS = ThreadLocal.withInitial(HashMap::new);
+    private static final ThreadLocal<Map<String, Signature>> SIGNATURES = ThreadLocal.withInitial(HashMap::new);
+    private static final ThreadLocal<Map<String, Cipher>> CIPHERS = ThreadLocal.withInitial(HashMap::new);
+    private static final ThreadLocal<Map<String, Map<String, KeyedMac>>> MACS = ThreadLocal.withInitial(HashMap::new);
+
+    private CryptoUtils() {
+    }
+
+    /**
+     * Gets a reset message digest for the current thread
+     * @param algorithm the digest algorithm, i.e. SHA-256
+     * @return a message digest ready for use
+     * @throws NoSuchAlgorithmException if the algorithm is not supported
+     */
+    public static MessageDigest getMessageDigest(String algorithm) throws NoSuchAlgorithmException {
+        Map<String, MessageDigest> messageDigests = MESSAGE_DIGESTS.get();
+        MessageDigest messageDigest = messageDigests.get(algorithm);
+        if (messageDigest == null) {
+            messageDigest = MessageDigest.getInstance(algorithm);
+            messageDigests.put(algorithm, messageDigest);
+        } else {
+            messageDigest.reset();
+        }
+
+        return messageDigest;
+    }
+
+    /**
+     * Gets a signature engine for the current thread
+     * <p>The engine must be initialised with a key before each use</p>
+     * @param algorithm the signature algorithm, i.e. SHA256withRSA
+     * @return a signature engine
+     * @throws NoSuchAlgorithmException if the algorithm is not supported
+     */
+    public static Signature getSignature(String algorithm) throws NoSuchAlgorithmException {
+        Map<String, Signature> signatures = SIGNATURES.get();
+        Signature signature = signatures.get(algorithm);
+        if (signature == null) {
+            signature = Signature.getInstance(algorithm);
+            signatures.put(algorithm, signature);
+        }
+
+        return signature;
+    }
+
+    /**
+     * Gets a cipher for the current thread
+     * <p>The cipher must be initialised with a key, and for AEAD modes a fresh IV, before each use</p>
+     * @param transformation the cipher transformation, i.e. AES/GCM/NoPadding
+     * @return a cipher
+     * @throws NoSuchAlgorithmException if the algorithm is not supported
+     * @throws NoSuchPaddingException if the padding is not supported
+     */
+    public static Cipher getCipher(String transformation) throws NoSuchAlgorithmException, NoSuchPaddingException {
+        Map<String, Cipher> ciphers = CIPHERS.get();
+        Cipher cipher = ciphers.get(transformation);
+        if (cipher == null) {
+            cipher = Cipher.getInstance(transformation);
+            ciphers.put(transformation, cipher);
+        }
+
+        return cipher;
+    }
+
+    /**
+     * Gets a MAC for the current thread that is already initialised with the secret of the given key
+     * <p>MACs are kept per key ID, and only initialised again if the secret for that key ID changes</p>
+     * @param algorithm the MAC algorithm, i.e. HmacSHA256
+     * @param keyId the ID of the key the secret belongs to
+     * @param secret the secret used to initialise the MAC
+     * @return a reset MAC ready for use
+     * @throws NoSuchAlgorithmException if the algorithm is not supported
+     * @throws InvalidKeyException if the secret can not be used with the algorithm
+     */
+    public static Mac getMac(String algorithm, String keyId, String secret) throws NoSuchAlgorithmException, InvalidKeyException {
+        Map<String, KeyedMac> macsByKey = MACS.get().computeIfAbsent(algorithm, key -> new HashMap<>());
+
+        KeyedMac keyedMac = macsByKey.get(keyId);
+        if (keyedMac == null || !keyedMac.secret.equals(secret)) {
+            Mac mac = Mac.getInstance(algorithm);
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), algorithm));
+            keyedMac = new KeyedMac(secret, mac);
+            macsByKey.put(keyId, keyedMac);
+        } else {
+            keyedMac.mac.reset();
+        }
+
+        return keyedMac.mac;
+    }
+
+    private static final class KeyedMac {
+
+        private final String secret;
+        private final Mac mac;
+
+        private KeyedMac(String secret, Mac mac) {
+            this.secret = secret;
+            this.mac = mac;
+        }
+    }
+}
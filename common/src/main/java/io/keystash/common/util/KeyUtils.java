@@ -5,11 +5,20 @@ import io.keystash.common.models.jose.JwsAlgorithmType;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 
+import java.security.AlgorithmParameters;
+import java.security.Key;
 import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.GeneralSecurityException;
 import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
 import java.security.PublicKey;
+import java.security.interfaces.ECKey;
 import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.RSAPublicKeySpec;
@@ -20,6 +29,10 @@ import java.util.Base64;
 public final class KeyUtils {
 
     public static PrivateKey getPrivateKeyFromString(String keyStr) throws SigningKeyException {
+        return getPrivateKeyFromString(keyStr, JwsAlgorithmType.RSA);
+    }
+
+    public static PrivateKey getPrivateKeyFromString(String keyStr, JwsAlgorithmType algorithmType) throws SigningKeyException {
         if (StringUtils.isEmpty(keyStr)) {
             throw new SigningKeyException("Cannot get private key from null or empty string");
         }
@@ -28,7 +41,7 @@ public final class KeyUtils {
         try {
             byte[] privateBytes = Base64.getDecoder().decode(cleanKeyStr);
             PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(privateBytes);
-            KeyFactory keyFactory = KeyFactory.getInstance(JwsAlgorithmType.RSA.name());
+            KeyFactory keyFactory = KeyFactory.getInstance(getKeyFactoryAlgorithm(algorithmType));
             return keyFactory.generatePrivate(keySpec);
 
         } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
@@ -37,6 +50,10 @@ public final class KeyUtils {
     }
 
     public static PublicKey getPublicKeyFromString(String keyStr) throws SigningKeyException {
+        return getPublicKeyFromString(keyStr, JwsAlgorithmType.RSA);
+    }
+
+    public static PublicKey getPublicKeyFromString(String keyStr, JwsAlgorithmType algorithmType) throws SigningKeyException {
         if (StringUtils.isEmpty(keyStr)) {
             throw new SigningKeyException("Cannot get public key from null or empty string");
         }
@@ -45,7 +62,7 @@ public final class KeyUtils {
         try {
             byte[] publicBytes = Base64.getDecoder().decode(cleanKeyStr);
             X509EncodedKeySpec keySpec = new X509EncodedKeySpec(publicBytes);
-            KeyFactory keyFactory = KeyFactory.getInstance(JwsAlgorithmType.RSA.name());
+            KeyFactory keyFactory = KeyFactory.getInstance(getKeyFactoryAlgorithm(algorithmType));
             return keyFactory.generatePublic(keySpec);
 
         } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
@@ -68,6 +85,95 @@ public final class KeyUtils {
         }
     }
 
+    /**
+     * Generates a new key pair suitable for signing tokens with the given algorithm
+     * <p>RSA keys are 2048 bits and EC keys use the P-256 curve, matching the RS256 and ES256 algorithms</p>
+     * @param algorithmType the algorithm the key pair will be used with
+     * @return a new key pair
+     * @throws SigningKeyException if the runtime can not generate keys for the algorithm
+     */
+    public static KeyPair generateKeyPair(JwsAlgorithmType algorithmType) throws SigningKeyException {
+        try {
+            KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance(getKeyFactoryAlgorithm(algorithmType));
+            switch (algorithmType) {
+                case RSA:
+                    keyPairGenerator.initialize(2048);
+                    break;
+                case ECDSA:
+                    keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+                    break;
+                default:
+                    break;
+            }
+
+            return keyPairGenerator.generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new SigningKeyException(String.format("Unable to generate a key pair for algorithm [%s]", algorithmType), e);
+        }
+    }
+
+    /**
+     * Checks whether an elliptic curve key is on the P-256 curve, the only curve ES256 tokens can be signed with
+     * @param key the key to check
+     * @return true if the key uses the P-256 domain parameters
+     */
+    public static boolean isP256Key(ECKey key) {
+        ECParameterSpec params = key.getParams();
+        ECParameterSpec p256 = P256.PARAMETERS;
+        return params != null
+                && p256.getCurve().equals(params.getCurve())
+                && p256.getGenerator().equals(params.getGenerator())
+                && p256.getOrder().equals(params.getOrder())
+                && p256.getCofactor() == params.getCofactor();
+    }
+
+    /**
+     * Generates a new random HMAC secret
+     * @return a URL safe, base64 encoded 64 byte secret
+     */
+    public static String generateSecret() {
+        byte[] secret = new byte[64];
+        new SecureRandom().nextBytes(secret);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(secret);
+    }
+
+    /**
+     * Encodes a key in the same form that {@link #getPrivateKeyFromString(String)} and
+     * {@link #getPublicKeyFromString(String)} accept
+     * @param key the key to encode
+     * @return the base64 encoded key
+     */
+    public static String getKeyString(Key key) {
+        return Base64.getEncoder().encodeToString(key.getEncoded());
+    }
+
+    /**
+     * Gets the raw 32 byte public key from an X.509 encoded Ed25519 public key
+     * <p>The encoding is a fixed 12 byte prefix followed by the key itself, so the key is always the last 32 bytes</p>
+     * @param publicKey the Ed25519 public key
+     * @return the raw public key bytes
+     */
+    public static byte[] getRawEdDsaPublicKey(PublicKey publicKey) {
+        byte[] encoded = publicKey.getEncoded();
+        byte[] raw = new byte[32];
+        System.arraycopy(encoded, encoded.length - raw.length, raw, 0, raw.length);
+        return raw;
+    }
+
+    private static String getKeyFactoryAlgorithm(JwsAlgorithmType algorithmType) throws NoSuchAlgorithmException {
+        switch (algorithmType) {
+            case RSA:
+                return "RSA";
+            case ECDSA:
+                return "EC";
+            case EDDSA:
+                // Only available from Java 15 onwards, older runtimes will fail to load these keys
+                return "Ed25519";
+            default:
+                throw new NoSuchAlgorithmException(String.format("No key factory exists for algorithm [%s]", algorithmType));
+        }
+    }
+
     private static String cleanKeyString(String keyStr) {
         keyStr = keyStr.replaceAll("-----BEGIN (.*)-----", "");
         keyStr = keyStr.replaceAll("-----END (.*)----", "");
@@ -75,4 +181,22 @@ public final class KeyUtils {
         keyStr = keyStr.replaceAll("\n", "");
         return keyStr.trim();
     }
-}
\ No newline at end of file
+
+    /**
+     * Holds the P-256 domain parameters, which are only looked up the first time an EC key is checked
+     */
+    private static final class P256 {
+
+        private static final ECParameterSpec PARAMETERS;
+
+        static {
+            try {
+                AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+                parameters.init(new ECGenParameterSpec("secp256r1"));
+                PARAMETERS = parameters.getParameterSpec(ECParameterSpec.class);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("The runtime does not support the P-256 curve", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package io.keystash.common.factories.jose;
+
+import io.keystash.common.models.jose.EcJsonWebKey;
+import io.keystash.common.models.jose.JwsAlgorithmType;
+import io.keystash.common.models.jose.KeyConfigName;
+import io.keystash.common.models.jpa.AppKey;
+import io.keystash.common.models.jpa.AppKeyConfig;
+import io.keystash.common.services.jose.EcKeyProvider;
+import io.keystash.common.util.KeyUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.ArrayList;
+import java.util.Base64;
+
+public class KeyProviderFactoryTest {
+
+    private final KeyProviderFactory keyProviderFactory = new KeyProviderFactory();
+
+    @Test
+    public void createKeyProvider_p256Key_isLoaded() throws Exception {
+        KeyPair keyPair = generateEcKeyPair("secp256r1");
+
+        EcKeyProvider keyProvider = (EcKeyProvider) keyProviderFactory.createKeyProvider(createEcAppKey(keyPair));
+
+        Assert.assertNotNull(keyProvider);
+        Assert.assertEquals(keyPair.getPublic(), keyProvider.getPublicKey());
+    }
+
+    @Test
+    public void createKeyProvider_p384Key_isRejected() throws Exception {
+        Assert.assertNull(keyProviderFactory.createKeyProvider(createEcAppKey(generateEcKeyPair("secp384r1"))));
+    }
+
+    @Test
+    public void ecJsonWebKey_p256Key_hasFullLengthCoordinates() throws Exception {
+        ECPublicKey publicKey = (ECPublicKey) generateEcKeyPair("secp256r1").getPublic();
+
+        EcJsonWebKey jsonWebKey = new EcJsonWebKey(publicKey.getW().getAffineX(), publicKey.getW().getAffineY());
+
+        Assert.assertEquals(32, Base64.getUrlDecoder().decode(jsonWebKey.getX()).length);
+        Assert.assertEquals(32, Base64.getUrlDecoder().decode(jsonWebKey.getY()).length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void ecJsonWebKey_p384Key_doesFail() throws Exception {
+        ECPublicKey publicKey = (ECPublicKey) generateEcKeyPair("secp384r1").getPublic();
+
+        new EcJsonWebKey(publicKey.getW().getAffineX(), publicKey.getW().getAffineY());
+    }
+
+    private static KeyPair generateEcKeyPair(String curve) throws Exception {
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
+        keyPairGenerator.initialize(new ECGenParameterSpec(curve));
+        return keyPairGenerator.generateKeyPair();
+    }
+
+    private static AppKey createEcAppKey(KeyPair keyPair) {
+        AppKey appKey = new AppKey();
+        appKey.setId(1);
+        appKey.setAlgorithm(JwsAlgorithmType.ECDSA);
+        appKey.setConfigs(new ArrayList<>());
+        addConfig(appKey, KeyConfigName.PRIVATE_KEY, KeyUtils.getKeyString(keyPair.getPrivate()));
+        addConfig(appKey, KeyConfigName.PUBLIC_KEY, KeyUtils.getKeyString(keyPair.getPublic()));
+        addConfig(appKey, KeyConfigName.ACTIVE, Boolean.TRUE.toString());
+        return appKey;
+    }
+
+    private static void addConfig(AppKey appKey, KeyConfigName name, String value) {
+        AppKeyConfig config = new AppKeyConfig();
+        config.setAppKey(appKey);
+        config.setName(name.getValue());
+        config.setValue(value);
+        appKey.getConfigs().add(config);
+    }
+}
@@ -0,0 +1,62 @@
+package io.keystash.common.persistence;
+
+import io.keystash.common.configuration.JpaConfiguration;
+import io.keystash.common.models.jpa.Account;
+import io.keystash.common.persistence.hibernate.HibernateConfigurationUtil;
+import io.keystash.common.persistence.hibernate.HibernateDao;
+import io.keystash.common.persistence.hibernate.HibernateSessionProvider;
+import io.keystash.common.services.account.AccountRegistry;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Collections;
+import java.util.Date;
+
+public class AccountDaoTest {
+
+    private static final String STORED_EMAIL = "John.Smith@Keystash.io";
+
+    private static AccountDao accountDao;
+
+    @BeforeClass
+    public static void createDatabase() throws Exception {
+        JpaConfiguration jpaConfiguration = Mockito.mock(JpaConfiguration.class);
+        Mockito.when(jpaConfiguration.connnectionUrl()).thenReturn("jdbc:h2:mem:account-dao;DB_CLOSE_DELAY=-1");
+        Mockito.when(jpaConfiguration.driver()).thenReturn("org.h2.Driver");
+        Mockito.when(jpaConfiguration.username()).thenReturn("sa");
+        Mockito.when(jpaConfiguration.password()).thenReturn("");
+
+        JpaEntityDao jpaEntityDao = new HibernateDao(new HibernateSessionProvider(jpaConfiguration));
+
+        Account account = new Account();
+        account.setEmail(STORED_EMAIL);
+        account.setCreated(new Date());
+        jpaEntityDao.saveEntities(Collections.singletonList(account));
+
+        accountDao = new AccountDao(jpaEntityDao);
+    }
+
+    @AfterClass
+    public static void closeDatabase() {
+        HibernateConfigurationUtil.close();
+    }
+
+    @Test
+    public void getAccountByEmail_mixedCaseStoredEmail_matchesAnyCase() throws Exception {
+        Assert.assertEquals(STORED_EMAIL, accountDao.getAccountByEmail(STORED_EMAIL).getEmail());
+        Assert.assertEquals(STORED_EMAIL, accountDao.getAccountByEmail("john.smith@keystash.io").getEmail());
+        Assert.assertEquals(STORED_EMAIL, accountDao.getAccountByEmail(" JOHN.SMITH@KEYSTASH.IO ").getEmail());
+        Assert.assertNull(accountDao.getAccountByEmail("jane.smith@keystash.io"));
+    }
+
+    @Test
+    public void getAccountByEmail_throughRegistry_findsMixedCaseStoredEmail() throws Exception {
+        AccountRegistry accountRegistry = new AccountRegistry(accountDao);
+
+        Assert.assertEquals(STORED_EMAIL, accountRegistry.getAccountByEmail(STORED_EMAIL).getEmail());
+        Assert.assertEquals(STORED_EMAIL, accountRegistry.getAccountByEmail("john.smith@keystash.io").getEmail());
+    }
+}
@@ -0,0 +1,106 @@
+package io.keystash.common.persistence;
+
+import io.keystash.common.configuration.JpaConfiguration;
+import io.keystash.common.models.jose.JwsAlgorithmType;
+import io.keystash.common.models.jpa.*;
+import io.keystash.common.persistence.hibernate.HibernateConfigurationUtil;
+import io.keystash.common.persistence.hibernate.HibernateDao;
+import io.keystash.common.persistence.hibernate.HibernateSessionProvider;
+import org.hibernate.stat.Statistics;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+public class FetchPlanTest {
+
+    private static JpaEntityDao jpaEntityDao;
+    private static Statistics statistics;
+
+    @BeforeClass
+    public static void createDatabase() throws Exception {
+        JpaConfiguration jpaConfiguration = Mockito.mock(JpaConfiguration.class);
+        Mockito.when(jpaConfiguration.connnectionUrl()).thenReturn("jdbc:h2:mem:fetch-plan;DB_CLOSE_DELAY=-1");
+        Mockito.when(jpaConfiguration.driver()).thenReturn("org.h2.Driver");
+        Mockito.when(jpaConfiguration.username()).thenReturn("sa");
+        Mockito.when(jpaConfiguration.password()).thenReturn("");
+
+        jpaEntityDao = new HibernateDao(new HibernateSessionProvider(jpaConfiguration));
+        statistics = HibernateConfigurationUtil.getSessionFactory().getStatistics();
+        statistics.setStatisticsEnabled(true);
+
+        Account account = new Account();
+        account.setEmail("fetch-plan@keystash.io");
+        account.setCreated(new Date());
+
+        PlatformClient platformClient = new PlatformClient();
+        platformClient.setClientId("fetch-plan-client");
+        platformClient.setClientSecret("secret");
+        platformClient.setAccount(account);
+        platformClient.setAuthorities("ROLE_ADMIN");
+        platformClient.setAuthorizedGrantTypesStr("authorization_code");
+        platformClient.setScope("openid");
+        platformClient.setRedirectUris(new ArrayList<>());
+        for (String value : Arrays.asList("https://one.keystash.io/callback", "https://two.keystash.io/callback")) {
+            RedirectUri redirectUri = new RedirectUri();
+            redirectUri.setPlatformClient(platformClient);
+            redirectUri.setValue(value);
+            platformClient.getRedirectUris().add(redirectUri);
+        }
+
+        jpaEntityDao.saveEntities(Arrays.asList(account, platformClient));
+
+        List<AppKey> appKeys = new ArrayList<>();
+        for (String name : Arrays.asList("first", "second", "third")) {
+            AppKey appKey = new AppKey();
+            appKey.setName(name);
+            appKey.setAlgorithm(JwsAlgorithmType.RSA);
+            appKey.setConfigs(new ArrayList<>());
+            for (String configName : Arrays.asList("public", "private")) {
+                AppKeyConfig appKeyConfig = new AppKeyConfig();
+                appKeyConfig.setAppKey(appKey);
+                appKeyConfig.setName(configName);
+                appKeyConfig.setValue(name + "-" + configName);
+                appKey.getConfigs().add(appKeyConfig);
+            }
+            appKeys.add(appKey);
+        }
+
+        jpaEntityDao.saveEntities(appKeys);
+    }
+
+    @AfterClass
+    public static void closeDatabase() {
+        HibernateConfigurationUtil.close();
+    }
+
+    @Before
+    public void resetStatistics() {
+        statistics.clear();
+    }
+
+    @Test
+    public void getPlatformClientByClientId_withAccountAndRedirectUris_isSingleStatement() throws Exception {
+        PlatformClient platformClient = new PlatformClientDao(jpaEntityDao).getPlatformClientByClientId("fetch-plan-client");
+
+        Assert.assertEquals(1, statistics.getPrepareStatementCount());
+        Assert.assertEquals("fetch-plan@keystash.io", platformClient.getAccount().getEmail());
+        Assert.assertEquals(2, platformClient.getRedirectUris().size());
+    }
+
+    @Test
+    public void getKeys_withConfigs_isSingleStatement() throws Exception {
+        List<AppKey> appKeys = new AppKeyDao(jpaEntityDao).getKeys();
+
+        Assert.assertEquals(1, statistics.getPrepareStatementCount());
+        Assert.assertEquals(3, appKeys.size());
+        appKeys.forEach(appKey -> Assert.assertEquals(2, appKey.getConfigs().size()));
+    }
+}
@@ -0,0 +1,56 @@
+package io.keystash.common.services.account;
+
+import io.keystash.common.models.jpa.Account;
+import io.keystash.common.persistence.AccountDao;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class AccountRegistryTest {
+
+    private static final int SAMPLE_USER_ID = 1;
+    private static final String SAMPLE_USER_EMAIL = "test@test.com";
+
+    private AccountDao mockAccountDao;
+    private AccountRegistry accountRegistry;
+    private Account account;
+
+    @Before
+    public void setUp() throws Exception {
+        account = new Account();
+        account.setId(SAMPLE_USER_ID);
+        account.setEmail(SAMPLE_USER_EMAIL);
+
+        // The registry queries with the normalised email, AccountDaoTest covers emails stored in mixed case
+        mockAccountDao = Mockito.mock(AccountDao.class);
+        Mockito.when(mockAccountDao.getAccountByEmail(SAMPLE_USER_EMAIL)).thenReturn(account);
+        accountRegistry = new AccountRegistry(mockAccountDao);
+    }
+
+    @Test
+    public void getAccountByEmail_normalisedEmail_isServedFromCache() throws Exception {
+        Assert.assertSame(account, accountRegistry.getAccountByEmail(SAMPLE_USER_EMAIL));
+        Assert.assertSame(account, accountRegistry.getAccountByEmail(" " + SAMPLE_USER_EMAIL.toUpperCase() + " "));
+        Assert.assertSame(account, accountRegistry.getAccountById(SAMPLE_USER_ID));
+
+        Mockito.verify(mockAccountDao, Mockito.times(1)).getAccountByEmail(Mockito.anyString());
+        Mockito.verify(mockAccountDao, Mockito.never()).getAccountById(Mockito.anyInt());
+    }
+
+    @Test
+    public void getAccountByEmail_mixedCaseEmailFirst_findsAccount() throws Exception {
+        Assert.assertSame(account, accountRegistry.getAccountByEmail("Test@Test.com"));
+        Assert.assertSame(account, accountRegistry.getAccountByEmail(SAMPLE_USER_EMAIL));
+
+        Mockito.verify(mockAccountDao, Mockito.times(1)).getAccountByEmail(SAMPLE_USER_EMAIL);
+    }
+
+    @Test
+    public void getAccountByEmail_unknownEmail_isNegativelyCached() throws Exception {
+        Assert.assertNull(accountRegistry.getAccountByEmail("unknown@keystash.io"));
+        Assert.assertNull(accountRegistry.getAccountByEmail("Unknown@keystash.io"));
+
+        Mockito.verify(mockAccountDao, Mockito.times(1)).getAccountByEmail(Mockito.anyString());
+    }
+}
@@ -0,0 +1,84 @@
+package io.keystash.common.services.jose;
+
+import io.keystash.common.models.jose.HmacKey;
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+public class JwtMinterTest {
+
+    private static final HmacKey SIGNING_KEY = new HmacKey("test-kid", "a-secret-long-enough-for-hmac-sha256");
+
+    private final JwtMinter jwtMinter = new JwtMinter();
+    private Algorithm algorithm;
+
+    @Before
+    public void createAlgorithm() throws Exception {
+        algorithm = Algorithm.HMAC256(SIGNING_KEY.getSecret());
+    }
+
+    @Test
+    public void sign_isVerifiedWithSameClaims() throws Exception {
+        long now = System.currentTimeMillis() / 1000;
+        JwtMinter.Draft draft = jwtMinter.draft()
+                .withClaim("jti", "id")
+                .withDateClaim("iat", now)
+                .withDateClaim("exp", now + 3600)
+                .withClaim("email", "user@keystash.io")
+                .withClaim("scope", "openid profile");
+
+        DecodedJWT decoded = JWT.require(algorithm).build().verify(jwtMinter.sign(draft, SIGNING_KEY, algorithm));
+
+        Assert.assertEquals("test-kid", decoded.getKeyId());
+        Assert.assertEquals("HS256", decoded.getAlgorithm());
+        Assert.assertEquals("JWT", decoded.getType());
+        Assert.assertEquals("id", decoded.getId());
+        Assert.assertEquals(now, decoded.getIssuedAt().getTime() / 1000);
+        Assert.assertEquals(now + 3600, decoded.getExpiresAt().getTime() / 1000);
+        Assert.assertEquals("user@keystash.io", decoded.getClaim("email").asString());
+        Assert.assertEquals("openid profile", decoded.getClaim("scope").asString());
+    }
+
+    @Test
+    public void sign_writesClaimsInInsertionOrder() throws Exception {
+        JwtMinter.Draft draft = jwtMinter.draft()
+                .withClaim("b", "1")
+                .withDateClaim("a", 2)
+                .withClaim("c", "3")
+                .withClaim("b", "4")
+                .withClaim("c", null);
+
+        Assert.assertEquals("{\"b\":\"4\",\"a\":2}", getPayload(jwtMinter.sign(draft, SIGNING_KEY, algorithm)));
+    }
+
+    @Test
+    public void sign_escapesStringValues() throws Exception {
+        String value = "quote\" backslash\\ newline\n control\u0001 accenté emoji😀";
+        JwtMinter.Draft draft = jwtMinter.draft().withClaim("value", value);
+
+        String token = jwtMinter.sign(draft, SIGNING_KEY, algorithm);
+
+        Assert.assertEquals(value, JWT.decode(token).getClaim("value").asString());
+        Assert.assertEquals("{\"value\":\"quote\\\" backslash\\\\ newline\\n control\\u0001 accenté emoji😀\"}",
+                getPayload(token));
+    }
+
+    @Test
+    public void draft_isEmptyAfterReuse() throws Exception {
+        jwtMinter.sign(jwtMinter.draft().withClaim("first", "1"), SIGNING_KEY, algorithm);
+
+        String token = jwtMinter.sign(jwtMinter.draft().withClaim("second", "2"), SIGNING_KEY, algorithm);
+
+        Assert.assertEquals("{\"second\":\"2\"}", getPayload(token));
+    }
+
+    private static String getPayload(String token) {
+        return new String(Base64.getUrlDecoder().decode(token.split("\\.")[1]), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,232 @@
+package io.keystash.common.services.jose;
+
+import io.keystash.common.configuration.KeyRotationConfiguration;
+import io.keystash.common.exceptions.jpa.JpaExecutionException;
+import io.keystash.common.factories.jose.JwsAlgorithmFactory;
+import io.keystash.common.factories.jose.KeyProviderFactory;
+import io.keystash.common.models.jose.HmacKey;
+import io.keystash.common.models.jose.JwsAlgorithmType;
+import io.keystash.common.models.jose.KeyConfigName;
+import io.keystash.common.models.jose.SigningKey;
+import io.keystash.common.models.jose.SigningKeyStatus;
+import io.keystash.common.models.jpa.AppKey;
+import io.keystash.common.models.jpa.AppKeyConfig;
+import io.keystash.common.persistence.AppKeyDao;
+import com.auth0.jwt.algorithms.Algorithm;
+import org.hibernate.StaleObjectStateException;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.*;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class KeyRotationSchedulerTest {
+
+    private static final long ROTATION_INTERVAL = 1000;
+    private static final long PREPUBLISH = 100;
+    private static final long MAX_TOKEN_LIFETIME = 50;
+
+    private final KeyProviderFactory keyProviderFactory = new KeyProviderFactory();
+
+    private AppKeyDao appKeyDao;
+    private KeyManager keyManager;
+    private KeyRotationScheduler scheduler;
+
+    @Before
+    public void createScheduler() throws Exception {
+        appKeyDao = mock(AppKeyDao.class);
+        keyManager = mock(KeyManager.class);
+        when(keyManager.getKeySnapshot()).thenReturn(SigningKeySnapshot.EMPTY);
+
+        KeyRotationConfiguration configuration = mock(KeyRotationConfiguration.class);
+        when(configuration.algorithm()).thenReturn("hmac");
+        when(configuration.rotationIntervalSeconds()).thenReturn(ROTATION_INTERVAL);
+        when(configuration.prepublishSeconds()).thenReturn(PREPUBLISH);
+        when(configuration.maxTokenLifetimeSeconds()).thenReturn(MAX_TOKEN_LIFETIME);
+
+        Algorithm algorithm = mock(Algorithm.class);
+        when(algorithm.getName()).thenReturn("HS256");
+        when(algorithm.sign(any(byte[].class))).thenReturn(new byte[] { 1 });
+
+        JwsAlgorithmFactory jwsAlgorithmFactory = mock(JwsAlgorithmFactory.class);
+        when(jwsAlgorithmFactory.createAlgorithmForSignature(any(SigningKey.class))).thenReturn(algorithm);
+        when(jwsAlgorithmFactory.verifySignature(any(SigningKey.class), anyString(), any(byte[].class), any(byte[].class)))
+                .thenReturn(true);
+
+        scheduler = new KeyRotationScheduler(appKeyDao, keyManager, keyProviderFactory, jwsAlgorithmFactory,
+                configuration);
+    }
+
+    @Test
+    public void rotate_activeKeyWithoutSchedule_startsItsClock() throws Exception {
+        AppKey activeKey = createKey(1, true, false, null, null);
+        when(appKeyDao.getKeys()).thenReturn(Collections.singletonList(activeKey));
+
+        scheduler.rotate(5000);
+
+        Assert.assertEquals("5000", getConfigValue(activeKey, KeyConfigName.ACTIVATE_AT));
+        Assert.assertEquals(Collections.singletonList(activeKey), captureUpdatedKeys());
+        verify(keyManager).refreshKeys();
+    }
+
+    @Test
+    public void rotate_beforePrepublish_changesNothing() throws Exception {
+        AppKey activeKey = createKey(1, true, false, 1000L, null);
+        when(appKeyDao.getKeys()).thenReturn(Collections.singletonList(activeKey));
+
+        scheduler.rotate(1000 + ROTATION_INTERVAL - PREPUBLISH - 1);
+
+        verify(appKeyDao, never()).updateKeys(any());
+        verify(keyManager, never()).refreshKeys();
+    }
+
+    @Test
+    public void rotate_withinPrepublish_publishesSuccessorWithActiveKey() throws Exception {
+        AppKey activeKey = createKey(1, true, false, 1000L, null);
+        when(appKeyDao.getKeys()).thenReturn(Collections.singletonList(activeKey));
+
+        scheduler.rotate(1000 + ROTATION_INTERVAL - PREPUBLISH);
+
+        List<AppKey> updatedKeys = captureUpdatedKeys();
+        Assert.assertEquals(2, updatedKeys.size());
+        Assert.assertTrue(updatedKeys.contains(activeKey));
+
+        AppKey successor = updatedKeys.get(updatedKeys.get(0) == activeKey ? 1 : 0);
+        Assert.assertEquals(SigningKeyStatus.PASSIVE, keyProviderFactory.getKeyStatus(successor));
+        Assert.assertEquals(JwsAlgorithmType.HMAC.toString(), successor.getAlgorithm());
+        Assert.assertEquals(String.valueOf(1000 + ROTATION_INTERVAL), getConfigValue(successor, KeyConfigName.ACTIVATE_AT));
+        Assert.assertNotNull(getConfigValue(successor, KeyConfigName.SECRET));
+        Assert.assertEquals(SigningKeyStatus.ACTIVE, keyProviderFactory.getKeyStatus(activeKey));
+    }
+
+    @Test
+    public void rotate_successorDue_promotesItAndSchedulesRetirement() throws Exception {
+        AppKey activeKey = createKey(1, true, false, 1000L, null);
+        AppKey successor = createKey(2, false, true, 2000L, null);
+        when(appKeyDao.getKeys()).thenReturn(Arrays.asList(activeKey, successor));
+        givenLoadedKeys(successor);
+
+        scheduler.rotate(2000);
+
+        Assert.assertEquals(SigningKeyStatus.ACTIVE, keyProviderFactory.getKeyStatus(successor));
+        Assert.assertEquals(SigningKeyStatus.PASSIVE, keyProviderFactory.getKeyStatus(activeKey));
+        Assert.assertEquals(String.valueOf(2000 + MAX_TOKEN_LIFETIME), getConfigValue(activeKey, KeyConfigName.RETIRE_AT));
+
+        List<AppKey> updatedKeys = captureUpdatedKeys();
+        Assert.assertEquals(2, updatedKeys.size());
+        Assert.assertTrue(updatedKeys.containsAll(Arrays.asList(activeKey, successor)));
+    }
+
+    @Test
+    public void rotate_successorThatCannotBeLoaded_isNotPromoted() throws Exception {
+        AppKey activeKey = createKey(1, true, false, 1000L, null);
+        AppKey successor = createKey(2, false, true, 2000L, null);
+        when(appKeyDao.getKeys()).thenReturn(Arrays.asList(activeKey, successor));
+
+        scheduler.rotate(2000);
+
+        Assert.assertEquals(SigningKeyStatus.ACTIVE, keyProviderFactory.getKeyStatus(activeKey));
+        Assert.assertEquals(SigningKeyStatus.PASSIVE, keyProviderFactory.getKeyStatus(successor));
+        verify(appKeyDao, never()).updateKeys(any());
+    }
+
+    @Test
+    public void rotate_retirementDue_disablesKey() throws Exception {
+        AppKey activeKey = createKey(2, true, false, 2000L, null);
+        AppKey retiringKey = createKey(1, false, true, 1000L, 2050L);
+        when(appKeyDao.getKeys()).thenReturn(Arrays.asList(activeKey, retiringKey));
+
+        scheduler.rotate(2049);
+        verify(appKeyDao, never()).updateKeys(any());
+
+        scheduler.rotate(2050);
+
+        Assert.assertEquals(SigningKeyStatus.DISABLED, keyProviderFactory.getKeyStatus(retiringKey));
+        Assert.assertEquals(SigningKeyStatus.ACTIVE, keyProviderFactory.getKeyStatus(activeKey));
+        List<AppKey> updatedKeys = captureUpdatedKeys();
+        Assert.assertTrue(updatedKeys.containsAll(Arrays.asList(activeKey, retiringKey)));
+    }
+
+    @Test
+    public void rotate_passiveKeyWithoutSchedule_isLeftAlone() throws Exception {
+        AppKey activeKey = createKey(2, true, false, 2000L, null);
+        AppKey handProvisionedKey = createKey(1, false, true, null, null);
+        when(appKeyDao.getKeys()).thenReturn(Arrays.asList(activeKey, handProvisionedKey));
+
+        scheduler.rotate(2500);
+
+        Assert.assertNull(getConfigValue(handProvisionedKey, KeyConfigName.RETIRE_AT));
+        Assert.assertEquals(SigningKeyStatus.PASSIVE, keyProviderFactory.getKeyStatus(handProvisionedKey));
+        verify(appKeyDao, never()).updateKeys(any());
+    }
+
+    @Test
+    public void rotate_scheduleChangedByAnotherNode_doesNotRefreshKeys() throws Exception {
+        AppKey activeKey = createKey(1, true, false, 1000L, null);
+        when(appKeyDao.getKeys()).thenReturn(Collections.singletonList(activeKey));
+        doThrow(new JpaExecutionException(new StaleObjectStateException("app_key", 1)))
+                .when(appKeyDao).updateKeys(any());
+
+        scheduler.rotate(1000 + ROTATION_INTERVAL);
+
+        verify(appKeyDao).updateKeys(any());
+        verify(keyManager, never()).refreshKeys();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<AppKey> captureUpdatedKeys() throws JpaExecutionException {
+        ArgumentCaptor<Collection> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(appKeyDao).updateKeys(captor.capture());
+        return new ArrayList<AppKey>(captor.getValue());
+    }
+
+    private void givenLoadedKeys(AppKey... appKeys) {
+        Map<String, SigningKey> keys = new LinkedHashMap<>();
+        Map<String, SigningKeyStatus> statuses = new HashMap<>();
+        for (AppKey appKey : appKeys) {
+            String kid = keyProviderFactory.getKeyId(appKey.getId());
+            keys.put(kid, new HmacKey(kid, "a-secret-long-enough-for-hmac-sha256"));
+            statuses.put(kid, keyProviderFactory.getKeyStatus(appKey));
+        }
+        when(keyManager.getKeySnapshot()).thenReturn(new SigningKeySnapshot(1, keys, statuses));
+    }
+
+    private static AppKey createKey(int id, boolean active, boolean passive, Long activateAt, Long retireAt) {
+        AppKey appKey = new AppKey();
+        appKey.setId(id);
+        appKey.setName("key-" + id);
+        appKey.setAlgorithm(JwsAlgorithmType.HMAC);
+        appKey.setConfigs(new ArrayList<>());
+        addConfig(appKey, KeyConfigName.SECRET, "a-secret-long-enough-for-hmac-sha256");
+        addConfig(appKey, KeyConfigName.ACTIVE, String.valueOf(active));
+        addConfig(appKey, KeyConfigName.PASSIVE, String.valueOf(passive));
+        if (activateAt != null) {
+            addConfig(appKey, KeyConfigName.ACTIVATE_AT, String.valueOf(activateAt));
+        }
+        if (retireAt != null) {
+            addConfig(appKey, KeyConfigName.RETIRE_AT, String.valueOf(retireAt));
+        }
+        return appKey;
+    }
+
+    private static void addConfig(AppKey appKey, KeyConfigName name, String value) {
+        AppKeyConfig config = new AppKeyConfig();
+        config.setAppKey(appKey);
+        config.setName(name.getValue());
+        config.setValue(value);
+        appKey.getConfigs().add(config);
+    }
+
+    private static String getConfigValue(AppKey appKey, KeyConfigName name) {
+        return appKey.getConfigs().stream()
+                .filter(config -> name.getValue().equals(config.getName()))
+                .map(AppKeyConfig::getValue)
+                .findFirst()
+                .orElse(null);
+    }
+}
@@ -0,0 +1,31 @@
+package io.keystash.common.services.metrics;
+
+import io.keystash.common.models.metrics.CacheStatistics;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+
+public class CacheMetricsTest {
+
+    @Test
+    public void getStatistics_cacheRegisteredByTwoApplications_reportsBoth() {
+        CacheMetrics first = new CacheMetrics("first-application");
+        CacheMetrics second = new CacheMetrics("second-application");
+        first.register("test-cache", () -> new CacheStatistics(3, 1, 0));
+        second.register("test-cache", () -> new CacheStatistics(0, 2, 1));
+        second.register("other-cache", () -> new CacheStatistics(5, 5, 5));
+
+        Map<String, CacheStatistics> statistics = first.getStatistics("test-cache");
+
+        Assert.assertEquals(new CacheStatistics(3, 1, 0), statistics.get("first-application"));
+        Assert.assertEquals(new CacheStatistics(0, 2, 1), statistics.get("second-application"));
+        Assert.assertEquals(0.75, statistics.get("first-application").getHitRate(), 0.0);
+        Assert.assertFalse(first.getStatistics("other-cache").containsKey("first-application"));
+    }
+
+    @Test
+    public void getHitRate_noLookups_isOne() {
+        Assert.assertEquals(1.0, new CacheStatistics(0, 0, 0).getHitRate(), 0.0);
+    }
+}
@@ -0,0 +1,107 @@
+package io.keystash.common.services.scope;
+
+import io.keystash.common.models.jpa.AllowedScope;
+import io.keystash.common.persistence.ScopeDao;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.mockito.Mockito.*;
+
+public class ScopeRegistryTest {
+
+    private ScopeDao scopeDao;
+    private ScopeRegistry scopeRegistry;
+
+    @Before
+    public void createRegistry() throws Exception {
+        scopeDao = mock(ScopeDao.class);
+        givenAllowedScopes("openid", "profile", "email");
+        scopeRegistry = new ScopeRegistry(scopeDao);
+    }
+
+    @Test
+    public void findUnknownScope_allScopesKnown_returnsNull() throws Exception {
+        ScopeRegistry.Catalogue catalogue = scopeRegistry.getCatalogue();
+
+        Assert.assertNull(catalogue.findUnknownScope(Arrays.asList("openid", "email")));
+        Assert.assertNull(catalogue.findUnknownScope(Collections.emptyList()));
+    }
+
+    @Test
+    public void findUnknownScope_unknownScope_returnsIt() throws Exception {
+        ScopeRegistry.Catalogue catalogue = scopeRegistry.getCatalogue();
+
+        Assert.assertEquals("address", catalogue.findUnknownScope(Arrays.asList("openid", "address")));
+    }
+
+    @Test
+    public void findMissingScope_someScopesLeftOut_returnsLowestMissing() throws Exception {
+        ScopeRegistry.Catalogue catalogue = scopeRegistry.getCatalogue();
+
+        Assert.assertEquals("profile", catalogue.findMissingScope(catalogue.toScopeSet(Arrays.asList("openid", "address"))));
+        Assert.assertNull(catalogue.findMissingScope(catalogue.toScopeSet(Arrays.asList("email", "profile", "openid"))));
+    }
+
+    @Test
+    public void toScopeSet_sameScopes_returnsSharedSetWithoutUnknownScopes() throws Exception {
+        ScopeRegistry.Catalogue catalogue = scopeRegistry.getCatalogue();
+
+        ScopeSet scopeSet = catalogue.toScopeSet(Arrays.asList("email", "address", "openid"));
+
+        Assert.assertSame(scopeSet, catalogue.toScopeSet(Arrays.asList("openid", "email")));
+        Assert.assertEquals(new HashSet<>(Arrays.asList("openid", "email")), scopeSet);
+        Assert.assertEquals("openid email", ScopeSet.join(scopeSet));
+    }
+
+    @Test
+    public void isPrivileged_dependsOnPrivilegedScope() throws Exception {
+        Assert.assertFalse(scopeRegistry.getCatalogue().isPrivileged());
+
+        givenAllowedScopes("openid", "privileged");
+        scopeRegistry.refresh();
+
+        Assert.assertTrue(scopeRegistry.getCatalogue().isPrivileged());
+    }
+
+    @Test
+    public void refresh_catalogueChanged_keepsBitPositions() throws Exception {
+        ScopeRegistry.Catalogue before = scopeRegistry.getCatalogue();
+        ScopeSet scopeSet = before.toScopeSet(Arrays.asList("openid", "email"));
+
+        givenAllowedScopes("address", "email", "openid");
+        scopeRegistry.refresh();
+        ScopeRegistry.Catalogue after = scopeRegistry.getCatalogue();
+
+        Assert.assertEquals(scopeSet.getBits(), after.toScopeSet(Arrays.asList("email", "openid")).getBits());
+        Assert.assertEquals("address", after.findMissingScope(scopeSet));
+        Assert.assertEquals("profile", after.findUnknownScope(Arrays.asList("openid", "profile")));
+
+        // A scope that comes back is given its old bit position again
+        givenAllowedScopes("openid", "profile", "email", "address");
+        scopeRegistry.refresh();
+
+        Assert.assertEquals(before.toScopeSet(Collections.singletonList("profile")).getBits(),
+                scopeRegistry.getCatalogue().toScopeSet(Collections.singletonList("profile")).getBits());
+    }
+
+    @Test
+    public void getCatalogue_freshCatalogue_loadsOnce() throws Exception {
+        scopeRegistry.getCatalogue();
+        scopeRegistry.getCatalogue();
+
+        verify(scopeDao, times(1)).getAllowedScopes();
+    }
+
+    private void givenAllowedScopes(String... scopes) throws Exception {
+        List<AllowedScope> allowedScopes = new ArrayList<>();
+        for (String scope : scopes) {
+            AllowedScope allowedScope = new AllowedScope();
+            allowedScope.setScope(scope);
+            allowedScopes.add(allowedScope);
+        }
+        when(scopeDao.getAllowedScopes()).thenReturn(allowedScopes);
+    }
+}
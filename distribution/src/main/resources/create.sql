@@ -5,6 +5,7 @@ CREATE TABLE IF NOT EXISTS `Account` (
 	`created` datetime NOT NULL,
 	`verified` tinyint(1) NOT NULL DEFAULT '0',
 	`facebookId` varchar(255) DEFAULT NULL,
+	`version` bigint(20) NOT NULL DEFAULT '0',
 	PRIMARY KEY (`id`),
 	UNIQUE KEY `email` (`email`)
 );
@@ -23,6 +24,23 @@ CREATE TABLE IF NOT EXISTS `PlatformClient` (
 	FOREIGN KEY (`account_id`) REFERENCES `Account`(`id`)
 );
 
+CREATE TABLE IF NOT EXISTS `app_key` (
+	`id` int(11) NOT NULL AUTO_INCREMENT,
+	`name` varchar(255) NOT NULL,
+	`algorithm` varchar(255) NOT NULL,
+	`version` bigint(20) NOT NULL DEFAULT '0',
+	PRIMARY KEY (`id`)
+);
+
+CREATE TABLE IF NOT EXISTS `app_key_config` (
+	`id` int(11) NOT NULL AUTO_INCREMENT,
+	`app_key_id` int(11) NOT NULL,
+	`name` varchar(255) NOT NULL,
+	`value` text NOT NULL,
+	PRIMARY KEY (`id`),
+	FOREIGN KEY (`app_key_id`) REFERENCES `app_key`(`id`)
+);
+
 CREATE TABLE `AllowedScope` (
 	`scope` varchar(60) NOT NULL,
 	PRIMARY KEY (`scope`)